@@ -0,0 +1,51 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path;
+
+import java.util.List;
+
+/**
+ * Base class for the child-nodes loaders which also manage the loaded child-nodes (instead of {@link TreeNode} keeping
+ * them), and may therefore drop and reload them. {@link TreeNode} asks the holder for its child-nodes every time they
+ * are requested.
+ *
+ * @author Martti Tamm
+ */
+abstract class ChildNodesHolder implements ChildNodesLoader {
+
+  /**
+   * Provides the child-nodes, loading them when they are not currently loaded.
+   *
+   * @return The child-nodes (immutable list).
+   */
+  abstract List<TreeNode> getChildren();
+
+  /**
+   * Reports whether the child-nodes are currently loaded.
+   *
+   * @return A Boolean that is <code>true</code> when the child-nodes are loaded.
+   */
+  abstract boolean isLoaded();
+
+  @Override
+  public TreeNode[] loadChildNodes() {
+    List<TreeNode> nodes = getChildren();
+    return nodes.toArray(new TreeNode[nodes.size()]);
+  }
+}
@@ -0,0 +1,37 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path;
+
+/**
+ * Contract for loading the child-nodes of a lazily expanded {@link TreeNode} (see
+ * {@link TreeNode#createLazy(Object, Object, ChildNodesLoader)}). The loader is called when the child-nodes of the node
+ * are requested for the first time.
+ *
+ * @author Martti Tamm
+ */
+public interface ChildNodesLoader {
+
+  /**
+   * Loads the child-nodes of a tree node. When the method throws an exception, the node remains unloaded, and the
+   * loader will be called again when the child-nodes are requested again.
+   *
+   * @return The child-nodes (may be <code>null</code> or empty for none).
+   */
+  TreeNode[] loadChildNodes();
+}
@@ -0,0 +1,199 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A navigable view of the child-nodes of a node that were sorted by their keys when the node was created (see
+ * {@link TreeNode#createSorted(Object, Object, Comparator, TreeNode...)}). Similarly to
+ * <code>java.util.NavigableMap</code>, the child-nodes can be looked up by key using binary search, and ranges of
+ * child-nodes are provided as views of the list of child-nodes (without copying).
+ * <p>
+ * When several child-nodes have equal keys, they keep their original order, and the key lookup methods return the
+ * first one of them. The view is immutable.
+ *
+ * @author Martti Tamm
+ */
+public final class SortedChildNodes {
+
+  private final List<TreeNode> children;
+
+  private final Comparator<Object> order;
+
+  SortedChildNodes(List<TreeNode> children, Comparator<Object> order) {
+    this.children = children;
+    this.order = order;
+  }
+
+  /**
+   * Provides the comparator that orders the keys of the child-nodes.
+   *
+   * @return The key comparator.
+   */
+  public Comparator<Object> getOrder() {
+    return this.order;
+  }
+
+  /**
+   * Provides all the child-nodes (sorted by key).
+   *
+   * @return An immutable list of the child-nodes.
+   */
+  public List<TreeNode> getAll() {
+    return this.children;
+  }
+
+  /**
+   * Finds the child-node with a key.
+   *
+   * @param key The key of the child-node.
+   * @return The child-node with a key equal to the given key (according to the comparator), or <code>null</code>.
+   */
+  public TreeNode get(Object key) {
+    int index = findFirst(key);
+    return index < this.children.size() && compare(index, key) == 0 ? this.children.get(index) : null;
+  }
+
+  /**
+   * Finds the child-node with the greatest key less than or equal to the given key.
+   *
+   * @param key The key to compare to.
+   * @return The found child-node, or <code>null</code> when there is no such child-node.
+   */
+  public TreeNode floor(Object key) {
+    return getNode(findAfter(key) - 1);
+  }
+
+  /**
+   * Finds the child-node with the least key greater than or equal to the given key.
+   *
+   * @param key The key to compare to.
+   * @return The found child-node, or <code>null</code> when there is no such child-node.
+   */
+  public TreeNode ceiling(Object key) {
+    return getNode(findFirst(key));
+  }
+
+  /**
+   * Finds the child-node with the greatest key strictly less than the given key.
+   *
+   * @param key The key to compare to.
+   * @return The found child-node, or <code>null</code> when there is no such child-node.
+   */
+  public TreeNode lower(Object key) {
+    return getNode(findFirst(key) - 1);
+  }
+
+  /**
+   * Finds the child-node with the least key strictly greater than the given key.
+   *
+   * @param key The key to compare to.
+   * @return The found child-node, or <code>null</code> when there is no such child-node.
+   */
+  public TreeNode higher(Object key) {
+    return getNode(findAfter(key));
+  }
+
+  /**
+   * Provides the child-nodes with keys in a range.
+   *
+   * @param fromKey The low end of the range.
+   * @param fromInclusive Whether the low end of the range is included.
+   * @param toKey The high end of the range.
+   * @param toInclusive Whether the high end of the range is included.
+   * @return An immutable view of the child-nodes in the range (empty when the range is empty).
+   */
+  public List<TreeNode> subList(Object fromKey, boolean fromInclusive, Object toKey, boolean toInclusive) {
+    int from = fromInclusive ? findFirst(fromKey) : findAfter(fromKey);
+    int to = toInclusive ? findAfter(toKey) : findFirst(toKey);
+    return this.children.subList(from, Math.max(from, to));
+  }
+
+  /**
+   * Provides the child-nodes with keys less than (or equal to, if <code>inclusive</code> is true) the given key.
+   *
+   * @param toKey The high end of the range.
+   * @param inclusive Whether the high end of the range is included.
+   * @return An immutable view of the child-nodes in the range.
+   */
+  public List<TreeNode> headList(Object toKey, boolean inclusive) {
+    return this.children.subList(0, inclusive ? findAfter(toKey) : findFirst(toKey));
+  }
+
+  /**
+   * Provides the child-nodes with keys greater than (or equal to, if <code>inclusive</code> is true) the given key.
+   *
+   * @param fromKey The low end of the range.
+   * @param inclusive Whether the low end of the range is included.
+   * @return An immutable view of the child-nodes in the range.
+   */
+  public List<TreeNode> tailList(Object fromKey, boolean inclusive) {
+    return this.children.subList(inclusive ? findFirst(fromKey) : findAfter(fromKey), this.children.size());
+  }
+
+  private TreeNode getNode(int index) {
+    return index >= 0 && index < this.children.size() ? this.children.get(index) : null;
+  }
+
+  /**
+   * Finds the index of the first child-node with a key greater than or equal to the given key.
+   */
+  private int findFirst(Object key) {
+    int low = 0;
+    int high = this.children.size();
+
+    while (low < high) {
+      int middle = low + high >>> 1;
+
+      if (compare(middle, key) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  /**
+   * Finds the index of the first child-node with a key greater than the given key.
+   */
+  private int findAfter(Object key) {
+    int low = 0;
+    int high = this.children.size();
+
+    while (low < high) {
+      int middle = low + high >>> 1;
+
+      if (compare(middle, key) <= 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+
+  private int compare(int index, Object key) {
+    return this.order.compare(this.children.get(index).getKey(), key);
+  }
+}
@@ -0,0 +1,274 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A cache of the child-nodes of tree nodes (loaded subtrees), which is limited by the total number of tree nodes. When
+ * the limit is exceeded, the least recently used subtrees are evicted, and they will be loaded again when requested.
+ * This enables working with trees that do not fit into memory, as long as the frequently used subtrees do.
+ * <p>
+ * The nodes, whose child-nodes are managed by the cache, are created using {@link #createNode(Object, Object,
+ * ChildNodesLoader)}. The loader is called whenever the child-nodes are requested and they are not currently loaded. It
+ * may read the subtree from a file or a database, or construct it using
+ * {@link ws.rocket.path.builder.BuilderChildNodesLoader}. The loaded child-nodes may also be nodes managed by the
+ * cache, which enables loading a large tree branch by branch.
+ * <p>
+ * The size of a loaded subtree is the number of nodes in it, excluding the subtrees that are loaded separately (by
+ * the child-nodes that have loaders of their own). The cache evicts subtrees using the <em>CLOCK</em> algorithm, an
+ * approximation of LRU: requesting loaded child-nodes only marks them as recently used, and the subtrees are evicted in
+ * the order of loading, except that recently used subtrees get a second chance. A single subtree that exceeds the limit
+ * is kept until another subtree is loaded.
+ * <p>
+ * The cache is thread-safe. The loader of a node is called by one thread at a time. Requesting loaded child-nodes does
+ * not involve locking. The cache also counts the hits (requests where the child-nodes were loaded), misses (loads) and
+ * evictions.
+ *
+ * @author Martti Tamm
+ */
+public final class SubtreeCache {
+
+  private final int maxNodes;
+
+  private final List<Entry> entries = new ArrayList<Entry>();
+
+  private int clockHand;
+
+  private int loadedNodes;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Creates a new cache with the limit for the total number of nodes in the loaded subtrees.
+   *
+   * @param maxNodes The maximum number of nodes in the loaded subtrees (must be positive).
+   */
+  public SubtreeCache(int maxNodes) {
+    if (maxNodes <= 0) {
+      throw new IllegalArgumentException("The maximum number of nodes must be positive; got: " + maxNodes);
+    }
+    this.maxNodes = maxNodes;
+  }
+
+  /**
+   * Creates a tree node with given key and value, and with child-nodes that are loaded when requested and managed by
+   * this cache. The created node is serialized as a regular node with its child-nodes loaded.
+   *
+   * @param key A key for the tree node.
+   * @param value A value for the tree node.
+   * @param loader The loader of the child-nodes (required).
+   * @return The created tree node.
+   */
+  public TreeNode createNode(Object key, Object value, ChildNodesLoader loader) {
+    if (loader == null) {
+      throw new NullPointerException("Child-nodes loader must not be null.");
+    }
+    return new TreeNode(key, value, new Entry(loader));
+  }
+
+  /**
+   * Provides the maximum number of nodes in the loaded subtrees.
+   *
+   * @return The maximum number of nodes.
+   */
+  public int getMaxNodes() {
+    return this.maxNodes;
+  }
+
+  /**
+   * Provides the current number of nodes in the loaded subtrees.
+   *
+   * @return The number of nodes.
+   */
+  public synchronized int getLoadedNodes() {
+    return this.loadedNodes;
+  }
+
+  /**
+   * Provides the current number of loaded subtrees.
+   *
+   * @return The number of subtrees.
+   */
+  public synchronized int getLoadedSubtrees() {
+    return this.entries.size();
+  }
+
+  /**
+   * Provides the number of times the requested child-nodes were already loaded.
+   *
+   * @return The number of cache hits.
+   */
+  public long getHitCount() {
+    return this.hits.get();
+  }
+
+  /**
+   * Provides the number of times the requested child-nodes had to be loaded.
+   *
+   * @return The number of cache misses.
+   */
+  public long getMissCount() {
+    return this.misses.get();
+  }
+
+  /**
+   * Provides the number of subtrees evicted due to exceeding the node limit.
+   *
+   * @return The number of evictions.
+   */
+  public long getEvictionCount() {
+    return this.evictions.get();
+  }
+
+  /**
+   * Evicts all loaded subtrees (without counting them as evictions).
+   */
+  public synchronized void evictAll() {
+    for (Entry entry : this.entries) {
+      entry.unload();
+    }
+    this.entries.clear();
+    this.clockHand = 0;
+    this.loadedNodes = 0;
+  }
+
+  private synchronized void admit(Entry entry, int size) {
+    if (entry.index < 0) {
+      entry.index = this.entries.size();
+      entry.size = size;
+      this.entries.add(entry);
+      this.loadedNodes += size;
+    }
+
+    while (this.loadedNodes > this.maxNodes && this.entries.size() > 1) {
+      if (this.clockHand >= this.entries.size()) {
+        this.clockHand = 0;
+      }
+
+      Entry candidate = this.entries.get(this.clockHand);
+
+      if (candidate == entry || candidate.referenced) {
+        candidate.referenced = false;
+        this.clockHand++;
+      } else {
+        evict(candidate);
+        this.evictions.incrementAndGet();
+      }
+    }
+  }
+
+  private void evict(Entry entry) {
+    int last = this.entries.size() - 1;
+    Entry moved = this.entries.remove(last);
+
+    if (moved != entry) {
+      this.entries.set(entry.index, moved);
+      moved.index = entry.index;
+    }
+
+    this.loadedNodes -= entry.size;
+    entry.unload();
+  }
+
+  private static int countNodes(List<TreeNode> children) {
+    List<TreeNode> pending = new ArrayList<TreeNode>(children);
+    int count = 0;
+
+    while (!pending.isEmpty()) {
+      TreeNode node = pending.remove(pending.size() - 1);
+      count++;
+
+      if (node.getLoader() == null) {
+        pending.addAll(node.getChildren());
+      }
+    }
+
+    return count;
+  }
+
+  /**
+   * The child-nodes holder of a node managed by the cache.
+   */
+  private final class Entry extends ChildNodesHolder {
+
+    private final ChildNodesLoader loader;
+
+    private volatile List<TreeNode> children;
+
+    private volatile boolean referenced;
+
+    private int index = -1;
+
+    private int size;
+
+    Entry(ChildNodesLoader loader) {
+      this.loader = loader;
+    }
+
+    @Override
+    boolean isLoaded() {
+      return this.children != null;
+    }
+
+    @Override
+    List<TreeNode> getChildren() {
+      List<TreeNode> result = this.children;
+
+      if (result == null) {
+        return load();
+      }
+
+      SubtreeCache.this.hits.incrementAndGet();
+      if (!this.referenced) {
+        this.referenced = true;
+      }
+
+      return result;
+    }
+
+    private synchronized List<TreeNode> load() {
+      List<TreeNode> result = this.children;
+
+      if (result != null) {
+        SubtreeCache.this.hits.incrementAndGet();
+      } else {
+        SubtreeCache.this.misses.incrementAndGet();
+        result = TreeNode.toList(this.loader.loadChildNodes());
+        this.children = result;
+        this.referenced = true;
+        admit(this, countNodes(result));
+      }
+
+      return result;
+    }
+
+    private void unload() {
+      this.children = null;
+      this.referenced = false;
+      this.index = -1;
+    }
+  }
+}
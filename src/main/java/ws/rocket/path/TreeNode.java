@@ -19,8 +19,11 @@
 package ws.rocket.path;
 
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -35,6 +38,23 @@ import java.util.List;
  * <p>
  * This tree node can be constructed only once. In addition, <code>TreeNode</code> is serializable as long as its keys,
  * values and children are also serializable.
+ * <p>
+ * Since the node is immutable, it can also provide a digest of the subtree it roots (see {@link #getDigest()}). The
+ * digest is computed on first request and cached, so that comparing two (large) trees can skip the subtrees which have
+ * equal digests. Since the digest is derived from hash codes, different subtrees may also have equal digests (rarely).
+ * <p>
+ * A tree node may also be created with child-nodes that are loaded lazily, when they are requested for the first time
+ * (see {@link #createLazy(Object, Object, ChildNodesLoader)}). The loader is called at most once (unless it fails),
+ * even when several threads request the child-nodes at the same time. Lazily expanded nodes are serialized with their
+ * child-nodes loaded.
+ * <p>
+ * When expanded subtrees are large but rarely visited, the node may also be created so that the loaded child-nodes are
+ * softly referenced (see {@link #createEvictable(Object, Object, ChildNodesLoader)}). Then the garbage collector may
+ * drop the child-nodes under memory pressure, and they will be loaded again when requested.
+ * <p>
+ * When the keys of the child-nodes are ordered (e.g. dates or versions), the node may be created with the child-nodes
+ * sorted by key (see {@link #createSorted(Object, Object, Comparator, TreeNode...)}), so that the child-nodes could be
+ * looked up by key, and in ranges of keys, using binary search.
  *
  * @see ws.rocket.path.annotation.KeyBuilder
  * @author Martti Tamm
@@ -47,7 +67,15 @@ public final class TreeNode implements Serializable {
 
   private Object value;
 
-  private List<TreeNode> children;
+  private volatile List<TreeNode> children;
+
+  private transient volatile ChildNodesLoader loader;
+
+  private Comparator<Object> childOrder;
+
+  private transient volatile long digest;
+
+  private transient volatile int size;
 
   /**
    * Creates a simple tree node with out a key, value and children.
@@ -66,11 +94,89 @@ public final class TreeNode implements Serializable {
   public TreeNode(Object key, Object value, TreeNode... children) {
     this.key = key;
     this.value = value;
-    if (children == null || children.length == 0) {
-      this.children = Collections.emptyList();
-    } else {
-      this.children = Collections.unmodifiableList(Arrays.asList(children));
+    this.children = toList(children);
+  }
+
+  /**
+   * Creates a tree node with given key and value, and with child-nodes provided by the loader (or by the holder).
+   *
+   * @param key A key for the tree node.
+   * @param value A value for the tree node.
+   * @param loader The loader of the child-nodes (required).
+   */
+  TreeNode(Object key, Object value, ChildNodesLoader loader) {
+    this.key = key;
+    this.value = value;
+    this.loader = loader;
+  }
+
+  /**
+   * Creates a tree node with given key and value, and with child-nodes sorted by their keys. The child-nodes can then
+   * be looked up by key, and in ranges of keys, using binary search (see {@link #getSortedChildren()}). Child-nodes
+   * with equal keys keep their order. Note that the comparator is serialized with the node.
+   *
+   * @param key A key for the tree node.
+   * @param value A value for the tree node.
+   * @param keyOrder The comparator of the keys of the child-nodes (<code>null</code> for the natural ordering of
+   *        <code>Comparable</code> keys, where <code>null</code> keys come first).
+   * @param children Child-nodes for the tree node (in any order).
+   * @return The created tree node.
+   */
+  @SuppressWarnings("unchecked")
+  public static TreeNode createSorted(Object key, Object value, Comparator<?> keyOrder, TreeNode... children) {
+    final Comparator<Object> order = keyOrder != null ? (Comparator<Object>) keyOrder : new NaturalOrder();
+    TreeNode[] sorted = children != null ? children.clone() : null;
+
+    if (sorted != null) {
+      Arrays.sort(sorted, new Comparator<TreeNode>() {
+
+        @Override
+        public int compare(TreeNode node1, TreeNode node2) {
+          return order.compare(node1.getKey(), node2.getKey());
+        }
+      });
+    }
+
+    TreeNode result = new TreeNode(key, value, sorted);
+    result.childOrder = order;
+    return result;
+  }
+
+  /**
+   * Creates a tree node with given key and value, and with child-nodes that will be loaded when they are requested for
+   * the first time.
+   *
+   * @param key A key for the tree node.
+   * @param value A value for the tree node.
+   * @param loader The loader of the child-nodes (required).
+   * @return The created tree node.
+   */
+  public static TreeNode createLazy(Object key, Object value, ChildNodesLoader loader) {
+    if (loader == null) {
+      throw new NullPointerException("Child-nodes loader must not be null.");
+    }
+    return new TreeNode(key, value, loader);
+  }
+
+  /**
+   * Creates a tree node with given key and value, and with child-nodes that will be loaded when they are requested, and
+   * which may be dropped by the garbage collector (when they are not referenced elsewhere) under memory pressure. When
+   * the child-nodes are requested after they have been dropped, they will be loaded again. Therefore, the loader should
+   * always provide equal child-nodes.
+   * <p>
+   * The loader is called at most once at a time, and only when the child-nodes are not currently loaded. Note that the
+   * callers should keep the returned list of child-nodes (rather than requesting it repeatedly), while they need it.
+   *
+   * @param key A key for the tree node.
+   * @param value A value for the tree node.
+   * @param loader The loader of the child-nodes (required).
+   * @return The created tree node.
+   */
+  public static TreeNode createEvictable(Object key, Object value, ChildNodesLoader loader) {
+    if (loader == null) {
+      throw new NullPointerException("Child-nodes loader must not be null.");
     }
+    return new TreeNode(key, value, new EvictableChildNodes(loader));
   }
 
   /**
@@ -94,16 +200,299 @@ public final class TreeNode implements Serializable {
   /**
    * Provides an immutable list of child nodes of this tree node. The returned value must not be used for
    * synchronization.
+   * <p>
+   * When this node was created with a child-nodes loader, and the child-nodes have not been loaded yet, they will be
+   * loaded by this method.
    *
    * @return The child-nodes of this tree node.
    */
   public List<TreeNode> getChildren() {
-    return this.children;
+    List<TreeNode> result = this.children;
+    if (result == null) {
+      ChildNodesLoader current = this.loader;
+      if (current instanceof ChildNodesHolder) {
+        result = ((ChildNodesHolder) current).getChildren();
+      } else {
+        result = loadChildren();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reports whether the child-nodes of this node are currently loaded. This is always true for nodes that were not
+   * created with a child-nodes loader.
+   *
+   * @return A Boolean that is <code>true</code> when the child-nodes have been loaded.
+   */
+  public boolean isLoaded() {
+    if (this.children != null) {
+      return true;
+    }
+    ChildNodesLoader current = this.loader;
+    return current instanceof ChildNodesHolder && ((ChildNodesHolder) current).isLoaded();
+  }
+
+  /**
+   * Reports whether the child-nodes of this node are sorted by their keys (see
+   * {@link #createSorted(Object, Object, Comparator, TreeNode...)}).
+   *
+   * @return A Boolean that is <code>true</code> when the child-nodes are sorted.
+   */
+  public boolean isSorted() {
+    return this.childOrder != null;
+  }
+
+  /**
+   * Provides a navigable view of the child-nodes of this node, when they are sorted by their keys.
+   *
+   * @return The view of the sorted child-nodes.
+   * @throws IllegalStateException When the child-nodes are not sorted (see {@link #isSorted()}).
+   */
+  public SortedChildNodes getSortedChildren() {
+    if (this.childOrder == null) {
+      throw new IllegalStateException("The child-nodes of this node are not sorted: " + this);
+    }
+    return new SortedChildNodes(this.children, this.childOrder);
+  }
+
+  /**
+   * Provides a digest of the subtree where this node is the root. The digest is derived from the keys and values (their
+   * class names and hash codes) of the nodes, and from the order of child-nodes. Therefore, two subtrees with equal
+   * structure, keys and values also have equal digests. The opposite is true only with high probability, which also
+   * depends on the quality of the <code>hashCode()</code> methods of the keys and values.
+   * <p>
+   * The digest is computed when first requested, and cached in every node of the subtree. Computation does not use
+   * recursion, so it also works for very deep trees. Note that the computation loads the child-nodes of all lazily
+   * expanded nodes in the subtree.
+   *
+   * @return The digest of this subtree (never zero).
+   */
+  public long getDigest() {
+    long result = this.digest;
+    if (result == 0) {
+      computeSubtrees(this, true);
+      result = this.digest;
+    }
+    return result;
+  }
+
+  /**
+   * Provides the number of nodes in the subtree where this node is the root (including this node). The size is computed
+   * when first requested (without computing the digests), or together with the digest (see {@link #getDigest()}), and
+   * cached in every node of the subtree. Note that the computation loads the child-nodes of all lazily expanded nodes
+   * in the subtree.
+   *
+   * @return The number of nodes in this subtree (at least one).
+   */
+  public int getSubtreeSize() {
+    int result = this.size;
+    if (result == 0) {
+      computeSubtrees(this, false);
+      result = this.size;
+    }
+    return result;
+  }
+
+  /**
+   * Reports whether the number of nodes in the subtree of this node is already known, so that
+   * {@link #getSubtreeSize()} would not need to traverse the subtree.
+   *
+   * @return A Boolean that is <code>true</code> when the subtree size is cached.
+   */
+  public boolean isSubtreeSizeKnown() {
+    return this.size != 0;
   }
 
   @Override
   public String toString() {
     return new StringBuilder("TreeNode@").append(this.key).append('=').append(this.value).append(" (child nodes: ")
-        .append(this.children.size()).append(')').toString();
+        .append(isLoaded() ? String.valueOf(getChildren().size()) : "not loaded").append(')').toString();
+  }
+
+  /**
+   * Makes sure that a lazily expanded node is serialized with its child-nodes.
+   *
+   * @return This node (with child-nodes loaded), or a node with the loaded child-nodes when this node is evictable.
+   */
+  private Object writeReplace() {
+    List<TreeNode> nodes = getChildren();
+    return this.children != null ? this : new TreeNode(this.key, this.value, nodes.toArray(new TreeNode[nodes.size()]));
+  }
+
+  private synchronized List<TreeNode> loadChildren() {
+    List<TreeNode> result = this.children;
+
+    if (result == null) {
+      result = toList(this.loader.loadChildNodes());
+      this.children = result;
+      this.loader = null;
+    }
+
+    return result;
+  }
+
+  /**
+   * Provides the loader of the child-nodes of this node.
+   *
+   * @return The loader, or <code>null</code> when the child-nodes are kept by this node (and loaded).
+   */
+  ChildNodesLoader getLoader() {
+    return this.loader;
+  }
+
+  static List<TreeNode> toList(TreeNode[] nodes) {
+    if (nodes == null || nodes.length == 0) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(Arrays.asList(nodes));
+  }
+
+  /**
+   * Computes the subtree sizes (and optionally the digests) of the nodes in the subtree, skipping the subtrees where
+   * they are already known. The sizes are always computed together with the digests.
+   */
+  private static void computeSubtrees(TreeNode root, boolean digests) {
+    List<Frame> stack = new ArrayList<Frame>();
+    stack.add(new Frame(root));
+
+    while (!stack.isEmpty()) {
+      Frame frame = stack.get(stack.size() - 1);
+      List<TreeNode> nodeChildren = frame.children;
+
+      while (frame.childIndex < nodeChildren.size() && nodeChildren.get(frame.childIndex).isComputed(digests)) {
+        frame.childIndex++;
+      }
+
+      if (frame.childIndex < nodeChildren.size()) {
+        stack.add(new Frame(nodeChildren.get(frame.childIndex)));
+      } else {
+        // The size is set first, so that a node with a digest would always have its size set, too:
+        frame.node.size = calculateSize(nodeChildren);
+        if (digests) {
+          frame.node.digest = frame.node.calculateDigest(nodeChildren);
+        }
+        stack.remove(stack.size() - 1);
+      }
+    }
+  }
+
+  private boolean isComputed(boolean withDigest) {
+    return withDigest ? this.digest != 0 : this.size != 0;
+  }
+
+  private static int calculateSize(List<TreeNode> nodeChildren) {
+    long result = 1;
+
+    for (TreeNode child : nodeChildren) {
+      result += child.size;
+    }
+
+    return (int) Math.min(result, Integer.MAX_VALUE);
+  }
+
+  private long calculateDigest(List<TreeNode> nodeChildren) {
+    long result = mixDigest(0x9E3779B97F4A7C15L, objectDigest(this.key));
+    result = mixDigest(result, objectDigest(this.value));
+
+    for (TreeNode child : nodeChildren) {
+      result = mixDigest(result, child.digest);
+    }
+
+    result = mixDigest(result, nodeChildren.size());
+
+    // Final avalanche (from MurmurHash3), so that similar nodes would not end up with similar digests:
+    result ^= result >>> 33;
+    result *= 0xFF51AFD7ED558CCDL;
+    result ^= result >>> 33;
+    result *= 0xC4CEB9FE1A85EC53L;
+    result ^= result >>> 33;
+
+    return result != 0 ? result : 1;
+  }
+
+  private static long objectDigest(Object obj) {
+    if (obj == null) {
+      return 0;
+    }
+    return ((long) obj.getClass().getName().hashCode() << 32) | (obj.hashCode() & 0xFFFFFFFFL);
+  }
+
+  private static long mixDigest(long digest, long value) {
+    return Long.rotateLeft(digest ^ value * 0x87C37B91114253D5L, 31) * 0x4CF5AD432745937FL;
+  }
+
+  /**
+   * A node waiting for the sizes (and digests) of its child-nodes. The child-nodes are requested once and kept, since
+   * the list may be reloaded (as new nodes) in the meantime for nodes with evictable child-nodes.
+   */
+  private static final class Frame {
+
+    private final TreeNode node;
+
+    private final List<TreeNode> children;
+
+    private int childIndex;
+
+    Frame(TreeNode node) {
+      this.node = node;
+      this.children = node.getChildren();
+    }
+  }
+
+  /**
+   * The natural ordering of <code>Comparable</code> keys, where <code>null</code> keys come first.
+   */
+  private static final class NaturalOrder implements Comparator<Object>, Serializable {
+
+    private static final long serialVersionUID = 4312409581226532411L;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int compare(Object key1, Object key2) {
+      if (key1 == null || key2 == null) {
+        return key1 == null ? (key2 == null ? 0 : -1) : 1;
+      }
+      return ((Comparable<Object>) key1).compareTo(key2);
+    }
+  }
+
+  /**
+   * The loader of evictable child-nodes, which also keeps the soft reference to the loaded child-nodes.
+   */
+  private static final class EvictableChildNodes extends ChildNodesHolder {
+
+    private final ChildNodesLoader loader;
+
+    private volatile SoftReference<List<TreeNode>> children;
+
+    EvictableChildNodes(ChildNodesLoader loader) {
+      this.loader = loader;
+    }
+
+    @Override
+    boolean isLoaded() {
+      SoftReference<List<TreeNode>> ref = this.children;
+      return ref != null && ref.get() != null;
+    }
+
+    @Override
+    List<TreeNode> getChildren() {
+      SoftReference<List<TreeNode>> ref = this.children;
+      List<TreeNode> result = ref != null ? ref.get() : null;
+      return result != null ? result : load();
+    }
+
+    private synchronized List<TreeNode> load() {
+      SoftReference<List<TreeNode>> ref = this.children;
+      List<TreeNode> result = ref != null ? ref.get() : null;
+
+      if (result == null) {
+        result = toList(this.loader.loadChildNodes());
+        this.children = new SoftReference<List<TreeNode>>(result);
+      }
+
+      return result;
+    }
   }
 }
@@ -242,6 +242,19 @@ public final class TreePath implements Iterator<String>, Serializable {
     this.extension = ext;
   }
 
+  /**
+   * Creates a new tree path from already resolved path segments. The path won't have an extension. This constructor is
+   * useful when a path is composed while traversing a tree (e.g. from node keys) rather than parsed from a string.
+   *
+   * @param segments An array of path segments. Must not be <code>null</code> and must not contain <code>null</code>
+   *        values. The array will be copied.
+   * @param pathSeparator The path separator to use for printing out the path. May be <code>null</code> only when there
+   *        is at most one path segment.
+   */
+  public TreePath(String[] segments, String pathSeparator) {
+    this(segments != null ? segments.clone() : null, null, pathSeparator, null);
+  }
+
   /**
    * This is a private constructor used internally when initializing a new tree path and the state variables have been
    * explicitly resolved. Therefore, this constructor allows them to be explicitly set, however, it still validates the
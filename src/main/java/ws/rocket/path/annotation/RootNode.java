@@ -43,6 +43,11 @@ import javax.inject.Qualifier;
  * <p>
  * This annotation refers to a value bean of the root node to be created. When the resolved bean is also annotated with
  * {@link ws.rocket.path.annotation.TreeNode} annotation, it will be used to create subtrees of the root node.
+ * <p>
+ * By default, a new tree is constructed for every injection point. When the same tree is injected into many beans, the
+ * {@link #cached()} attribute can be used for constructing the tree only once and sharing it between injection points
+ * (see {@link RootNodeCache}). Only the cached trees can be constructed in advance, at deployment time (see
+ * {@link RootNodeWarmUp}).
  * 
  * @author Martti Tamm
  */
@@ -78,4 +83,18 @@ public @interface RootNode {
   @Nonbinding
   Class<?> type() default Object.class;
 
+  /**
+   * Specifies whether the constructed tree may be shared with other injection points referring to the same root node
+   * value bean (by the same name or type). When <code>true</code>, the tree is constructed only once and stored in
+   * {@link RootNodeCache}, where it remains until invalidated. Defaults to <code>false</code>, which means that a new
+   * tree is constructed for every injection point.
+   * <p>
+   * Only the cached trees are warmed up by {@link RootNodeWarmUp}: a tree that is not cached is always constructed when
+   * it is injected.
+   * 
+   * @return A Boolean that is <code>true</code> when the tree may be taken from the cache.
+   */
+  @Nonbinding
+  boolean cached() default false;
+
 }
@@ -0,0 +1,220 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Application-wide cache of trees constructed by {@link RootNodeProducer} for injection points where
+ * <code>&#064;RootNode(cached = true)</code> is used. The trees are cached by the reference to the root node value bean
+ * (by bean type or by bean name, whichever the injection point uses), so each distinct tree is constructed only once
+ * and shared between the injection points.
+ * <p>
+ * The cache is also a CDI bean, which can be injected for invalidating the cached trees. Invalidation does not change
+ * the trees already injected (as trees are immutable), although it destroys the dependent beans of the removed tree
+ * (see {@link RootNodeContexts}). The next injection point referring to the same root node value bean will get a newly
+ * constructed tree:
+ *
+ * <pre>
+ * &#064;Inject
+ * private RootNodeCache cache;
+ *
+ * public void onConfigurationChange() {
+ *   this.cache.invalidate(Configuration.class);
+ * }
+ * </pre>
+ * <p>
+ * When several threads request the same tree at the same time, only one of them constructs it while the others wait
+ * for the result. When tree construction fails, nothing is cached. When a tree is invalidated while it's being
+ * constructed, the waiting threads still get the tree, and its dependent beans are destroyed once it's constructed.
+ *
+ * @author Martti Tamm
+ */
+@Singleton
+public final class RootNodeCache {
+
+  private final ConcurrentMap<Object, TreeTask> trees = new ConcurrentHashMap<Object, TreeTask>();
+
+  @Inject
+  private RootNodeContexts contexts;
+
+  /**
+   * Reports whether a tree, where root node value bean is referred by given name, is currently cached.
+   *
+   * @param beanName The name of the root node value bean.
+   * @return A Boolean that is <code>true</code> when the tree is cached.
+   */
+  public boolean isCached(String beanName) {
+    return this.trees.containsKey(beanName);
+  }
+
+  /**
+   * Reports whether a tree, where root node value bean is referred by given type, is currently cached.
+   *
+   * @param beanType The type of the root node value bean.
+   * @return A Boolean that is <code>true</code> when the tree is cached.
+   */
+  public boolean isCached(Class<?> beanType) {
+    return this.trees.containsKey(beanType);
+  }
+
+  /**
+   * Removes the tree, where root node value bean is referred by given name, from the cache.
+   *
+   * @param beanName The name of the root node value bean.
+   */
+  public void invalidate(String beanName) {
+    release(this.trees.remove(beanName));
+  }
+
+  /**
+   * Removes the tree, where root node value bean is referred by given type, from the cache.
+   *
+   * @param beanType The type of the root node value bean.
+   */
+  public void invalidate(Class<?> beanType) {
+    release(this.trees.remove(beanType));
+  }
+
+  /**
+   * Removes all trees from the cache.
+   */
+  public void invalidateAll() {
+    for (Object rootReference : this.trees.keySet()) {
+      release(this.trees.remove(rootReference));
+    }
+  }
+
+  /**
+   * Reports whether given tree is currently cached.
+   *
+   * @param tree The root node of a tree.
+   * @return A Boolean that is <code>true</code> when the tree is cached.
+   */
+  boolean contains(TreeNode tree) {
+    for (TreeTask task : this.trees.values()) {
+      if (getCompleted(task) == tree) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Provides the cached tree for the root node value bean reference (bean name or type). When the tree is not cached,
+   * it will be constructed using the factory and stored in the cache.
+   *
+   * @param rootReference The name (<code>String</code>) or type (<code>Class</code>) of the root node value bean.
+   * @param factory The factory for constructing the tree when it's not cached.
+   * @return The cached or constructed tree.
+   */
+  TreeNode getTree(Object rootReference, Callable<TreeNode> factory) {
+    TreeTask task = this.trees.get(rootReference);
+
+    if (task == null) {
+      TreeTask newTask = new TreeTask(factory);
+      task = this.trees.putIfAbsent(rootReference, newTask);
+
+      if (task == null) {
+        task = newTask;
+        task.run();
+      }
+    }
+
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while waiting for the tree of " + rootReference, e);
+    } catch (ExecutionException e) {
+      this.trees.remove(rootReference, task);
+
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException("Failed to construct the tree of " + rootReference, e.getCause());
+    }
+  }
+
+  private static void release(TreeTask task) {
+    if (task != null) {
+      task.invalidate();
+    }
+  }
+
+  private static TreeNode getCompleted(FutureTask<TreeNode> task) {
+    if (task == null || !task.isDone()) {
+      return null;
+    }
+
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (ExecutionException e) {
+      return null;
+    }
+  }
+
+  /**
+   * The construction of a cached tree. When the tree is removed from the cache while it's still being constructed, its
+   * context is released once the construction completes.
+   */
+  private final class TreeTask extends FutureTask<TreeNode> {
+
+    private boolean invalidated;
+
+    TreeTask(Callable<TreeNode> factory) {
+      super(factory);
+    }
+
+    synchronized void invalidate() {
+      this.invalidated = true;
+
+      if (isDone()) {
+        releaseTree();
+      }
+    }
+
+    @Override
+    protected synchronized void done() {
+      if (this.invalidated) {
+        releaseTree();
+      }
+    }
+
+    private void releaseTree() {
+      TreeNode tree = getCompleted(this);
+
+      if (tree != null) {
+        RootNodeCache.this.contexts.release(tree);
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.spi.CreationalContext;
+import javax.inject.Singleton;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Keeps track of the creational contexts of the trees constructed by {@link RootNodeProducer}, so that the dependent
+ * beans of a tree (the keys and values of tree nodes, and their dependencies) can be destroyed once the tree is no
+ * longer used.
+ * <p>
+ * The contexts of a tree are released:
+ * <ul>
+ * <li>when the bean, where the tree was injected, is destroyed (the producer has a disposer method for that);
+ * <li>when a cached tree is removed from {@link RootNodeCache};
+ * <li>when {@link #release(TreeNode)} is called for the tree (e.g. for trees obtained by programmatic lookup);
+ * <li>when the container is shut down.
+ * </ul>
+ * <p>
+ * A tree is tracked by its root node instance. The registry does not prevent the tree from being garbage collected:
+ * when a tree is not referenced anymore, its context is forgotten without being released.
+ *
+ * @author Martti Tamm
+ */
+@Singleton
+public final class RootNodeContexts {
+
+  private final Map<TreeNode, CreationalContext<?>> contexts = new WeakHashMap<TreeNode, CreationalContext<?>>();
+
+  /**
+   * Registers the creational context of the dependent beans of a constructed tree.
+   *
+   * @param tree The root node of the tree.
+   * @param context The context used for obtaining the beans of the tree.
+   */
+  void register(TreeNode tree, CreationalContext<?> context) {
+    synchronized (this.contexts) {
+      this.contexts.put(tree, context);
+    }
+  }
+
+  /**
+   * Reports whether the creational context of given tree is being tracked (has not been released yet).
+   *
+   * @param tree The root node of a tree.
+   * @return A Boolean that is <code>true</code> when the context of the tree is tracked.
+   */
+  public boolean isTracked(TreeNode tree) {
+    synchronized (this.contexts) {
+      return this.contexts.containsKey(tree);
+    }
+  }
+
+  /**
+   * Releases the creational context of given tree, which destroys the dependent beans of the tree. The tree itself
+   * remains usable, although its dependent values have been destroyed. However, the lazy nodes of the tree, which have
+   * not been expanded yet, fail with <code>IllegalStateException</code> when expanded. Nothing is done when the tree is
+   * not tracked (e.g. it has been released already).
+   *
+   * @param tree The root node of a tree constructed by {@link RootNodeProducer}.
+   * @return A Boolean that is <code>true</code> when the context of the tree was released.
+   */
+  public boolean release(TreeNode tree) {
+    CreationalContext<?> context;
+
+    synchronized (this.contexts) {
+      context = this.contexts.remove(tree);
+    }
+
+    if (context != null) {
+      releaseContext(context);
+    }
+
+    return context != null;
+  }
+
+  /**
+   * Releases the creational contexts of all tracked trees. This is done automatically when the container is shut down.
+   */
+  @PreDestroy
+  public void releaseAll() {
+    List<CreationalContext<?>> released;
+
+    synchronized (this.contexts) {
+      released = new ArrayList<CreationalContext<?>>(this.contexts.values());
+      this.contexts.clear();
+    }
+
+    for (CreationalContext<?> context : released) {
+      releaseContext(context);
+    }
+  }
+
+  /**
+   * Releases a creational context while holding its lock, which is also held by {@link RootNodeProducer} while it
+   * obtains the beans for the lazy nodes of a tree. Therefore, the producer either obtains a bean before the release,
+   * or finds the tree already released.
+   */
+  private static void releaseContext(CreationalContext<?> context) {
+    synchronized (context) {
+      context.release();
+    }
+  }
+}
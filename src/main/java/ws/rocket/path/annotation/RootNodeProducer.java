@@ -20,9 +20,10 @@ package ws.rocket.path.annotation;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
-import java.util.Set;
+import java.util.concurrent.Callable;
 
 import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.Disposes;
 import javax.enterprise.inject.Produces;
 import javax.enterprise.inject.spi.AnnotatedType;
 import javax.enterprise.inject.spi.Bean;
@@ -31,6 +32,7 @@ import javax.enterprise.inject.spi.InjectionPoint;
 import javax.enterprise.inject.spi.InjectionTarget;
 import javax.inject.Inject;
 
+import ws.rocket.path.ChildNodesLoader;
 import ws.rocket.path.TreeNode;
 import ws.rocket.path.builder.TreeNodeBuilder;
 import ws.rocket.path.builder.TreeNodeBuilderAware;
@@ -80,6 +82,21 @@ import ws.rocket.path.builder.TreeNodeBuilderAware;
  * As can been seen from the algorithm, the tree is created starting from the leaves of the nodes, although the meta
  * information is read starting from the root of the tree. In addition, thanks to CDI, all associated node key and value
  * objects get their annotated dependencies injected.
+ * <p>
+ * The annotations and bean references are resolved only once per bean (see {@link TreeNodeGraph}), usually already at
+ * deployment time by {@link TreeNodeExtension}. Therefore, constructing a tree mostly consists of obtaining the bean
+ * instances. When a value bean class has a {@link TreeNodeFactory} generated at compile time, the factory is used for
+ * creating the node of the bean.
+ * <p>
+ * When the injection point uses <code>&#064;RootNode(cached = true)</code>, the tree is taken from
+ * {@link RootNodeCache} (and constructed only when it's not cached yet).
+ * <p>
+ * When a value bean class uses <code>&#064;TreeNode(lazy = true)</code>, the child-nodes of its node are constructed
+ * (and their beans obtained) only when they are requested for the first time. The child-nodes must be requested before
+ * the tree is disposed, as the beans of a disposed tree are not obtained anymore.
+ * <p>
+ * The bean instances of a tree are obtained using a creational context per tree, which is released (destroying the
+ * dependent beans of the tree) when the tree is disposed (see {@link RootNodeContexts}).
  *
  * @author Martti Tamm
  */
@@ -88,6 +105,15 @@ public final class RootNodeProducer {
   @Inject
   private BeanManager manager;
 
+  @Inject
+  private RootNodeCache cache;
+
+  @Inject
+  private TreeNodeGraph graph;
+
+  @Inject
+  private RootNodeContexts contexts;
+
   /**
    * Produces a tree where root {@link TreeNode} has the value object with the same name and/or type as provided in the
    * {@link RootNode} annotation (or class field name, if injection point is a class field).
@@ -101,146 +127,240 @@ public final class RootNodeProducer {
   @Produces
   @RootNode
   public TreeNode createTree(InjectionPoint injectionPoint) {
-    RootNode rootAnnotation = null;
+    RootNode rootAnnotation = getRootAnnotation(injectionPoint);
+    Object rootReference = getRootReference(rootAnnotation, injectionPoint);
+
+    if (rootReference == null) {
+      throw new RuntimeException("No reference to tree node value bean: " + injectionPoint);
+    }
+
+    return createTree(rootReference, rootAnnotation.cached());
+  }
+
+  /**
+   * Produces a tree where root {@link TreeNode} has the value object referred by given bean name or type.
+   *
+   * @param rootReference The name (<code>String</code>) or type (<code>Class</code>) of the root node value bean.
+   * @param cached Whether the tree is to be taken from (or stored in) {@link RootNodeCache}.
+   * @return The created or cached tree.
+   */
+  TreeNode createTree(final Object rootReference, boolean cached) {
+    if (!cached) {
+      return findTreeNode(rootReference);
+    }
+
+    return this.cache.getTree(rootReference, new Callable<TreeNode>() {
+
+      @Override
+      public TreeNode call() {
+        return findTreeNode(rootReference);
+      }
+    });
+  }
 
+  /**
+   * Provides the <code>&#064;RootNode</code> qualifier of the injection point.
+   *
+   * @param injectionPoint The point where a tree is to be injected.
+   * @return The qualifier, or <code>null</code> when the injection point does not have it.
+   */
+  static RootNode getRootAnnotation(InjectionPoint injectionPoint) {
     for (Annotation annotation : injectionPoint.getQualifiers()) {
       if (annotation instanceof RootNode) {
-        rootAnnotation = (RootNode) annotation;
+        return (RootNode) annotation;
       }
     }
+    return null;
+  }
+
+  /**
+   * Resolves the reference to the root node value bean of the injection point: the bean type or name from the
+   * <code>&#064;RootNode</code> annotation, or the name of the field when the annotation does not refer to a bean.
+   *
+   * @param rootAnnotation The qualifier of the injection point.
+   * @param injectionPoint The point where a tree is to be injected.
+   * @return The bean type (<code>Class</code>) or name (<code>String</code>), or <code>null</code> when the injection
+   *         point does not refer to a bean.
+   */
+  static Object getRootReference(RootNode rootAnnotation, InjectionPoint injectionPoint) {
+    Object rootReference = null;
 
     if (rootAnnotation.type() != null && rootAnnotation.type() != Object.class) {
-      return findTreeNode(rootAnnotation.type());
+      rootReference = rootAnnotation.type();
     } else if (rootAnnotation.value() != null && rootAnnotation.value().trim().length() > 0) {
-      return findTreeNode(rootAnnotation.value());
+      rootReference = rootAnnotation.value();
     } else if (injectionPoint.getMember() instanceof Field) {
-      return findTreeNode(injectionPoint.getMember().getName());
-    } else {
-      throw new RuntimeException("No reference to tree node value bean: " + injectionPoint);
+      rootReference = injectionPoint.getMember().getName();
     }
+
+    return rootReference;
   }
 
-  private TreeNode findTreeNode(String beanName) {
-    Set<Bean<?>> beans = this.manager.getBeans(beanName);
-    if (beans.isEmpty()) {
-      throw new RuntimeException("Could not find TreeNode value by name '" + beanName + "'.");
-    } else if (beans.size() > 1) {
-      throw new RuntimeException("Currently only one TreeNode value is expected. Name: '" + beanName + ", count: "
-          + beans.size() + "'.");
+  /**
+   * Releases the dependent beans of a produced tree (see {@link RootNodeContexts}) when the bean, where the tree was
+   * injected, is destroyed. Trees that are currently cached are released only when they are removed from the cache.
+   *
+   * @param tree The tree being disposed.
+   */
+  public void disposeTree(@Disposes @RootNode TreeNode tree) {
+    if (!this.cache.contains(tree)) {
+      this.contexts.release(tree);
     }
-
-    return createTreeNode(beans.iterator().next());
   }
 
-  private TreeNode findTreeNode(Class<?> beanType) {
-    Set<Bean<?>> beans = this.manager.getBeans(beanType);
-    if (beans.isEmpty()) {
-      throw new RuntimeException("Could not find TreeNode value by type: " + beanType);
-    } else if (beans.size() > 1) {
-      throw new RuntimeException("Currently only one TreeNode value is expected. Type: " + beanType + ", count: "
-          + beans.size() + "'.");
+  private TreeNode findTreeNode(Object rootReference) {
+    BeanContext context = new BeanContext();
+    TreeNode tree;
+
+    try {
+      tree = context.createTree(rootReference);
+    } catch (RuntimeException e) {
+      context.creationalContext.release();
+      throw e;
     }
 
-    return createTreeNode(beans.iterator().next());
+    context.tree = tree;
+    this.contexts.register(tree, context.creationalContext);
+    return tree;
   }
 
-  private TreeNode createTreeNode(Bean<?> bean) {
-    Object value = getBeanInstance(bean);
+  /**
+   * The context of constructing a tree: obtains the bean instances using the same creational context, which is
+   * released when the tree is disposed. This is also the context for generated tree node factories, which resolves the
+   * references through the bean graph.
+   * <p>
+   * The lazy nodes of the tree keep using this context after the tree has been constructed. Once the tree has been
+   * released, the context refuses to obtain beans (so that they would not end up in the released creational context,
+   * where nothing would destroy them).
+   */
+  private final class BeanContext implements TreeNodeContext {
 
-    ws.rocket.path.annotation.TreeNode meta = bean.getBeanClass().getAnnotation(
-        ws.rocket.path.annotation.TreeNode.class);
+    private final CreationalContext<?> creationalContext = RootNodeProducer.this.manager.createCreationalContext(null);
 
-    TreeNode result;
+    private volatile TreeNode tree;
 
-    if (value instanceof TreeNodeBuilderAware) {
-      result = new TreeNodeBuilder(resolveKey(bean, value, meta), value).build();
-    } else {
-      result = new TreeNode(resolveKey(bean, value, meta), value, resolveChildren(bean, meta));
+    @Override
+    public Object getValue(Class<?> type) {
+      return getBeanInstance(getVertex(type).getBean());
     }
 
-    return result;
-  }
+    @Override
+    public Object getValue(String name, Class<?> type) {
+      return getBeanInstance(getVertex(name).getBean());
+    }
 
-  private Object resolveKey(Bean<?> valueBean, Object value, ws.rocket.path.annotation.TreeNode meta) {
-    Object key = null;
+    @Override
+    public TreeNode createTree(Class<?> type) {
+      return createTree((Object) type);
+    }
 
-    if (value instanceof KeyBuilder) {
-      key = ((KeyBuilder) value).buildKey();
+    @Override
+    public TreeNode createTree(String name, Class<?> type) {
+      return createTree((Object) name);
+    }
 
+    @Override
+    public Object initKey(Object key) {
       if (key != null) {
         injectDependencies(key);
       }
+      return key;
+    }
 
-    } else if (meta != null) {
-      Set<Bean<?>> beans = null;
+    TreeNode createTree(Object reference) {
+      return createTreeNode(getVertex(reference));
+    }
 
-      if (meta.key().trim().length() > 0) {
-        key = meta.key();
+    private TreeNodeVertex getVertex(Object reference) {
+      return RootNodeProducer.this.graph.getVertex(RootNodeProducer.this.manager, reference);
+    }
 
-      } else if (meta.keyType() != Object.class) {
-        beans = this.manager.getBeans(meta.keyType());
+    private TreeNode createTreeNode(final TreeNodeVertex vertex) {
+      Object value = getBeanInstance(vertex.getBean());
 
-      } else if (meta.keyName().trim().length() > 0) {
-        beans = this.manager.getBeans(meta.keyName());
+      if (vertex.getFactory() != null) {
+        return vertex.getFactory().createTree(value, this);
       }
 
-      if (beans != null) {
-        if (beans.isEmpty()) {
-          throw new RuntimeException("Could not find TreeNode key for annotation " + meta + " at " + valueBean);
+      Object key = resolveKey(vertex, value);
+
+      TreeNode result;
 
-        } else if (beans.size() > 1) {
-          throw new RuntimeException("Found too many (" + beans.size() + ") TreeNode key candidates for annotation "
-              + meta + " at " + valueBean);
+      if (value instanceof TreeNodeBuilderAware) {
+        result = new TreeNodeBuilder(key, value).build();
+      } else if (vertex.isLazy() && vertex.getChildren() != null) {
+        result = TreeNode.createLazy(key, value, new ChildNodesLoader() {
 
-        } else {
-          key = getBeanInstance(beans.iterator().next());
-        }
+          @Override
+          public TreeNode[] loadChildNodes() {
+            return resolveChildren(vertex);
+          }
+        });
+      } else {
+        result = new TreeNode(key, value, resolveChildren(vertex));
       }
+
+      return result;
     }
 
-    return key;
-  }
+    private Object resolveKey(TreeNodeVertex vertex, Object value) {
+      Object key;
 
-  private TreeNode[] resolveChildren(Bean<?> valueBean, ws.rocket.path.annotation.TreeNode meta) {
+      if (value instanceof KeyBuilder) {
+        key = initKey(((KeyBuilder) value).buildKey());
+      } else if (vertex.getKeyBean() != null) {
+        key = getBeanInstance(vertex.getKeyBean());
+      } else {
+        key = vertex.getKey();
+      }
 
-    if (meta == null || meta.childNames().length == 0 && meta.childTypes().length == 0) {
-      return null;
-    } else if (meta.childNames().length > 0 && meta.childTypes().length > 0) {
-      throw new RuntimeException("Child-TreeNode values are identified with both names and types; expected only one "
-          + "to be provided (preferably types).");
+      return key;
     }
 
-    TreeNode[] childNodes;
+    private TreeNode[] resolveChildren(TreeNodeVertex vertex) {
+      TreeNodeVertex[] children = vertex.getChildren();
+
+      if (children == null) {
+        return null;
+      }
 
-    if (meta.childTypes().length > 0) {
-      childNodes = new TreeNode[meta.childTypes().length];
-      int i = 0;
+      TreeNode[] childNodes = new TreeNode[children.length];
 
-      for (Class<?> childType : meta.childTypes()) {
-        childNodes[i++] = findTreeNode(childType);
+      for (int i = 0; i < children.length; i++) {
+        childNodes[i] = createTreeNode(children[i]);
       }
-    } else {
-      childNodes = new TreeNode[meta.childNames().length];
-      int i = 0;
 
-      for (String childName : meta.childNames()) {
-        childNodes[i++] = findTreeNode(childName);
+      return childNodes;
+    }
+
+    private Object getBeanInstance(Bean<?> bean) {
+      synchronized (this.creationalContext) {
+        checkNotReleased();
+        return RootNodeProducer.this.manager.getReference(bean, bean.getBeanClass(), this.creationalContext);
       }
     }
 
-    return childNodes;
-  }
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private void injectDependencies(Object key) {
+      AnnotatedType type = RootNodeProducer.this.manager.createAnnotatedType(key.getClass());
+      InjectionTarget target = RootNodeProducer.this.manager.createInjectionTarget(type);
 
-  private Object getBeanInstance(Bean<?> bean) {
-    return this.manager.getReference(bean, bean.getBeanClass(), this.manager.createCreationalContext(bean));
-  }
+      synchronized (this.creationalContext) {
+        checkNotReleased();
+        target.inject(key, this.creationalContext);
+      }
+    }
+
+    /**
+     * Checks that the constructed tree has not been released. The caller holds the lock of the creational context.
+     */
+    private void checkNotReleased() {
+      TreeNode root = this.tree;
 
-  @SuppressWarnings({ "rawtypes", "unchecked" })
-  private void injectDependencies(Object key) {
-    AnnotatedType type = this.manager.createAnnotatedType(key.getClass());
-    InjectionTarget target = this.manager.createInjectionTarget(type);
-    CreationalContext creationalContext = this.manager.createCreationalContext(null);
-    target.inject(key, creationalContext);
-    creationalContext.release();
+      if (root != null && !RootNodeProducer.this.contexts.isTracked(root)) {
+        throw new IllegalStateException("The beans of the tree have been released, so the child-nodes of its lazy "
+            + "nodes cannot be constructed anymore (the root node: " + root + ").");
+      }
+    }
   }
 }
@@ -0,0 +1,214 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+/**
+ * Constructs the trees of all <code>&#064;RootNode(cached = true)</code> injection points in advance, so that the first
+ * injection would not have to wait for the tree to be constructed.
+ * <p>
+ * The injection points are collected by {@link TreeNodeExtension} at deployment time. Each distinct root node value
+ * bean reference (bean name or type) is constructed once, and the trees are constructed in parallel using a bounded
+ * thread pool. The trees are stored in {@link RootNodeCache}, where the injection points take them from.
+ * <p>
+ * The parallelism is per tree: the beans of a single tree are still obtained one at a time by the thread constructing
+ * the tree. They share the creational context of the tree (see {@link RootNodeContexts}), which is not meant for
+ * concurrent use. Therefore, warm-up shortens the total time when there are several cached trees, but not the time of
+ * constructing the largest tree.
+ * <p>
+ * Note that the injection points without caching are not warmed up, since they get a new tree for every injection
+ * anyway, so a tree constructed in advance could not be used. To avoid the construction cost on the first injection,
+ * use <code>&#064;RootNode(cached = true)</code>.
+ * <p>
+ * Warm-up is disabled by default. It is performed at deployment time when system property {@value #WARM_UP_PROPERTY}
+ * is <code>true</code>, in which case failures are reported as deployment problems. The number of threads is
+ * determined by system property {@value #THREADS_PROPERTY} (defaults to the number of available processors). In
+ * addition, this bean can be injected for warming up the trees at any other time (e.g. after invalidating the cache).
+ * <p>
+ * The construction time of each tree is logged (on <code>FINE</code> level) to the logger with the name of this class.
+ *
+ * @author Martti Tamm
+ */
+@Singleton
+public final class RootNodeWarmUp {
+
+  /**
+   * The name of the system property enabling the warm-up at deployment time.
+   */
+  public static final String WARM_UP_PROPERTY = "ws.rocket.path.warmUp";
+
+  /**
+   * The name of the system property for the number of threads used for warm-up.
+   */
+  public static final String THREADS_PROPERTY = "ws.rocket.path.warmUpThreads";
+
+  private static final Logger LOG = Logger.getLogger(RootNodeWarmUp.class.getName());
+
+  @Inject
+  private RootNodeProducer producer;
+
+  private volatile Set<Object> rootReferences = Collections.emptySet();
+
+  /**
+   * Sets the root node value bean references of the cached injection points to warm up.
+   *
+   * @param rootReferences The bean names and types.
+   */
+  void setRootReferences(Set<Object> rootReferences) {
+    this.rootReferences = Collections.unmodifiableSet(new LinkedHashSet<Object>(rootReferences));
+  }
+
+  /**
+   * Reports whether the warm-up at deployment time is enabled by system property {@value #WARM_UP_PROPERTY}.
+   *
+   * @return A Boolean that is <code>true</code> when the warm-up is enabled.
+   */
+  public static boolean isEnabled() {
+    return Boolean.getBoolean(WARM_UP_PROPERTY);
+  }
+
+  /**
+   * Constructs the trees of all <code>&#064;RootNode(cached = true)</code> injection points using the number of
+   * threads given by system property {@value #THREADS_PROPERTY}.
+   *
+   * @return The construction times of the trees (in nanoseconds) by the root node value bean reference.
+   * @see #warmUp(int)
+   */
+  public Map<Object, Long> warmUp() {
+    return warmUp(Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * Constructs the trees of all <code>&#064;RootNode(cached = true)</code> injection points in parallel, and stores
+   * them in {@link RootNodeCache}. The method returns when all the trees have been constructed.
+   * <p>
+   * When the construction of a tree fails, the others are still constructed, and the first failure is thrown at the
+   * end.
+   *
+   * @param threads The maximum number of threads to use.
+   * @return The construction times of the trees (in nanoseconds) by the root node value bean reference.
+   */
+  public Map<Object, Long> warmUp(int threads) {
+    Set<Object> references = this.rootReferences;
+    Map<Object, Long> result = new LinkedHashMap<Object, Long>();
+
+    if (references.isEmpty()) {
+      return result;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, references.size())),
+        new WarmUpThreadFactory());
+
+    try {
+      List<Callable<Long>> tasks = new ArrayList<Callable<Long>>(references.size());
+
+      for (Object reference : references) {
+        tasks.add(new WarmUpTask(reference));
+      }
+
+      RuntimeException failure = null;
+      int index = 0;
+
+      for (Future<Long> future : executor.invokeAll(tasks)) {
+        Object reference = ((WarmUpTask) tasks.get(index++)).reference;
+
+        try {
+          result.put(reference, future.get());
+        } catch (ExecutionException e) {
+          LOG.log(Level.WARNING, "Failed to construct the tree of " + reference, e.getCause());
+
+          if (failure == null) {
+            failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                : new RuntimeException("Failed to construct the tree of " + reference, e.getCause());
+          }
+        }
+      }
+
+      if (failure != null) {
+        throw failure;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted while warming up the trees", e);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    return result;
+  }
+
+  /**
+   * Constructs a cached tree and measures the time it takes.
+   */
+  private final class WarmUpTask implements Callable<Long> {
+
+    private final Object reference;
+
+    WarmUpTask(Object reference) {
+      this.reference = reference;
+    }
+
+    @Override
+    public Long call() {
+      long start = System.nanoTime();
+      RootNodeWarmUp.this.producer.createTree(this.reference, true);
+      long time = System.nanoTime() - start;
+
+      if (LOG.isLoggable(Level.FINE)) {
+        LOG.fine("Constructed the tree of " + this.reference + " in " + time / 1000000 + " ms");
+      }
+
+      return time;
+    }
+  }
+
+  /**
+   * Creates daemon threads for warm-up so that they would not prevent the JVM from exiting.
+   */
+  private static final class WarmUpThreadFactory implements ThreadFactory {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable task) {
+      Thread thread = new Thread(task, "rocket-path-warm-up-" + COUNTER.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
@@ -36,6 +36,10 @@ import javax.enterprise.util.Nonbinding;
  * For both node key and child node values it is possible to use either reference by bean name or reference by type.
  * When key attributes are omitted, the tree node key will be <code>null</code>. When children attributes are omitted,
  * the constructed tree node will not have any children.
+ * <p>
+ * With <code>lazy = true</code>, the child-nodes are constructed when they are requested for the first time (see
+ * {@link ws.rocket.path.TreeNode#createLazy(Object, Object, ws.rocket.path.ChildNodesLoader)}), which is useful for
+ * large trees where only some branches are used.
  * 
  * @see ws.rocket.path.TreeNode
  * @author Martti Tamm
@@ -89,4 +93,14 @@ public @interface TreeNode {
   @Nonbinding
   Class<?>[] childTypes() default {};
 
+  /**
+   * Specifies whether the child-nodes are constructed lazily: when they are requested for the first time, and not
+   * together with this node. This value is not used when the value object implements
+   * {@link ws.rocket.path.builder.TreeNodeBuilderAware}.
+   * 
+   * @return A Boolean that is <code>true</code> for constructing the child-nodes lazily.
+   */
+  @Nonbinding
+  boolean lazy() default false;
+
 }
@@ -0,0 +1,77 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * The runtime environment of {@link TreeNodeFactory}: provides the objects referred to by the
+ * <code>&#064;TreeNode</code> annotation. With CDI, the objects are beans obtained through the bean manager (see
+ * {@link RootNodeProducer}). Without CDI, the objects are created by {@link TreeNodeFactories}.
+ * <p>
+ * References by bean name also include the type of the bean when it could be resolved at compile time (from the
+ * {@link javax.inject.Named} annotation). The type is used when the context cannot resolve bean names.
+ *
+ * @author Martti Tamm
+ */
+public interface TreeNodeContext {
+
+  /**
+   * Provides a key object by its type.
+   *
+   * @param type The type of the key object.
+   * @return The key object.
+   */
+  Object getValue(Class<?> type);
+
+  /**
+   * Provides a key object by its (CDI bean) name.
+   *
+   * @param name The name of the key object.
+   * @param type The type of the key object, or <code>null</code> when it was not resolved at compile time.
+   * @return The key object.
+   */
+  Object getValue(String name, Class<?> type);
+
+  /**
+   * Creates a (sub)tree where the value of the root node is of given type.
+   *
+   * @param type The type of the value object.
+   * @return The created tree node.
+   */
+  TreeNode createTree(Class<?> type);
+
+  /**
+   * Creates a (sub)tree where the value of the root node is referred by (CDI bean) name.
+   *
+   * @param name The name of the value object.
+   * @param type The type of the value object, or <code>null</code> when it was not resolved at compile time.
+   * @return The created tree node.
+   */
+  TreeNode createTree(String name, Class<?> type);
+
+  /**
+   * Initializes a key object created by a {@link KeyBuilder} (e.g. by injecting its dependencies).
+   *
+   * @param key The key object (may be <code>null</code>).
+   * @return The key object to use.
+   */
+  Object initKey(Object key);
+
+}
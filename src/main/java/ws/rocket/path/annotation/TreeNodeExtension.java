@@ -0,0 +1,130 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.AfterDeploymentValidation;
+import javax.enterprise.inject.spi.AnnotatedType;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.Extension;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.enterprise.inject.spi.ProcessAnnotatedType;
+import javax.enterprise.inject.spi.ProcessBean;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * CDI portable extension that resolves the graph of <code>&#064;TreeNode</code> annotated beans at deployment time.
+ * <p>
+ * The extension collects the {@link ws.rocket.path.annotation.TreeNode} annotations of the discovered types, and the
+ * managed beans of these types. After the deployment has been validated, the extension resolves the key beans and the
+ * child-node beans of every collected bean (see {@link TreeNodeGraph}). Missing or ambiguous bean references and cyclic
+ * child-node references are reported as deployment problems, so they won't surface when a tree is constructed for the
+ * first time.
+ * <p>
+ * The extension also collects the <code>&#064;RootNode(cached = true)</code> injection points of all beans for
+ * {@link RootNodeWarmUp}, and starts the warm-up after the graph has been resolved, when it's enabled.
+ * <p>
+ * Once the graph has been resolved, {@link RootNodeProducer} constructs trees by walking the graph. It does not need to
+ * look up beans nor read annotations again (except for the root node value bean, which is looked up once per bean name
+ * or type).
+ * <p>
+ * The extension is registered in <code>META-INF/services/javax.enterprise.inject.spi.Extension</code>. Without the
+ * extension, the producer resolves the graph on demand.
+ * <p>
+ * Note: this class is not final because CDI requires extensions (being application scoped beans) to be proxyable.
+ *
+ * @author Martti Tamm
+ */
+public class TreeNodeExtension implements Extension {
+
+  private final Map<Class<?>, ws.rocket.path.annotation.TreeNode> metadata =
+      new HashMap<Class<?>, ws.rocket.path.annotation.TreeNode>();
+
+  private final List<Bean<?>> beans = new ArrayList<Bean<?>>();
+
+  private final Set<Object> rootReferences = new LinkedHashSet<Object>();
+
+  <T> void processAnnotatedType(@Observes ProcessAnnotatedType<T> event) {
+    AnnotatedType<T> type = event.getAnnotatedType();
+    ws.rocket.path.annotation.TreeNode meta = type.getAnnotation(ws.rocket.path.annotation.TreeNode.class);
+
+    if (meta != null) {
+      this.metadata.put(type.getJavaClass(), meta);
+    }
+  }
+
+  <T> void processBean(@Observes ProcessBean<T> event) {
+    if (event.getAnnotated() instanceof AnnotatedType && this.metadata.containsKey(event.getBean().getBeanClass())) {
+      this.beans.add(event.getBean());
+    }
+
+    for (InjectionPoint injectionPoint : event.getBean().getInjectionPoints()) {
+      RootNode rootAnnotation = RootNodeProducer.getRootAnnotation(injectionPoint);
+
+      if (rootAnnotation != null && injectionPoint.getType() == TreeNode.class) {
+        Object reference = RootNodeProducer.getRootReference(rootAnnotation, injectionPoint);
+
+        if (reference != null && rootAnnotation.cached()) {
+          this.rootReferences.add(reference);
+        }
+      }
+    }
+  }
+
+  void afterDeploymentValidation(@Observes AfterDeploymentValidation event, BeanManager manager) {
+    TreeNodeGraph graph = getBean(manager, TreeNodeGraph.class);
+    graph.setMetadata(new HashMap<Class<?>, ws.rocket.path.annotation.TreeNode>(this.metadata));
+
+    for (Bean<?> bean : this.beans) {
+      try {
+        graph.getVertex(manager, bean);
+      } catch (RuntimeException e) {
+        event.addDeploymentProblem(e);
+      }
+    }
+
+    this.beans.clear();
+
+    RootNodeWarmUp warmUp = getBean(manager, RootNodeWarmUp.class);
+    warmUp.setRootReferences(this.rootReferences);
+    this.rootReferences.clear();
+
+    if (RootNodeWarmUp.isEnabled()) {
+      try {
+        warmUp.warmUp();
+      } catch (RuntimeException e) {
+        event.addDeploymentProblem(e);
+      }
+    }
+  }
+
+  private static <T> T getBean(BeanManager manager, Class<T> type) {
+    Bean<?> bean = manager.resolve(manager.getBeans(type));
+    return type.cast(manager.getReference(bean, type, manager.createCreationalContext(bean)));
+  }
+}
@@ -0,0 +1,212 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import ws.rocket.path.ChildNodesLoader;
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.builder.TreeNodeBuilder;
+import ws.rocket.path.builder.TreeNodeBuilderAware;
+
+/**
+ * Lookup of generated {@link TreeNodeFactory} classes, and a light-weight runtime for constructing annotated trees
+ * without CDI.
+ * <p>
+ * When the <em>Rocket-Path</em> library is on the compiler class-path, its annotation processor
+ * ({@link ws.rocket.path.annotation.processor.TreeNodeProcessor}) generates a factory for every class annotated with
+ * {@link ws.rocket.path.annotation.TreeNode}. The factories are used by {@link RootNodeProducer} (with CDI) and by
+ * {@link #createTree(Class)} (without CDI). When a factory does not exist (e.g. the class was compiled without the
+ * annotation processor), the annotation is read at runtime instead.
+ * <p>
+ * Without CDI, the key and value objects are created using the default constructors of their classes (a new instance
+ * for every reference), and no dependencies are injected. References by bean name are supported only when the
+ * annotation processor could resolve the name to a class (annotated with {@link javax.inject.Named}). Lazily
+ * constructed child-nodes may be loaded by any thread, therefore the context is thread-safe.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeNodeFactories {
+
+  /**
+   * The suffix that is appended to the name of the value class to get the name of its generated factory class.
+   */
+  public static final String FACTORY_SUFFIX = "_TreeNodeFactory";
+
+  private TreeNodeFactories() {
+  }
+
+  /**
+   * Looks up the generated factory for the value class. Since the lookup involves class loading, the callers should
+   * keep the result rather than looking it up repeatedly.
+   *
+   * @param valueType The class of tree node values.
+   * @return The factory, or <code>null</code> when there is no generated factory for the class.
+   */
+  public static TreeNodeFactory getFactory(Class<?> valueType) {
+    Class<?> factoryClass;
+
+    try {
+      factoryClass = Class.forName(valueType.getName() + FACTORY_SUFFIX, true, valueType.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (LinkageError e) {
+      return null;
+    }
+
+    if (!TreeNodeFactory.class.isAssignableFrom(factoryClass)) {
+      return null;
+    }
+
+    return (TreeNodeFactory) newInstance(factoryClass);
+  }
+
+  /**
+   * Constructs a tree without CDI, where the root node value is a new instance of given class. The child-nodes are
+   * constructed as described by the <code>&#064;TreeNode</code> annotations (preferably, through the generated
+   * factories).
+   *
+   * @param rootType The class of the root node value.
+   * @return The constructed tree.
+   */
+  public static TreeNode createTree(Class<?> rootType) {
+    return new SimpleContext().createTree(rootType);
+  }
+
+  static Object newInstance(Class<?> type) {
+    try {
+      Constructor<?> constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+      return constructor.newInstance();
+    } catch (Exception e) {
+      throw new RuntimeException("Could not create an instance of " + type + " using its default constructor.", e);
+    }
+  }
+
+  /**
+   * The context for constructing trees without CDI.
+   */
+  private static final class SimpleContext implements TreeNodeContext {
+
+    private final Map<Class<?>, TreeNodeFactory> factories =
+        Collections.synchronizedMap(new HashMap<Class<?>, TreeNodeFactory>());
+
+    @Override
+    public Object getValue(Class<?> type) {
+      return newInstance(type);
+    }
+
+    @Override
+    public Object getValue(String name, Class<?> type) {
+      return newInstance(resolveName(name, type));
+    }
+
+    @Override
+    public TreeNode createTree(Class<?> type) {
+      Object value = newInstance(type);
+
+      TreeNodeFactory factory;
+      if (this.factories.containsKey(type)) {
+        factory = this.factories.get(type);
+      } else {
+        factory = getFactory(type);
+        this.factories.put(type, factory);
+      }
+
+      return factory != null ? factory.createTree(value, this) : createNode(value);
+    }
+
+    @Override
+    public TreeNode createTree(String name, Class<?> type) {
+      return createTree(resolveName(name, type));
+    }
+
+    @Override
+    public Object initKey(Object key) {
+      return key;
+    }
+
+    private TreeNode createNode(Object value) {
+      final ws.rocket.path.annotation.TreeNode meta = value.getClass().getAnnotation(
+          ws.rocket.path.annotation.TreeNode.class);
+
+      Object key = null;
+
+      if (value instanceof KeyBuilder) {
+        key = ((KeyBuilder) value).buildKey();
+      } else if (meta != null && meta.key().trim().length() > 0) {
+        key = meta.key();
+      } else if (meta != null && meta.keyType() != Object.class) {
+        key = getValue(meta.keyType());
+      } else if (meta != null && meta.keyName().trim().length() > 0) {
+        key = getValue(meta.keyName(), null);
+      }
+
+      if (value instanceof TreeNodeBuilderAware) {
+        return new TreeNodeBuilder(key, value).build();
+      } else if (meta == null || meta.childNames().length == 0 && meta.childTypes().length == 0) {
+        return new TreeNode(key, value);
+      } else if (meta.childNames().length > 0 && meta.childTypes().length > 0) {
+        throw new RuntimeException("Child-TreeNode values are identified with both names and types; expected only "
+            + "one to be provided (preferably types).");
+      }
+
+      if (meta.lazy()) {
+        return TreeNode.createLazy(key, value, new ChildNodesLoader() {
+
+          @Override
+          public TreeNode[] loadChildNodes() {
+            return createChildren(meta);
+          }
+        });
+      }
+
+      return new TreeNode(key, value, createChildren(meta));
+    }
+
+    private TreeNode[] createChildren(ws.rocket.path.annotation.TreeNode meta) {
+      TreeNode[] children;
+
+      if (meta.childTypes().length > 0) {
+        children = new TreeNode[meta.childTypes().length];
+        for (int i = 0; i < children.length; i++) {
+          children[i] = createTree(meta.childTypes()[i]);
+        }
+      } else {
+        children = new TreeNode[meta.childNames().length];
+        for (int i = 0; i < children.length; i++) {
+          children[i] = createTree(meta.childNames()[i], null);
+        }
+      }
+
+      return children;
+    }
+
+    private static Class<?> resolveName(String name, Class<?> type) {
+      if (type == null) {
+        throw new RuntimeException("Could not resolve the class of bean named '" + name + "' (names are resolved "
+            + "only at compile time by the annotation processor when not using CDI).");
+      }
+      return type;
+    }
+  }
+}
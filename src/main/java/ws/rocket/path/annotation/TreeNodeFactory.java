@@ -0,0 +1,46 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Contract for tree node factories generated at compile time by
+ * {@link ws.rocket.path.annotation.processor.TreeNodeProcessor} for classes annotated with
+ * {@link ws.rocket.path.annotation.TreeNode}. A generated factory constructs the node for a given value object exactly
+ * as the annotation describes, but without reading the annotation at runtime.
+ * <p>
+ * The factory of a value class <code>com.example.Value</code> is named <code>com.example.Value_TreeNodeFactory</code>.
+ * Factories are looked up by {@link TreeNodeFactories#getFactory(Class)}.
+ *
+ * @author Martti Tamm
+ */
+public interface TreeNodeFactory {
+
+  /**
+   * Creates a tree node for the given value object. The key objects and the child-nodes are obtained through the
+   * context.
+   *
+   * @param value The value object of the node. Must be an instance of the class the factory was generated for.
+   * @param context The context for obtaining key objects and creating child-nodes.
+   * @return The created tree node.
+   */
+  TreeNode createTree(Object value, TreeNodeContext context);
+
+}
@@ -0,0 +1,279 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.inject.Singleton;
+
+/**
+ * The resolved graph of tree node value beans: for each bean, the information how to obtain the node key and the beans
+ * of the child-nodes (see {@link TreeNodeVertex}). The graph is used by {@link RootNodeProducer} so that the
+ * <code>&#064;TreeNode</code> annotations and bean references would be resolved only once per bean, and not every time
+ * a tree is constructed.
+ * <p>
+ * The graph is populated at deployment time by {@link TreeNodeExtension}, which also reports the problems (missing
+ * beans, cyclic references) as deployment problems. When the extension is not enabled, the beans are resolved on demand
+ * (when a tree is constructed for the first time), and the problems are reported as runtime exceptions.
+ * <p>
+ * A bean is resolved together with all the beans reachable from it, and the resolved vertices are published only after
+ * they have been linked and checked for cycles. Therefore, published vertices can be read without locking.
+ *
+ * @author Martti Tamm
+ */
+@Singleton
+final class TreeNodeGraph {
+
+  private final ConcurrentMap<Bean<?>, TreeNodeVertex> vertices = new ConcurrentHashMap<Bean<?>, TreeNodeVertex>();
+
+  private final ConcurrentMap<Object, TreeNodeVertex> references = new ConcurrentHashMap<Object, TreeNodeVertex>();
+
+  private volatile Map<Class<?>, ws.rocket.path.annotation.TreeNode> metadata;
+
+  /**
+   * Sets the <code>&#064;TreeNode</code> annotations of the bean classes as seen by the CDI container (which may differ
+   * from the annotations of the classes when a portable extension has modified the annotated types).
+   *
+   * @param metadata The annotations by bean class.
+   */
+  void setMetadata(Map<Class<?>, ws.rocket.path.annotation.TreeNode> metadata) {
+    this.metadata = metadata;
+  }
+
+  /**
+   * Provides the vertex of the bean referred by name (<code>String</code>) or type (<code>Class</code>).
+   *
+   * @param manager The bean manager to use for resolving beans.
+   * @param reference The name or type of the bean.
+   * @return The resolved vertex.
+   */
+  TreeNodeVertex getVertex(BeanManager manager, Object reference) {
+    TreeNodeVertex vertex = this.references.get(reference);
+
+    if (vertex == null) {
+      vertex = getVertex(manager, findValueBean(manager, reference));
+      this.references.putIfAbsent(reference, vertex);
+    }
+
+    return vertex;
+  }
+
+  /**
+   * Provides the vertex of the bean.
+   *
+   * @param manager The bean manager to use for resolving beans.
+   * @param bean The tree node value bean.
+   * @return The resolved vertex.
+   */
+  TreeNodeVertex getVertex(BeanManager manager, Bean<?> bean) {
+    TreeNodeVertex vertex = this.vertices.get(bean);
+    return vertex != null ? vertex : resolve(manager, bean);
+  }
+
+  private synchronized TreeNodeVertex resolve(BeanManager manager, Bean<?> bean) {
+    TreeNodeVertex result = this.vertices.get(bean);
+
+    if (result == null) {
+      Map<Bean<?>, TreeNodeVertex> created = new LinkedHashMap<Bean<?>, TreeNodeVertex>();
+      List<TreeNodeVertex> pending = new ArrayList<TreeNodeVertex>();
+
+      result = getOrCreate(bean, created, pending);
+
+      while (!pending.isEmpty()) {
+        link(manager, pending.remove(pending.size() - 1), created, pending);
+      }
+
+      checkCycles(created.values());
+      this.vertices.putAll(created);
+    }
+
+    return result;
+  }
+
+  private TreeNodeVertex getOrCreate(Bean<?> bean, Map<Bean<?>, TreeNodeVertex> created,
+      List<TreeNodeVertex> pending) {
+
+    TreeNodeVertex vertex = this.vertices.get(bean);
+
+    if (vertex == null) {
+      vertex = created.get(bean);
+    }
+
+    if (vertex == null) {
+      vertex = new TreeNodeVertex(bean, getMeta(bean));
+      created.put(bean, vertex);
+      pending.add(vertex);
+    }
+
+    return vertex;
+  }
+
+  private ws.rocket.path.annotation.TreeNode getMeta(Bean<?> bean) {
+    Map<Class<?>, ws.rocket.path.annotation.TreeNode> knownMetadata = this.metadata;
+    ws.rocket.path.annotation.TreeNode meta = null;
+
+    if (knownMetadata != null) {
+      meta = knownMetadata.get(bean.getBeanClass());
+    }
+
+    if (meta == null) {
+      meta = bean.getBeanClass().getAnnotation(ws.rocket.path.annotation.TreeNode.class);
+    }
+
+    return meta;
+  }
+
+  private void link(BeanManager manager, TreeNodeVertex vertex, Map<Bean<?>, TreeNodeVertex> created,
+      List<TreeNodeVertex> pending) {
+
+    ws.rocket.path.annotation.TreeNode meta = vertex.getMeta();
+
+    if (meta == null) {
+      return;
+    }
+
+    if (!vertex.isKeyBuilder()) {
+      if (meta.key().trim().length() > 0) {
+        vertex.setKey(meta.key(), null);
+      } else if (meta.keyType() != Object.class) {
+        vertex.setKey(null, findKeyBean(manager.getBeans(meta.keyType()), vertex));
+      } else if (meta.keyName().trim().length() > 0) {
+        vertex.setKey(null, findKeyBean(manager.getBeans(meta.keyName()), vertex));
+      }
+    }
+
+    if (vertex.isBuilderAware() || meta.childNames().length == 0 && meta.childTypes().length == 0) {
+      return;
+    } else if (meta.childNames().length > 0 && meta.childTypes().length > 0) {
+      throw new RuntimeException("Child-TreeNode values are identified with both names and types; expected only one "
+          + "to be provided (preferably types). Bean: " + vertex.getBean());
+    }
+
+    Object[] childReferences = meta.childTypes().length > 0 ? meta.childTypes() : meta.childNames();
+    TreeNodeVertex[] children = new TreeNodeVertex[childReferences.length];
+
+    for (int i = 0; i < childReferences.length; i++) {
+      children[i] = getOrCreate(findValueBean(manager, childReferences[i]), created, pending);
+    }
+
+    vertex.setChildren(children);
+  }
+
+  private static Bean<?> findValueBean(BeanManager manager, Object reference) {
+    if (reference instanceof Class) {
+      Class<?> beanType = (Class<?>) reference;
+      Set<Bean<?>> beans = manager.getBeans(beanType);
+
+      if (beans.isEmpty()) {
+        throw new RuntimeException("Could not find TreeNode value by type: " + beanType);
+      } else if (beans.size() > 1) {
+        throw new RuntimeException("Currently only one TreeNode value is expected. Type: " + beanType + ", count: "
+            + beans.size() + "'.");
+      }
+
+      return beans.iterator().next();
+    }
+
+    String beanName = (String) reference;
+    Set<Bean<?>> beans = manager.getBeans(beanName);
+
+    if (beans.isEmpty()) {
+      throw new RuntimeException("Could not find TreeNode value by name '" + beanName + "'.");
+    } else if (beans.size() > 1) {
+      throw new RuntimeException("Currently only one TreeNode value is expected. Name: '" + beanName + ", count: "
+          + beans.size() + "'.");
+    }
+
+    return beans.iterator().next();
+  }
+
+  private static Bean<?> findKeyBean(Set<Bean<?>> beans, TreeNodeVertex vertex) {
+    if (beans.isEmpty()) {
+      throw new RuntimeException("Could not find TreeNode key for annotation " + vertex.getMeta() + " at "
+          + vertex.getBean());
+    } else if (beans.size() > 1) {
+      throw new RuntimeException("Found too many (" + beans.size() + ") TreeNode key candidates for annotation "
+          + vertex.getMeta() + " at " + vertex.getBean());
+    }
+    return beans.iterator().next();
+  }
+
+  private static void checkCycles(Iterable<TreeNodeVertex> vertices) {
+    final Integer visiting = Integer.valueOf(1);
+    final Integer visited = Integer.valueOf(2);
+
+    Map<TreeNodeVertex, Integer> states = new IdentityHashMap<TreeNodeVertex, Integer>();
+    List<TreeNodeVertex> path = new ArrayList<TreeNodeVertex>();
+    List<Integer> childIndices = new ArrayList<Integer>();
+
+    for (TreeNodeVertex start : vertices) {
+      if (states.containsKey(start)) {
+        continue;
+      }
+
+      states.put(start, visiting);
+      path.add(start);
+      childIndices.add(0);
+
+      while (!path.isEmpty()) {
+        int top = path.size() - 1;
+        TreeNodeVertex vertex = path.get(top);
+        TreeNodeVertex[] children = vertex.getChildren();
+        int childIndex = childIndices.get(top);
+
+        if (children != null && childIndex < children.length) {
+          TreeNodeVertex child = children[childIndex];
+          childIndices.set(top, childIndex + 1);
+
+          if (states.get(child) == visiting) {
+            throw new RuntimeException("Cyclic TreeNode references: " + describeCycle(path, child));
+          } else if (!states.containsKey(child)) {
+            states.put(child, visiting);
+            path.add(child);
+            childIndices.add(0);
+          }
+
+        } else {
+          states.put(vertex, visited);
+          path.remove(top);
+          childIndices.remove(top);
+        }
+      }
+    }
+  }
+
+  private static String describeCycle(List<TreeNodeVertex> path, TreeNodeVertex repeated) {
+    StringBuilder result = new StringBuilder();
+
+    for (int i = path.indexOf(repeated); i < path.size(); i++) {
+      result.append(path.get(i).getBean().getBeanClass().getName()).append(" -> ");
+    }
+
+    return result.append(repeated.getBean().getBeanClass().getName()).toString();
+  }
+}
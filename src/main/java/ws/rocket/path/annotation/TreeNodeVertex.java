@@ -0,0 +1,107 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation;
+
+import javax.enterprise.inject.spi.Bean;
+
+import ws.rocket.path.builder.TreeNodeBuilderAware;
+
+/**
+ * Resolved information about a tree node value bean: how to obtain the key of the node, and which beans are the values
+ * of the child-nodes. When the bean class has a generated {@link TreeNodeFactory}, the vertex also refers to it.
+ * Vertices are created and linked by {@link TreeNodeGraph}, and they are not modified after they have been published.
+ *
+ * @author Martti Tamm
+ */
+final class TreeNodeVertex {
+
+  private final Bean<?> bean;
+
+  private final ws.rocket.path.annotation.TreeNode meta;
+
+  private final boolean builderAware;
+
+  private final boolean keyBuilder;
+
+  private final TreeNodeFactory factory;
+
+  private Object key;
+
+  private Bean<?> keyBean;
+
+  private TreeNodeVertex[] children;
+
+  TreeNodeVertex(Bean<?> bean, ws.rocket.path.annotation.TreeNode meta) {
+    this.bean = bean;
+    this.meta = meta;
+    this.builderAware = TreeNodeBuilderAware.class.isAssignableFrom(bean.getBeanClass());
+    this.keyBuilder = KeyBuilder.class.isAssignableFrom(bean.getBeanClass());
+    this.factory = meta != null ? TreeNodeFactories.getFactory(bean.getBeanClass()) : null;
+  }
+
+  Bean<?> getBean() {
+    return this.bean;
+  }
+
+  ws.rocket.path.annotation.TreeNode getMeta() {
+    return this.meta;
+  }
+
+  boolean isBuilderAware() {
+    return this.builderAware;
+  }
+
+  boolean isKeyBuilder() {
+    return this.keyBuilder;
+  }
+
+  boolean isLazy() {
+    return this.meta != null && this.meta.lazy();
+  }
+
+  TreeNodeFactory getFactory() {
+    return this.factory;
+  }
+
+  Object getKey() {
+    return this.key;
+  }
+
+  Bean<?> getKeyBean() {
+    return this.keyBean;
+  }
+
+  TreeNodeVertex[] getChildren() {
+    return this.children;
+  }
+
+  void setKey(Object key, Bean<?> keyBean) {
+    this.key = key;
+    this.keyBean = keyBean;
+  }
+
+  void setChildren(TreeNodeVertex[] children) {
+    this.children = children;
+  }
+
+  @Override
+  public String toString() {
+    return "TreeNodeVertex@" + this.bean;
+  }
+}
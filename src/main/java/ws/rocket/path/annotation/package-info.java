@@ -65,6 +65,10 @@
  * Each annotation supports referring to classes either by CDI bean name(s) or Java class(es). Both methods have their
  * pros and cons, however, they cannot be mixed in one annotation declaration. When unsure, referring by class could be
  * preferred as it is less vulnerable to code refactoring (e.g. when renaming a class).
+ * <p>
+ * The references between annotated beans are resolved and validated at deployment time by
+ * {@link ws.rocket.path.annotation.TreeNodeExtension} (a CDI portable extension). Missing beans and cyclic references
+ * are therefore reported as deployment problems.
  */
 package ws.rocket.path.annotation;
 
@@ -0,0 +1,370 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.annotation.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+
+import ws.rocket.path.annotation.TreeNodeFactories;
+
+/**
+ * Annotation processor generating a {@link ws.rocket.path.annotation.TreeNodeFactory} for each class annotated with
+ * {@link ws.rocket.path.annotation.TreeNode}. The generated factory is placed into the same package as the annotated
+ * class, and its name is the name of the annotated class followed by {@link TreeNodeFactories#FACTORY_SUFFIX}.
+ * <p>
+ * The generated code does exactly what the annotation describes, and what would otherwise be done at runtime using
+ * reflection: it resolves the key of the node (honouring the {@link ws.rocket.path.annotation.KeyBuilder} contract),
+ * and creates the child-nodes (unless the value object implements
+ * {@link ws.rocket.path.builder.TreeNodeBuilderAware}), lazily when the annotation says so. References by bean name
+ * are resolved to classes annotated with <code>&#064;javax.inject.Named</code>, when such classes are compiled together
+ * with the annotated class.
+ * <p>
+ * The processor reports an error when an annotation refers to child-nodes by both names and types. It skips (with a
+ * note) the classes that the generated code could not refer to (e.g. private nested classes). Such classes are still
+ * handled at runtime by reading their annotations.
+ *
+ * @author Martti Tamm
+ */
+@SupportedAnnotationTypes(TreeNodeProcessor.TREE_NODE_ANNOTATION)
+public final class TreeNodeProcessor extends AbstractProcessor {
+
+  static final String TREE_NODE_ANNOTATION = "ws.rocket.path.annotation.TreeNode";
+
+  private static final String NAMED_ANNOTATION = "javax.inject.Named";
+
+  private static final String BUILDER_AWARE_TYPE = "ws.rocket.path.builder.TreeNodeBuilderAware";
+
+  private final Map<String, TypeElement> namedTypes = new HashMap<String, TypeElement>();
+
+  private final Set<String> generated = new HashSet<String>();
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    collectNamedTypes(roundEnv.getRootElements());
+
+    for (TypeElement annotation : annotations) {
+      for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind() == ElementKind.CLASS) {
+          generateFactory((TypeElement) element);
+        }
+      }
+    }
+
+    return false;
+  }
+
+  private void collectNamedTypes(Iterable<? extends Element> elements) {
+    for (Element element : elements) {
+      if (element.getKind() != ElementKind.CLASS) {
+        continue;
+      }
+
+      AnnotationMirror named = findAnnotation(element, NAMED_ANNOTATION);
+
+      if (named != null) {
+        String name = (String) getAttributes(named).get("value").getValue();
+
+        if (name.length() == 0) {
+          String simpleName = element.getSimpleName().toString();
+          name = Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
+        }
+
+        this.namedTypes.put(name, (TypeElement) element);
+      }
+
+      collectNamedTypes(element.getEnclosedElements());
+    }
+  }
+
+  private void generateFactory(TypeElement type) {
+    String packageName = getPackage(type).getQualifiedName().toString();
+    String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+    String factoryName = binaryName.substring(packageName.length() > 0 ? packageName.length() + 1 : 0)
+        + TreeNodeFactories.FACTORY_SUFFIX;
+
+    if (!this.generated.add(binaryName)) {
+      return;
+    } else if (!isAccessible(type, packageName)) {
+      note(type, "No TreeNodeFactory generated as the class is not accessible from its package.");
+      return;
+    }
+
+    Map<String, AnnotationValue> attributes = getAttributes(findAnnotation(type, TREE_NODE_ANNOTATION));
+    List<?> childNames = (List<?>) attributes.get("childNames").getValue();
+    List<?> childTypes = (List<?>) attributes.get("childTypes").getValue();
+    boolean builderAware = isBuilderAware(type);
+
+    if (!builderAware && !childNames.isEmpty() && !childTypes.isEmpty()) {
+      this.processingEnv.getMessager().printMessage(Kind.ERROR, "Child-TreeNode values are identified with both "
+          + "names and types; expected only one to be provided (preferably types).", type);
+      return;
+    }
+
+    try {
+      String keyExpression = getKeyExpression(attributes, packageName);
+      List<String> childExpressions = new ArrayList<String>();
+
+      if (!builderAware && !childTypes.isEmpty()) {
+        for (Object childType : childTypes) {
+          childExpressions.add("context.createTree(" + getClassLiteral(getValue(childType), packageName) + ")");
+        }
+      } else if (!builderAware) {
+        for (Object childName : childNames) {
+          String name = (String) getValue(childName);
+          childExpressions.add("context.createTree(" + getNamedReference(name, packageName) + ")");
+        }
+      }
+
+      boolean lazy = ((Boolean) attributes.get("lazy").getValue()).booleanValue();
+      writeFactory(type, packageName, factoryName, keyExpression, childExpressions, lazy);
+    } catch (InaccessibleTypeException e) {
+      note(type, "No TreeNodeFactory generated as the annotation refers to a class that is not accessible from "
+          + "package '" + packageName + "': " + e.getMessage());
+    }
+  }
+
+  private String getKeyExpression(Map<String, AnnotationValue> attributes, String packageName) {
+    String key = (String) attributes.get("key").getValue();
+    TypeMirror keyType = (TypeMirror) attributes.get("keyType").getValue();
+    String keyName = (String) attributes.get("keyName").getValue();
+
+    if (key.trim().length() > 0) {
+      return toStringLiteral(key);
+    } else if (!isObjectType(keyType)) {
+      return "context.getValue(" + getClassLiteral(keyType, packageName) + ")";
+    } else if (keyName.trim().length() > 0) {
+      return "context.getValue(" + getNamedReference(keyName, packageName) + ")";
+    }
+    return "null";
+  }
+
+  private void writeFactory(TypeElement type, String packageName, String factoryName, String keyExpression,
+      List<String> childExpressions, boolean lazy) {
+
+    StringBuilder src = new StringBuilder();
+
+    if (packageName.length() > 0) {
+      src.append("package ").append(packageName).append(";\n\n");
+    }
+
+    src.append("/**\n");
+    src.append(" * Tree node factory for {@link ").append(type.getQualifiedName()).append("}.\n");
+    src.append(" * Generated by ").append(getClass().getName()).append(" (do not edit).\n");
+    src.append(" */\n");
+    src.append("public final class ").append(factoryName).append(" implements ")
+        .append("ws.rocket.path.annotation.TreeNodeFactory {\n\n");
+    src.append("  public ws.rocket.path.TreeNode createTree(final java.lang.Object value,\n");
+    src.append("      final ws.rocket.path.annotation.TreeNodeContext context) {\n\n");
+    src.append("    java.lang.Object key;\n\n");
+    src.append("    if (value instanceof ws.rocket.path.annotation.KeyBuilder) {\n");
+    src.append("      key = context.initKey(((ws.rocket.path.annotation.KeyBuilder) value).buildKey());\n");
+    src.append("    } else {\n");
+    src.append("      key = ").append(keyExpression).append(";\n");
+    src.append("    }\n\n");
+    src.append("    if (value instanceof ws.rocket.path.builder.TreeNodeBuilderAware) {\n");
+    src.append("      return new ws.rocket.path.builder.TreeNodeBuilder(key, value).build();\n");
+    src.append("    }\n\n");
+
+    if (lazy && !childExpressions.isEmpty()) {
+      src.append("    return ws.rocket.path.TreeNode.createLazy(key, value,\n");
+      src.append("        new ws.rocket.path.ChildNodesLoader() {\n\n");
+      src.append("      public ws.rocket.path.TreeNode[] loadChildNodes() {\n");
+      src.append("        return new ws.rocket.path.TreeNode[] {");
+
+      for (int i = 0; i < childExpressions.size(); i++) {
+        src.append(i > 0 ? "," : "").append("\n            ").append(childExpressions.get(i));
+      }
+
+      src.append(" };\n");
+      src.append("      }\n");
+      src.append("    });\n");
+    } else {
+      src.append("    return new ws.rocket.path.TreeNode(key, value");
+
+      for (String childExpression : childExpressions) {
+        src.append(",\n        ").append(childExpression);
+      }
+
+      src.append(");\n");
+    }
+
+    src.append("  }\n");
+    src.append("}\n");
+
+    String qualifiedName = packageName.length() > 0 ? packageName + "." + factoryName : factoryName;
+
+    try {
+      Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter();
+      try {
+        writer.write(src.toString());
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      this.processingEnv.getMessager().printMessage(Kind.ERROR, "Could not write " + qualifiedName + ": " + e, type);
+    }
+  }
+
+  private String getNamedReference(String name, String packageName) {
+    TypeElement namedType = this.namedTypes.get(name);
+    String typeLiteral = "null";
+
+    if (namedType != null && isAccessible(namedType, packageName)) {
+      typeLiteral = namedType.getQualifiedName() + ".class";
+    }
+
+    return toStringLiteral(name) + ", " + typeLiteral;
+  }
+
+  private String getClassLiteral(Object typeMirror, String packageName) {
+    TypeMirror mirror = (TypeMirror) typeMirror;
+
+    if (mirror.getKind() != TypeKind.DECLARED) {
+      throw new InaccessibleTypeException(mirror.toString());
+    }
+
+    TypeElement element = (TypeElement) ((DeclaredType) mirror).asElement();
+
+    if (!isAccessible(element, packageName)) {
+      throw new InaccessibleTypeException(element.getQualifiedName().toString());
+    }
+
+    return element.getQualifiedName() + ".class";
+  }
+
+  private boolean isBuilderAware(TypeElement type) {
+    TypeElement builderAware = this.processingEnv.getElementUtils().getTypeElement(BUILDER_AWARE_TYPE);
+    return builderAware != null
+        && this.processingEnv.getTypeUtils().isAssignable(type.asType(), builderAware.asType());
+  }
+
+  private static boolean isObjectType(TypeMirror type) {
+    return type.getKind() == TypeKind.DECLARED
+        && ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().contentEquals("java.lang.Object");
+  }
+
+  private static boolean isAccessible(TypeElement type, String fromPackage) {
+    boolean samePackage = getPackage(type).getQualifiedName().contentEquals(fromPackage);
+
+    for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+      Set<Modifier> modifiers = element.getModifiers();
+
+      if (modifiers.contains(Modifier.PRIVATE) || !samePackage && !modifiers.contains(Modifier.PUBLIC)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static PackageElement getPackage(Element element) {
+    Element current = element;
+    while (!(current instanceof PackageElement)) {
+      current = current.getEnclosingElement();
+    }
+    return (PackageElement) current;
+  }
+
+  private AnnotationMirror findAnnotation(Element element, String annotationType) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      Element annotation = mirror.getAnnotationType().asElement();
+      if (((TypeElement) annotation).getQualifiedName().contentEquals(annotationType)) {
+        return mirror;
+      }
+    }
+    return null;
+  }
+
+  private Map<String, AnnotationValue> getAttributes(AnnotationMirror mirror) {
+    Map<String, AnnotationValue> result = new HashMap<String, AnnotationValue>();
+
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : this.processingEnv
+        .getElementUtils().getElementValuesWithDefaults(mirror).entrySet()) {
+      result.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+    }
+
+    return result;
+  }
+
+  private static Object getValue(Object annotationValue) {
+    return ((AnnotationValue) annotationValue).getValue();
+  }
+
+  private static String toStringLiteral(String value) {
+    StringBuilder result = new StringBuilder("\"");
+
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+
+      if (c == '"' || c == '\\') {
+        result.append('\\').append(c);
+      } else if (c < 0x20 || c > 0x7E) {
+        result.append(String.format("\\u%04x", Integer.valueOf(c)));
+      } else {
+        result.append(c);
+      }
+    }
+
+    return result.append('"').toString();
+  }
+
+  private void note(Element element, String message) {
+    this.processingEnv.getMessager().printMessage(Kind.NOTE, message, element);
+  }
+
+  /**
+   * Signals that the generated code could not refer to a class.
+   */
+  private static final class InaccessibleTypeException extends RuntimeException {
+
+    private static final long serialVersionUID = -2402962462734367201L;
+
+    InaccessibleTypeException(String typeName) {
+      super(typeName);
+    }
+  }
+}
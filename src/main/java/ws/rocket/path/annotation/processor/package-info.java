@@ -0,0 +1,28 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+/**
+ * Compile-time support for annotation-based trees. The annotation processor in this package generates a
+ * {@link ws.rocket.path.annotation.TreeNodeFactory} for every class annotated with
+ * {@link ws.rocket.path.annotation.TreeNode}, so that trees could be constructed without reading the annotations at
+ * runtime.
+ * <p>
+ * The processor is registered in <code>META-INF/services/javax.annotation.processing.Processor</code>, so it is
+ * enabled automatically when the <em>Rocket-Path</em> library is on the compiler class-path.
+ */
+package ws.rocket.path.annotation.processor;
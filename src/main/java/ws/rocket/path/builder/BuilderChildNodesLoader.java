@@ -0,0 +1,68 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.builder;
+
+import java.util.List;
+
+import ws.rocket.path.ChildNodesLoader;
+import ws.rocket.path.TreeNode;
+
+/**
+ * Child-nodes loader that constructs the child-nodes using {@link TreeNodeBuilder}: the node value (which usually
+ * implements {@link TreeNodeBuilderAware}) describes its child-nodes every time they are loaded. This enables
+ * reconstructing the subtrees evicted from {@link ws.rocket.path.SubtreeCache}, or constructing them lazily (see
+ * {@link TreeNode#createLazy(Object, Object, ChildNodesLoader)}).
+ *
+ * @author Martti Tamm
+ */
+public final class BuilderChildNodesLoader implements ChildNodesLoader {
+
+  private final TreeNodeBuilderAware value;
+
+  private final TreeNodeCallback callback;
+
+  /**
+   * Creates a new loader for the child-nodes of given value.
+   *
+   * @param value The node value describing the child-nodes.
+   */
+  public BuilderChildNodesLoader(TreeNodeBuilderAware value) {
+    this(value, null);
+  }
+
+  /**
+   * Creates a new loader for the child-nodes of given value.
+   *
+   * @param value The node value describing the child-nodes.
+   * @param callback Optional callback which is called with every key and value in the constructed child-nodes.
+   */
+  public BuilderChildNodesLoader(TreeNodeBuilderAware value, TreeNodeCallback callback) {
+    this.value = value;
+    this.callback = callback;
+  }
+
+  @Override
+  public TreeNode[] loadChildNodes() {
+    TreeNodeBuilder builder = new TreeNodeBuilder(this.callback);
+    this.value.initNode(builder);
+
+    List<TreeNode> children = builder.build().getChildren();
+    return children.toArray(new TreeNode[children.size()]);
+  }
+}
@@ -19,6 +19,7 @@
 package ws.rocket.path.builder;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import ws.rocket.path.TreeNode;
@@ -143,4 +144,17 @@ public final class TreeNodeBuilder {
     TreeNode[] childrenArray = this.children.toArray(new TreeNode[this.children.size()]);
     return new TreeNode(this.key, this.value, childrenArray);
   }
+
+  /**
+   * Constructs a <code>TreeNode</code> with key, value, and <code>TreeNode</code> children available to this builder,
+   * where the children are sorted by their keys (see {@link TreeNode#getSortedChildren()}).
+   * 
+   * @param keyOrder The comparator of the keys of the children (<code>null</code> for the natural ordering of
+   *        <code>Comparable</code> keys).
+   * @return The created <code>TreeNode</code>.
+   */
+  public TreeNode build(Comparator<?> keyOrder) {
+    TreeNode[] childrenArray = this.children.toArray(new TreeNode[this.children.size()]);
+    return TreeNode.createSorted(this.key, this.value, keyOrder, childrenArray);
+  }
 }
@@ -0,0 +1,265 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+
+/**
+ * Compares two versions of a tree and reports the differences to a {@link TreeDiffListener}.
+ * <p>
+ * The nodes of both trees are matched by their paths: the root nodes are always matched, and the child-nodes of matched
+ * nodes are matched by their keys (using <code>equals()</code>). When several child-nodes have equal keys, they are
+ * matched in the order of their appearance. A matched pair of nodes is not inspected any further when both nodes are
+ * the same instance. Otherwise, the keys and values of the nodes are compared (using <code>equals()</code>) and their
+ * child-nodes are matched.
+ * <p>
+ * This approach makes the cost of comparison depend on the amount of changes rather than on the size of the trees,
+ * when the new tree reuses unchanged subtrees of the old tree. When the trees are built separately, the comparison may
+ * also skip the subtrees with equal digests (see {@link #compare(TreeNode, TreeNode, TreeDiffListener, boolean)}).
+ * However, since digests are derived from <code>hashCode()</code> values, different subtrees may have equal digests,
+ * and then the changes in their descendants are not reported. Therefore, that mode is probabilistic and not enabled
+ * by default. The comparison does not use recursion, so it also works for very deep trees.
+ * <p>
+ * Path segments are derived from node keys using <code>toString()</code>. A <code>null</code> key becomes an empty
+ * path segment. The paths use the default path separator of {@link TreePath}.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeDiff {
+
+  private static final int LINEAR_MATCH_LIMIT = 8;
+
+  private final TreeDiffListener listener;
+
+  private final boolean pruneByDigest;
+
+  private final List<Frame> stack = new ArrayList<Frame>();
+
+  private String[] segments = new String[16];
+
+  private TreeDiff(TreeDiffListener listener, boolean pruneByDigest) {
+    this.listener = listener;
+    this.pruneByDigest = pruneByDigest;
+  }
+
+  /**
+   * Compares the old and the new tree, and reports the differences to the listener. Either of the tree roots may be
+   * <code>null</code>, in which case the other one is reported as added or removed.
+   *
+   * @param oldRoot The root node of the old tree.
+   * @param newRoot The root node of the new tree.
+   * @param listener The listener to receive the differences. Must not be <code>null</code>.
+   */
+  public static void compare(TreeNode oldRoot, TreeNode newRoot, TreeDiffListener listener) {
+    compare(oldRoot, newRoot, listener, false);
+  }
+
+  /**
+   * Compares the old and the new tree, and reports the differences to the listener. Either of the tree roots may be
+   * <code>null</code>, in which case the other one is reported as added or removed.
+   * <p>
+   * When <code>pruneByDigest</code> is enabled, a matched pair of nodes with equal keys and values is not inspected any
+   * further when the nodes also have equal digests (see {@link TreeNode#getDigest()}). The digests are computed (once
+   * per node) when they are first needed. Note that digests may collide: for example, values <code>"Aa"</code> and
+   * <code>"BB"</code> have equal hash codes, and so do the subtrees that differ only by them. Then the changes below
+   * the pair of nodes are not reported. Therefore, this mode should only be used when occasionally missed changes are
+   * acceptable.
+   *
+   * @param oldRoot The root node of the old tree.
+   * @param newRoot The root node of the new tree.
+   * @param listener The listener to receive the differences. Must not be <code>null</code>.
+   * @param pruneByDigest Whether to skip the child-nodes of equal nodes with equal subtree digests.
+   */
+  public static void compare(TreeNode oldRoot, TreeNode newRoot, TreeDiffListener listener, boolean pruneByDigest) {
+    if (listener == null) {
+      throw new NullPointerException("TreeDiffListener must not be null.");
+    }
+
+    TreeDiff diff = new TreeDiff(listener, pruneByDigest);
+
+    if (oldRoot == null && newRoot != null) {
+      listener.nodeAdded(diff.createPath(0), newRoot);
+    } else if (oldRoot != null && newRoot == null) {
+      listener.nodeRemoved(diff.createPath(0), oldRoot);
+    } else if (oldRoot != null) {
+      diff.compare(oldRoot, newRoot);
+    }
+  }
+
+  private void compare(TreeNode oldRoot, TreeNode newRoot) {
+    this.stack.add(new Frame(oldRoot, newRoot, 0));
+
+    while (!this.stack.isEmpty()) {
+      Frame frame = this.stack.remove(this.stack.size() - 1);
+
+      if (frame.depth > 0) {
+        setSegment(frame.depth - 1, frame.newNode.getKey());
+      }
+
+      if (frame.oldNode == frame.newNode) {
+        continue;
+      }
+
+      if (!equal(frame.oldNode.getKey(), frame.newNode.getKey())
+          || !equal(frame.oldNode.getValue(), frame.newNode.getValue())) {
+        this.listener.nodeChanged(createPath(frame.depth), frame.oldNode, frame.newNode);
+      } else if (this.pruneByDigest && frame.oldNode.getDigest() == frame.newNode.getDigest()) {
+        continue;
+      }
+
+      compareChildren(frame);
+    }
+  }
+
+  private void compareChildren(Frame parent) {
+    List<TreeNode> oldChildren = parent.oldNode.getChildren();
+    List<TreeNode> newChildren = parent.newNode.getChildren();
+    TreeNode[] matches = new TreeNode[newChildren.size()];
+    boolean[] matchedOld = new boolean[oldChildren.size()];
+
+    if (oldChildren.size() == newChildren.size() && sameKeys(oldChildren, newChildren)) {
+      oldChildren.toArray(matches);
+      Arrays.fill(matchedOld, true);
+    } else if (oldChildren.size() <= LINEAR_MATCH_LIMIT) {
+      matchLinear(oldChildren, newChildren, matches, matchedOld);
+    } else {
+      matchHashed(oldChildren, newChildren, matches, matchedOld);
+    }
+
+    for (int i = 0; i < matchedOld.length; i++) {
+      if (!matchedOld[i]) {
+        TreeNode removed = oldChildren.get(i);
+        this.listener.nodeRemoved(createChildPath(parent.depth, removed.getKey()), removed);
+      }
+    }
+
+    for (int i = 0; i < matches.length; i++) {
+      if (matches[i] == null) {
+        TreeNode added = newChildren.get(i);
+        this.listener.nodeAdded(createChildPath(parent.depth, added.getKey()), added);
+      }
+    }
+
+    // Pushed in reverse order so that the child-nodes would be compared in the same order as they appear.
+    for (int i = matches.length - 1; i >= 0; i--) {
+      if (matches[i] != null) {
+        this.stack.add(new Frame(matches[i], newChildren.get(i), parent.depth + 1));
+      }
+    }
+  }
+
+  private static boolean sameKeys(List<TreeNode> oldChildren, List<TreeNode> newChildren) {
+    for (int i = 0; i < oldChildren.size(); i++) {
+      if (!equal(oldChildren.get(i).getKey(), newChildren.get(i).getKey())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void matchLinear(List<TreeNode> oldChildren, List<TreeNode> newChildren, TreeNode[] matches,
+      boolean[] matchedOld) {
+
+    for (int i = 0; i < matches.length; i++) {
+      Object key = newChildren.get(i).getKey();
+
+      for (int j = 0; j < matchedOld.length; j++) {
+        if (!matchedOld[j] && equal(key, oldChildren.get(j).getKey())) {
+          matches[i] = oldChildren.get(j);
+          matchedOld[j] = true;
+          break;
+        }
+      }
+    }
+  }
+
+  private static void matchHashed(List<TreeNode> oldChildren, List<TreeNode> newChildren, TreeNode[] matches,
+      boolean[] matchedOld) {
+
+    Map<Object, LinkedList<Integer>> oldIndices = new HashMap<Object, LinkedList<Integer>>(oldChildren.size() * 2);
+
+    for (int i = 0; i < oldChildren.size(); i++) {
+      Object key = oldChildren.get(i).getKey();
+      LinkedList<Integer> indices = oldIndices.get(key);
+
+      if (indices == null) {
+        indices = new LinkedList<Integer>();
+        oldIndices.put(key, indices);
+      }
+
+      indices.add(i);
+    }
+
+    for (int i = 0; i < matches.length; i++) {
+      LinkedList<Integer> indices = oldIndices.get(newChildren.get(i).getKey());
+
+      if (indices != null && !indices.isEmpty()) {
+        int oldIndex = indices.removeFirst();
+        matches[i] = oldChildren.get(oldIndex);
+        matchedOld[oldIndex] = true;
+      }
+    }
+  }
+
+  private void setSegment(int index, Object key) {
+    if (index == this.segments.length) {
+      this.segments = Arrays.copyOf(this.segments, this.segments.length * 2);
+    }
+    this.segments[index] = key != null ? key.toString() : "";
+  }
+
+  private TreePath createPath(int depth) {
+    return new TreePath(Arrays.copyOf(this.segments, depth), TreePath.DEFAULT_PATH_SEPARATOR);
+  }
+
+  private TreePath createChildPath(int parentDepth, Object childKey) {
+    setSegment(parentDepth, childKey);
+    return createPath(parentDepth + 1);
+  }
+
+  private static boolean equal(Object obj1, Object obj2) {
+    return obj1 == null ? obj2 == null : obj1.equals(obj2);
+  }
+
+  /**
+   * A pair of matched nodes waiting to be compared.
+   */
+  private static final class Frame {
+
+    private final TreeNode oldNode;
+
+    private final TreeNode newNode;
+
+    private final int depth;
+
+    Frame(TreeNode oldNode, TreeNode newNode, int depth) {
+      this.oldNode = oldNode;
+      this.newNode = newNode;
+      this.depth = depth;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.diff;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+
+/**
+ * Callback contract for {@link TreeDiff} to receive the differences found between two trees. The differences are
+ * reported as soon as they are found, parents before their descendants.
+ * <p>
+ * The paths given to the methods are composed of the keys of the nodes (from the child of the root node to the affected
+ * node). The root node itself is represented by an empty path.
+ *
+ * @author Martti Tamm
+ */
+public interface TreeDiffListener {
+
+  /**
+   * Called when a node (together with its subtree) is present only in the new tree. The descendants of the added node
+   * won't be reported separately.
+   *
+   * @param path The path to the added node.
+   * @param node The added node (from the new tree).
+   */
+  void nodeAdded(TreePath path, TreeNode node);
+
+  /**
+   * Called when a node (together with its subtree) is present only in the old tree. The descendants of the removed node
+   * won't be reported separately.
+   *
+   * @param path The path to the removed node.
+   * @param node The removed node (from the old tree).
+   */
+  void nodeRemoved(TreePath path, TreeNode node);
+
+  /**
+   * Called when a node is present in both trees (with the same key and path) but its value has changed. Changes in the
+   * subtree of the node are reported separately.
+   *
+   * @param path The path to the changed node.
+   * @param oldNode The node from the old tree.
+   * @param newNode The node from the new tree.
+   */
+  void nodeChanged(TreePath path, TreeNode oldNode, TreeNode newNode);
+
+}
@@ -0,0 +1,30 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+/**
+ * Support for finding differences between two trees. The main class is {@link ws.rocket.path.diff.TreeDiff}, which
+ * compares an old and a new version of a tree, and notifies a {@link ws.rocket.path.diff.TreeDiffListener} about added,
+ * removed and changed nodes.
+ * <p>
+ * Since {@link ws.rocket.path.TreeNode}s are immutable, a new version of a tree usually reuses the unchanged subtrees
+ * of the previous version. The comparison takes advantage of that: subtrees that are the same instance are not
+ * visited. Therefore, the cost of comparison mostly depends on the amount of changes. Optionally, also subtrees with
+ * equal digests (see {@link ws.rocket.path.TreeNode#getDigest()}) may be skipped, although then colliding digests may
+ * hide some changes.
+ */
+package ws.rocket.path.diff;
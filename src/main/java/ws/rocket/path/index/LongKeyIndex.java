@@ -0,0 +1,328 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * A frozen index for resolving tree nodes by numeric keys (<code>Byte</code>, <code>Short</code>, <code>Integer</code>
+ * or <code>Long</code>) that are stored as primitive <code>long</code> values. Child-nodes are looked up by key using
+ * binary search over a primitive array, so the lookups need neither boxing of keys nor <code>equals()</code> calls.
+ * <p>
+ * Note that the keys are widened to <code>long</code>, so keys of different types with the same numeric value are
+ * equal in the index (unlike with <code>equals()</code>): for example, <code>Integer</code> 5 and <code>Long</code> 5
+ * are the same key, and <code>find(5)</code> resolves either of them.
+ * <p>
+ * The nodes are numbered in breadth-first order, where the child-nodes of a node get consecutive identifiers in the
+ * order of their keys. Therefore, the whole index consists of a few flat arrays: the keys and the nodes by identifier,
+ * and the identifier of the first child-node of each node. The primitive methods of the index work with these
+ * identifiers, while the {@link TreeNode}s (and their original keys) remain available for existing code.
+ * <p>
+ * Child-nodes with non-numeric keys are not indexed (nor their subtrees), and when siblings have equal (widened) keys,
+ * the first one is indexed. The index is built from the tree nodes eagerly (loading lazy child-nodes), and it does not
+ * reflect later changes of evictable child-nodes. An index is thread-safe.
+ *
+ * @author Martti Tamm
+ */
+public final class LongKeyIndex {
+
+  /**
+   * The identifier of the root node.
+   */
+  public static final int ROOT_ID = 0;
+
+  private static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>() {
+
+    @Override
+    public int compare(Entry entry1, Entry entry2) {
+      return entry1.key < entry2.key ? -1 : entry1.key > entry2.key ? 1 : 0;
+    }
+  };
+
+  private final TreeNode[] nodes;
+
+  private final long[] keys;
+
+  private final int[] firstChildren;
+
+  private final Map<TreeNode, Integer> ids;
+
+  /**
+   * Builds a numeric key index of a tree.
+   *
+   * @param root The root node of the tree.
+   */
+  public LongKeyIndex(TreeNode root) {
+    if (root == null) {
+      throw new NullPointerException("Tree node must not be null.");
+    }
+
+    List<TreeNode> nodeList = new ArrayList<TreeNode>();
+    long[] keyArray = new long[16];
+    int[] firstArray = new int[16];
+
+    nodeList.add(root);
+
+    for (int id = 0; id < nodeList.size(); id++) {
+      Entry[] entries = getEntries(nodeList.get(id));
+      int first = nodeList.size();
+
+      if (firstArray.length <= id + 1) {
+        firstArray = Arrays.copyOf(firstArray, firstArray.length * 2);
+      }
+      if (keyArray.length < first + entries.length) {
+        keyArray = Arrays.copyOf(keyArray, Math.max(keyArray.length * 2, first + entries.length));
+      }
+
+      firstArray[id] = first;
+      for (int i = 0; i < entries.length; i++) {
+        keyArray[first + i] = entries[i].key;
+        nodeList.add(entries[i].node);
+      }
+    }
+
+    int count = nodeList.size();
+    firstArray[count] = count;
+
+    this.nodes = nodeList.toArray(new TreeNode[count]);
+    this.keys = Arrays.copyOf(keyArray, count);
+    this.firstChildren = Arrays.copyOf(firstArray, count + 1);
+    this.ids = new IdentityHashMap<TreeNode, Integer>(count);
+
+    for (int id = count - 1; id >= 0; id--) {
+      this.ids.put(this.nodes[id], id);
+    }
+  }
+
+  /**
+   * Provides the number of indexed nodes (including the root node).
+   *
+   * @return The number of nodes.
+   */
+  public int size() {
+    return this.nodes.length;
+  }
+
+  /**
+   * Provides the root node of the indexed tree.
+   *
+   * @return The root node.
+   */
+  public TreeNode getRoot() {
+    return this.nodes[ROOT_ID];
+  }
+
+  /**
+   * Informs whether the node is in the index.
+   *
+   * @param node The node to check.
+   * @return A Boolean that is true when the node is in the index.
+   */
+  public boolean contains(TreeNode node) {
+    return this.ids.containsKey(node);
+  }
+
+  /**
+   * Provides the identifier of an indexed node. When the node occurs more than once in the tree, the identifier of its
+   * first occurrence (in breadth-first order) is returned.
+   *
+   * @param node The indexed node.
+   * @return The identifier of the node.
+   * @throws IllegalArgumentException When the node is not in the index.
+   */
+  public int getId(TreeNode node) {
+    Integer id = this.ids.get(node);
+    if (id == null) {
+      throw new IllegalArgumentException("The tree node is not in the index: " + node);
+    }
+    return id;
+  }
+
+  /**
+   * Provides the node by its identifier.
+   *
+   * @param id The identifier of the node.
+   * @return The node.
+   * @throws IndexOutOfBoundsException When the identifier is not valid.
+   */
+  public TreeNode getNode(int id) {
+    return this.nodes[id];
+  }
+
+  /**
+   * Provides the key of a node by its identifier. The key of the root node is not indexed and is always zero.
+   *
+   * @param id The identifier of the node.
+   * @return The key of the node.
+   * @throws IndexOutOfBoundsException When the identifier is not valid.
+   */
+  public long getKey(int id) {
+    return this.keys[id];
+  }
+
+  /**
+   * Provides the number of indexed child-nodes of a node.
+   *
+   * @param id The identifier of the node.
+   * @return The number of child-nodes.
+   * @throws IndexOutOfBoundsException When the identifier is not valid.
+   */
+  public int getChildCount(int id) {
+    return this.firstChildren[id + 1] - this.firstChildren[id];
+  }
+
+  /**
+   * Provides the identifier of the first indexed child-node (the one with the smallest key) of a node. The other
+   * child-nodes follow it in the order of keys.
+   *
+   * @param id The identifier of the node.
+   * @return The identifier of the first child-node (not valid when the node has no indexed child-nodes).
+   * @throws IndexOutOfBoundsException When the identifier is not valid.
+   */
+  public int getFirstChildId(int id) {
+    return this.firstChildren[id];
+  }
+
+  /**
+   * Finds the identifier of the child-node with given key.
+   *
+   * @param parentId The identifier of the parent node.
+   * @param key The key of the child-node.
+   * @return The identifier of the child-node, or -1 when not found.
+   * @throws IndexOutOfBoundsException When the parent identifier is not valid.
+   */
+  public int getChildId(int parentId, long key) {
+    int from = this.firstChildren[parentId];
+    int to = this.firstChildren[parentId + 1];
+    int index = from < to ? Arrays.binarySearch(this.keys, from, to, key) : -1;
+    return index >= 0 ? index : -1;
+  }
+
+  /**
+   * Finds the child-node with given key.
+   *
+   * @param parent The indexed parent node.
+   * @param key The key of the child-node.
+   * @return The child-node, or <code>null</code> when not found.
+   * @throws IllegalArgumentException When the parent node is not in the index.
+   */
+  public TreeNode getChild(TreeNode parent, long key) {
+    int id = getChildId(getId(parent), key);
+    return id >= 0 ? this.nodes[id] : null;
+  }
+
+  /**
+   * Finds the identifier of the node with given path of keys, starting from the root node.
+   *
+   * @param path The keys of the nodes on the path (excluding the root node).
+   * @param from The index of the first key of the path to use.
+   * @param to The index after the last key of the path to use.
+   * @return The identifier of the found node, or -1 when not found.
+   */
+  public int findId(long[] path, int from, int to) {
+    if (path == null) {
+      throw new NullPointerException("Path must not be null.");
+    }
+
+    int id = ROOT_ID;
+    for (int i = from; i < to && id >= 0; i++) {
+      id = getChildId(id, path[i]);
+    }
+    return id;
+  }
+
+  /**
+   * Finds the node with given path of keys, starting from the root node.
+   *
+   * @param path The keys of the nodes on the path (excluding the root node).
+   * @return The found node, or <code>null</code> when not found.
+   */
+  public TreeNode find(long... path) {
+    int id = findId(path, 0, path.length);
+    return id >= 0 ? this.nodes[id] : null;
+  }
+
+  /**
+   * Finds the node with given path of keys, starting from the root node.
+   *
+   * @param path The keys of the nodes on the path (excluding the root node).
+   * @return The found node, or <code>null</code> when not found.
+   */
+  public TreeNode find(int... path) {
+    if (path == null) {
+      throw new NullPointerException("Path must not be null.");
+    }
+
+    int id = ROOT_ID;
+    for (int i = 0; i < path.length && id >= 0; i++) {
+      id = getChildId(id, path[i]);
+    }
+    return id >= 0 ? this.nodes[id] : null;
+  }
+
+  /**
+   * Collects the child-nodes with numeric keys sorted by key (and by original order), omitting duplicate keys.
+   */
+  private static Entry[] getEntries(TreeNode node) {
+    List<TreeNode> children = node.getChildren();
+    List<Entry> entries = new ArrayList<Entry>(children.size());
+
+    for (TreeNode child : children) {
+      Object key = child.getKey();
+      if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+        entries.add(new Entry(((Number) key).longValue(), child));
+      }
+    }
+
+    Entry[] result = entries.toArray(new Entry[entries.size()]);
+    Arrays.sort(result, ENTRY_ORDER);
+
+    int count = 0;
+    for (int i = 0; i < result.length; i++) {
+      if (count == 0 || result[count - 1].key != result[i].key) {
+        result[count] = result[i];
+        count++;
+      }
+    }
+
+    return count < result.length ? Arrays.copyOf(result, count) : result;
+  }
+
+  /**
+   * A child-node and its numeric key, used while building the index.
+   */
+  private static final class Entry {
+
+    private final long key;
+
+    private final TreeNode node;
+
+    Entry(long key, TreeNode node) {
+      this.key = key;
+      this.node = node;
+    }
+  }
+}
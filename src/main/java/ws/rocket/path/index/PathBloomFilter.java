@@ -0,0 +1,265 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.index;
+
+import java.util.Arrays;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+import ws.rocket.path.traversal.TreeVisitResult;
+import ws.rocket.path.traversal.TreeVisitor;
+import ws.rocket.path.traversal.TreeWalker;
+
+/**
+ * A Bloom filter of the paths of all the nodes of a tree, for rejecting paths that do not exist without resolving
+ * them. Since every prefix of a node path is also the path of a node, the filter contains all the path prefixes, too.
+ * When the filter tells that a path is absent, it is definitely absent; when it tells that a path might be present,
+ * the path still has to be resolved, since it may be a false positive.
+ * <p>
+ * The filter is created either for a desired false-positive rate (see {@link #create(TreeNode, double)}), which
+ * determines the memory use, or for a given memory use (see {@link #createWithSize(TreeNode, int)}), which determines
+ * the false-positive rate. A path string is checked in a single scan of its characters, without splitting it into
+ * segments.
+ * <p>
+ * As usual, the path segments are the keys of the nodes as strings, the key of the root node is not part of the
+ * paths, and empty path segments are ignored. Note that the filter contains the keys literally, so it cannot be used
+ * with route trees having parameter keys (see {@link ws.rocket.path.route.RouteSegment}). The filter is immutable and
+ * thread-safe.
+ *
+ * @author Martti Tamm
+ */
+public final class PathBloomFilter {
+
+  private static final long SEED = 0x2545F4914F6CDD1DL;
+
+  private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+
+  private static final long FNV_PRIME = 0x100000001B3L;
+
+  private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+  private static final char SEPARATOR = TreePath.DEFAULT_PATH_SEPARATOR.charAt(0);
+
+  private final long[] bits;
+
+  private final long bitCount;
+
+  private final int hashCount;
+
+  private final int pathCount;
+
+  private PathBloomFilter(TreeNode root, long bitCount) {
+    this.pathCount = root.getSubtreeSize();
+    this.bitCount = Math.max(64, bitCount + 63 & ~63L);
+    this.bits = new long[(int) (this.bitCount / 64)];
+    this.hashCount = (int) Math.max(1, Math.min(30, Math.round((double) this.bitCount / this.pathCount * Math.log(2))));
+
+    TreeWalker.walkTree(root, new TreeVisitor() {
+
+      private long[] hashes = new long[16];
+
+      @Override
+      public TreeVisitResult preVisit(TreeNode node, int depth) {
+        if (depth == this.hashes.length) {
+          this.hashes = Arrays.copyOf(this.hashes, depth * 2);
+        }
+
+        this.hashes[depth] = depth == 0 ? SEED : addSegment(this.hashes[depth - 1], hashSegment(node.getKey()));
+        add(this.hashes[depth]);
+        return TreeVisitResult.CONTINUE;
+      }
+
+      @Override
+      public TreeVisitResult postVisit(TreeNode node, int depth) {
+        return TreeVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * Creates a filter of the paths of a tree for a desired false-positive rate.
+   *
+   * @param root The root node of the tree.
+   * @param falsePositiveRate The desired probability of a false positive (between 0 and 1, exclusive).
+   * @return The filter.
+   */
+  public static PathBloomFilter create(TreeNode root, double falsePositiveRate) {
+    if (root == null) {
+      throw new NullPointerException("Tree node must not be null.");
+    } else if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+      throw new IllegalArgumentException("False positive rate must be between 0 and 1; got: " + falsePositiveRate);
+    }
+
+    double bitsPerPath = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+    return new PathBloomFilter(root, (long) Math.ceil(root.getSubtreeSize() * bitsPerPath));
+  }
+
+  /**
+   * Creates a filter of the paths of a tree using a given amount of memory.
+   *
+   * @param root The root node of the tree.
+   * @param bytes The size of the filter in bytes (rounded up to a multiple of 8).
+   * @return The filter.
+   */
+  public static PathBloomFilter createWithSize(TreeNode root, int bytes) {
+    if (root == null) {
+      throw new NullPointerException("Tree node must not be null.");
+    } else if (bytes <= 0) {
+      throw new IllegalArgumentException("The size of the filter must be positive; got: " + bytes);
+    }
+
+    return new PathBloomFilter(root, bytes * 8L);
+  }
+
+  /**
+   * Provides the number of bits of the filter.
+   *
+   * @return The number of bits.
+   */
+  public long getBitCount() {
+    return this.bitCount;
+  }
+
+  /**
+   * Provides the number of hash functions (bits per path) used by the filter.
+   *
+   * @return The number of hash functions.
+   */
+  public int getHashCount() {
+    return this.hashCount;
+  }
+
+  /**
+   * Provides the number of paths in the filter, i.e. the number of nodes of the tree.
+   *
+   * @return The number of paths.
+   */
+  public int getPathCount() {
+    return this.pathCount;
+  }
+
+  /**
+   * Estimates the false-positive rate of the filter from its size and the number of paths.
+   *
+   * @return The expected probability of a false positive.
+   */
+  public double getExpectedFalsePositiveRate() {
+    return Math.pow(1 - Math.exp(-(double) this.hashCount * this.pathCount / this.bitCount), this.hashCount);
+  }
+
+  /**
+   * Checks whether a path string (using the default path separator) might be the path of a node.
+   *
+   * @param path The path to check.
+   * @return A Boolean that is false when the path is definitely not the path of a node.
+   */
+  public boolean mightContain(String path) {
+    long hash = SEED;
+    int length = path == null ? 0 : path.length();
+    long segment = FNV_OFFSET;
+    boolean inSegment = false;
+
+    for (int i = 0; i < length; i++) {
+      char c = path.charAt(i);
+
+      if (c != SEPARATOR) {
+        segment = (segment ^ c) * FNV_PRIME;
+        inSegment = true;
+      } else if (inSegment) {
+        hash = addSegment(hash, segment);
+        segment = FNV_OFFSET;
+        inSegment = false;
+      }
+    }
+
+    if (inSegment) {
+      hash = addSegment(hash, segment);
+    }
+
+    return contains(hash);
+  }
+
+  /**
+   * Checks whether the path segments of a tree path, starting from its current position, might be the path of a node.
+   * The position of the path is not changed.
+   *
+   * @param path The path to check.
+   * @return A Boolean that is false when the path is definitely not the path of a node.
+   */
+  public boolean mightContain(TreePath path) {
+    long hash = SEED;
+    int start = path.getPosition();
+
+    while (path.hasNext()) {
+      hash = addSegment(hash, hashSegment(path.next()));
+    }
+    while (path.getPosition() > start) {
+      path.previous();
+    }
+
+    return contains(hash);
+  }
+
+  private void add(long pathHash) {
+    long hash1 = mix(pathHash);
+    long hash2 = mix(hash1 ^ GOLDEN) | 1;
+
+    for (int i = 0; i < this.hashCount; i++) {
+      long bit = ((hash1 + i * hash2) >>> 1) % this.bitCount;
+      this.bits[(int) (bit >>> 6)] |= 1L << bit;
+    }
+  }
+
+  private boolean contains(long pathHash) {
+    long hash1 = mix(pathHash);
+    long hash2 = mix(hash1 ^ GOLDEN) | 1;
+
+    for (int i = 0; i < this.hashCount; i++) {
+      long bit = ((hash1 + i * hash2) >>> 1) % this.bitCount;
+
+      if ((this.bits[(int) (bit >>> 6)] & 1L << bit) == 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static long hashSegment(Object key) {
+    String segment = key == null ? "" : key.toString();
+    long hash = FNV_OFFSET;
+
+    for (int i = 0; i < segment.length(); i++) {
+      hash = (hash ^ segment.charAt(i)) * FNV_PRIME;
+    }
+
+    return hash;
+  }
+
+  private static long addSegment(long pathHash, long segmentHash) {
+    long hash = (pathHash ^ segmentHash) * GOLDEN;
+    return hash ^ hash >>> 29;
+  }
+
+  private static long mix(long value) {
+    long hash = (value ^ value >>> 33) * 0xFF51AFD7ED558CCDL;
+    hash = (hash ^ hash >>> 33) * 0xC4CEB9FE1A85EC53L;
+    return hash ^ hash >>> 33;
+  }
+}
@@ -0,0 +1,231 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.WeakHashMap;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * An index for finding the child-nodes of a node by the prefix of their path segment, e.g. for autocompletion. For
+ * each node queried, its child-nodes are sorted by path segment once, so the child-nodes with a given prefix are found
+ * by binary search. The best child-nodes with a prefix, ranked by a {@link TreeNodeWeigher}, are found using a sparse
+ * table of maximum weights over the sorted child-nodes. Therefore, for a node with <em>n</em> child-nodes:
+ * <ul>
+ * <li>finding the child-nodes with a prefix takes <em>O(log n)</em>;
+ * <li>finding the best <em>k</em> of them takes <em>O(log n + k log k)</em>;
+ * <li>indexing the child-nodes (on the first query of the node) takes <em>O(n log n)</em> time and memory.
+ * </ul>
+ * <p>
+ * As usual, the path segments are the keys of the nodes as strings (a <code>null</code> key is an empty segment), and
+ * they are compared case-sensitively. The indexes of the nodes are weakly cached by node instance, so they are
+ * released together with the nodes. An index is thread-safe.
+ *
+ * @author Martti Tamm
+ */
+public final class PrefixIndex {
+
+  private final TreeNodeWeigher weigher;
+
+  private final Map<TreeNode, ChildKeys> children = Collections.synchronizedMap(new WeakHashMap<TreeNode, ChildKeys>());
+
+  /**
+   * Creates an index that ranks the child-nodes by their weights.
+   *
+   * @param weigher The weigher of the nodes (<code>null</code> for ranking only by path segment).
+   */
+  public PrefixIndex(TreeNodeWeigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Finds the child-nodes of a node having a path segment with a prefix.
+   *
+   * @param parent The parent node.
+   * @param prefix The prefix of the path segments.
+   * @return An unmodifiable list of the child-nodes, sorted by path segment.
+   */
+  public List<TreeNode> findByPrefix(TreeNode parent, String prefix) {
+    ChildKeys keys = getChildKeys(parent);
+    int from = keys.findFirst(prefix);
+    return Collections.unmodifiableList(Arrays.asList(keys.nodes).subList(from, keys.findEnd(prefix, from)));
+  }
+
+  /**
+   * Finds the best child-nodes of a node having a path segment with a prefix. The child-nodes are ranked by weight
+   * (in descending order), and then by path segment.
+   *
+   * @param parent The parent node.
+   * @param prefix The prefix of the path segments.
+   * @param limit The maximum number of child-nodes to return.
+   * @return A list of at most <code>limit</code> child-nodes, the best first.
+   */
+  public List<TreeNode> complete(TreeNode parent, String prefix, int limit) {
+    ChildKeys keys = getChildKeys(parent);
+    int from = keys.findFirst(prefix);
+    int to = keys.findEnd(prefix, from);
+    List<TreeNode> result = new ArrayList<TreeNode>(Math.max(0, Math.min(limit, to - from)));
+
+    if (from < to && limit > 0) {
+      PriorityQueue<int[]> ranges = new PriorityQueue<int[]>(Math.min(limit, to - from) * 2, keys);
+      ranges.add(new int[] { from, to, keys.findBest(from, to) });
+
+      while (result.size() < limit && !ranges.isEmpty()) {
+        int[] range = ranges.poll();
+        int best = range[2];
+        result.add(keys.nodes[best]);
+
+        if (range[0] < best) {
+          ranges.add(new int[] { range[0], best, keys.findBest(range[0], best) });
+        }
+        if (best + 1 < range[1]) {
+          ranges.add(new int[] { best + 1, range[1], keys.findBest(best + 1, range[1]) });
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private ChildKeys getChildKeys(TreeNode parent) {
+    ChildKeys keys = this.children.get(parent);
+
+    if (keys == null) {
+      keys = new ChildKeys(parent.getChildren(), this.weigher);
+      this.children.put(parent, keys);
+    }
+
+    return keys;
+  }
+
+  /**
+   * The child-nodes of a node sorted by path segment, with a sparse table of the best child-nodes in ranges. Also
+   * compares the ranges of the child-nodes by their best nodes (for the priority queue).
+   */
+  private static final class ChildKeys implements Comparator<int[]> {
+
+    private final String[] keys;
+
+    private final TreeNode[] nodes;
+
+    private final long[] weights;
+
+    private final int[][] best;
+
+    ChildKeys(List<TreeNode> childNodes, TreeNodeWeigher weigher) {
+      this.nodes = childNodes.toArray(new TreeNode[childNodes.size()]);
+
+      Arrays.sort(this.nodes, new Comparator<TreeNode>() {
+
+        @Override
+        public int compare(TreeNode node1, TreeNode node2) {
+          return toSegment(node1).compareTo(toSegment(node2));
+        }
+      });
+
+      this.keys = new String[this.nodes.length];
+      this.weights = new long[this.nodes.length];
+
+      for (int i = 0; i < this.nodes.length; i++) {
+        this.keys[i] = toSegment(this.nodes[i]);
+        this.weights[i] = weigher == null ? 0 : weigher.getWeight(this.nodes[i]);
+      }
+
+      this.best = new int[this.nodes.length == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(this.nodes.length)][];
+
+      if (this.best.length > 0) {
+        this.best[0] = new int[this.nodes.length];
+        for (int i = 0; i < this.nodes.length; i++) {
+          this.best[0][i] = i;
+        }
+      }
+
+      for (int level = 1; level < this.best.length; level++) {
+        int half = 1 << level - 1;
+        int[] previous = this.best[level - 1];
+        int[] current = new int[this.nodes.length - (1 << level) + 1];
+
+        for (int i = 0; i < current.length; i++) {
+          current[i] = better(previous[i], previous[i + half]);
+        }
+
+        this.best[level] = current;
+      }
+    }
+
+    int findFirst(String prefix) {
+      int index = Arrays.binarySearch(this.keys, prefix);
+
+      if (index < 0) {
+        return -index - 1;
+      }
+
+      while (index > 0 && this.keys[index - 1].equals(prefix)) {
+        index--;
+      }
+
+      return index;
+    }
+
+    int findEnd(String prefix, int from) {
+      int low = from;
+      int high = this.keys.length;
+
+      while (low < high) {
+        int middle = low + high >>> 1;
+
+        if (this.keys[middle].startsWith(prefix)) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+
+      return low;
+    }
+
+    int findBest(int from, int to) {
+      int level = 31 - Integer.numberOfLeadingZeros(to - from);
+      return better(this.best[level][from], this.best[level][to - (1 << level)]);
+    }
+
+    @Override
+    public int compare(int[] range1, int[] range2) {
+      return better(range1[2], range2[2]) == range1[2] ? -1 : 1;
+    }
+
+    private int better(int index1, int index2) {
+      if (this.weights[index1] != this.weights[index2]) {
+        return this.weights[index1] > this.weights[index2] ? index1 : index2;
+      }
+      return Math.min(index1, index2);
+    }
+
+    private static String toSegment(TreeNode node) {
+      return node.getKey() == null ? "" : node.getKey().toString();
+    }
+  }
+}
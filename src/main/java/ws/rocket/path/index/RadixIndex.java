@@ -0,0 +1,243 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+
+/**
+ * A frozen index for resolving tree nodes by path, where chains of single-child nodes are merged into one edge, as in
+ * a radix (Patricia) trie. An edge is labelled with the path segments of its nodes, so a run of path segments along
+ * a chain is compared in one step against an array, without a lookup per node. The branches are looked up from a
+ * hash map by the first path segment of the edge.
+ * <p>
+ * As usual, the path segments are the keys of the nodes as strings (a <code>null</code> key is an empty segment), and
+ * the key of the root node is not part of the paths. When siblings have equal path segments, the first one is indexed.
+ * The index is built from the tree nodes eagerly (loading lazy child-nodes), and it does not reflect later changes of
+ * evictable child-nodes. An index is thread-safe.
+ *
+ * @author Martti Tamm
+ */
+public final class RadixIndex {
+
+  private final TreeNode root;
+
+  private final Map<String, Edge> rootEdges;
+
+  private final int edgeCount;
+
+  private final int nodeCount;
+
+  /**
+   * Builds a radix index of a tree.
+   *
+   * @param root The root node of the tree.
+   */
+  public RadixIndex(TreeNode root) {
+    if (root == null) {
+      throw new NullPointerException("Tree node must not be null.");
+    }
+
+    this.root = root;
+    this.rootEdges = createEdgeMap(root);
+
+    // The edges are created using a stack (instead of recursion), so that also very deep trees could be indexed:
+    List<Edge> pending = new ArrayList<Edge>();
+    addEdges(root, this.rootEdges, pending);
+
+    int edges = 0;
+    int nodes = 1;
+
+    while (!pending.isEmpty()) {
+      Edge edge = pending.remove(pending.size() - 1);
+      edges++;
+      nodes += edge.nodes.length;
+      addEdges(edge.nodes[edge.nodes.length - 1], edge.children, pending);
+    }
+
+    this.edgeCount = edges;
+    this.nodeCount = nodes;
+  }
+
+  /**
+   * Provides the number of edges in the index. Each edge stands for a chain of one or more nodes.
+   *
+   * @return The number of edges.
+   */
+  public int getEdgeCount() {
+    return this.edgeCount;
+  }
+
+  /**
+   * Provides the number of indexed nodes (including the root node).
+   *
+   * @return The number of nodes.
+   */
+  public int getNodeCount() {
+    return this.nodeCount;
+  }
+
+  /**
+   * Resolves the node of a path string (using the default path separator).
+   *
+   * @param path The path of the node.
+   * @return The node, or <code>null</code> when there is no node with the path.
+   */
+  public TreeNode find(String path) {
+    return find(new TreePath(path));
+  }
+
+  /**
+   * Resolves the node of the path segments of a tree path, starting from its current position. The position of the
+   * path is not changed.
+   *
+   * @param path The path of the node.
+   * @return The node, or <code>null</code> when there is no node with the path.
+   */
+  public TreeNode find(TreePath path) {
+    String[] segments = new String[path.getPathLength() - path.getPosition()];
+    int start = path.getPosition();
+
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = path.next();
+    }
+    while (path.getPosition() > start) {
+      path.previous();
+    }
+
+    return find(segments, 0, segments.length);
+  }
+
+  /**
+   * Resolves the node of a range of path segments.
+   *
+   * @param segments The path segments.
+   * @param from The index of the first path segment (inclusive).
+   * @param to The index of the last path segment (exclusive).
+   * @return The node, or <code>null</code> when there is no node with the path.
+   */
+  public TreeNode find(String[] segments, int from, int to) {
+    TreeNode result = this.root;
+    Map<String, Edge> edges = this.rootEdges;
+    int pos = from;
+
+    while (pos < to) {
+      Edge edge = edges.get(segments[pos]);
+
+      if (edge == null) {
+        return null;
+      }
+
+      int matched = edge.match(segments, pos, to);
+
+      if (matched < 0) {
+        return null;
+      }
+
+      result = edge.nodes[matched - 1];
+      edges = edge.children;
+      pos += matched;
+    }
+
+    return result;
+  }
+
+  private static Map<String, Edge> createEdgeMap(TreeNode parent) {
+    if (parent.getChildren().isEmpty()) {
+      return Collections.emptyMap();
+    }
+    return new HashMap<String, Edge>();
+  }
+
+  /**
+   * Creates the edges starting from the child-nodes of a node. The edges with new labels are added to the map of edges
+   * and to the list of edges, whose child edges are still to be created.
+   */
+  private static void addEdges(TreeNode parent, Map<String, Edge> edges, List<Edge> pending) {
+    for (TreeNode child : parent.getChildren()) {
+      String label = toSegment(child);
+
+      if (!edges.containsKey(label)) {
+        Edge edge = new Edge(child);
+        edges.put(label, edge);
+        pending.add(edge);
+      }
+    }
+  }
+
+  private static String toSegment(TreeNode node) {
+    return node.getKey() == null ? "" : node.getKey().toString();
+  }
+
+  /**
+   * A chain of nodes, where each node but the last one has exactly one child-node. The edges starting from the
+   * child-nodes of the last node are added to the map of child edges after the edge is created.
+   */
+  private static final class Edge {
+
+    private final String[] labels;
+
+    private final TreeNode[] nodes;
+
+    private final Map<String, Edge> children;
+
+    Edge(TreeNode first) {
+      List<TreeNode> chain = new ArrayList<TreeNode>();
+      TreeNode node = first;
+      chain.add(node);
+
+      while (node.getChildren().size() == 1) {
+        node = node.getChildren().get(0);
+        chain.add(node);
+      }
+
+      this.nodes = chain.toArray(new TreeNode[chain.size()]);
+      this.labels = new String[this.nodes.length];
+
+      for (int i = 0; i < this.labels.length; i++) {
+        this.labels[i] = toSegment(this.nodes[i]);
+      }
+
+      this.children = createEdgeMap(node);
+    }
+
+    /**
+     * Matches the labels of this edge with the path segments. The first label is known to match.
+     *
+     * @return The number of matched labels (when all the labels or all the segments were matched), or -1 on mismatch.
+     */
+    int match(String[] segments, int from, int to) {
+      int count = Math.min(this.labels.length, to - from);
+
+      for (int i = 1; i < count; i++) {
+        if (!this.labels[i].equals(segments[from + i])) {
+          return -1;
+        }
+      }
+
+      return count;
+    }
+  }
+}
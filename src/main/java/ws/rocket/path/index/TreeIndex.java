@@ -0,0 +1,387 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.traversal.TreeVisitResult;
+import ws.rocket.path.traversal.TreeVisitor;
+import ws.rocket.path.traversal.TreeWalker;
+
+/**
+ * A frozen index of a tree, built in one pass over the tree. The index assigns each node an identifier, which is its
+ * pre-order number, and records its post-order number, depth and parent. Therefore:
+ * <ul>
+ * <li>ancestor checks take constant time: a node is an ancestor of another when it precedes the other in pre-order and
+ * follows it in post-order;
+ * <li>the nodes of a subtree have contiguous identifiers, from the identifier of its root node to
+ * {@link #getSubtreeEnd(int)};
+ * <li>lowest common ancestors are found in constant time using a sparse table of minimum depths over the pre-order
+ * sequence (built on the first such query, taking <em>O(n log n)</em> memory).
+ * </ul>
+ * <p>
+ * The identifiers are assigned to the occurrences of the nodes in the tree. Therefore, a shared subtree (the same node
+ * instance under several parents, as produced by reusing unchanged subtrees) is indexed once per occurrence, with a
+ * separate identifier, depth and parent each time. The methods that take a node instance use its first occurrence (in
+ * pre-order), while all of its identifiers are provided by {@link #getIds(TreeNode)}. The index does not reflect
+ * changes of lazily loaded child-nodes after it was built. An index is thread-safe.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeIndex {
+
+  private final TreeNode[] nodes;
+
+  private final int[] postOrders;
+
+  private final int[] depths;
+
+  private final int[] parents;
+
+  private final int[] subtreeEnds;
+
+  private final Map<TreeNode, Integer> ids;
+
+  private final Map<TreeNode, int[]> sharedIds;
+
+  private volatile int[][] sparseTable;
+
+  /**
+   * Builds an index of a tree.
+   *
+   * @param root The root node of the tree.
+   */
+  public TreeIndex(TreeNode root) {
+    if (root == null) {
+      throw new NullPointerException("Tree node must not be null.");
+    }
+
+    int size = root.getSubtreeSize();
+    this.nodes = new TreeNode[size];
+    this.postOrders = new int[size];
+    this.depths = new int[size];
+    this.parents = new int[size];
+    this.subtreeEnds = new int[size];
+    this.ids = new IdentityHashMap<TreeNode, Integer>(size);
+    this.sharedIds = new IdentityHashMap<TreeNode, int[]>();
+
+    IndexBuilder builder = new IndexBuilder();
+    TreeWalker.walkTree(root, builder);
+    builder.storeSharedIds();
+  }
+
+  /**
+   * Provides the number of indexed nodes.
+   *
+   * @return The number of nodes.
+   */
+  public int size() {
+    return this.nodes.length;
+  }
+
+  /**
+   * Provides the root node of the indexed tree.
+   *
+   * @return The root node.
+   */
+  public TreeNode getRoot() {
+    return this.nodes[0];
+  }
+
+  /**
+   * Informs whether the node is in the index.
+   *
+   * @param node The node to check.
+   * @return A Boolean that is true when the node is in the index.
+   */
+  public boolean contains(TreeNode node) {
+    return this.ids.containsKey(node);
+  }
+
+  /**
+   * Provides the identifier (pre-order number) of a node. When the node occurs more than once in the tree, the
+   * identifier of its first occurrence is returned.
+   *
+   * @param node The indexed node.
+   * @return The identifier of the node, from zero (the root node) to <code>size() - 1</code>.
+   * @throws IllegalArgumentException When the node is not in the index.
+   */
+  public int getId(TreeNode node) {
+    Integer id = this.ids.get(node);
+    if (id == null) {
+      throw new IllegalArgumentException("The tree node is not in the index: " + node);
+    }
+    return id;
+  }
+
+  /**
+   * Provides the identifiers of all occurrences of a node in the tree (more than one when the node is shared).
+   *
+   * @param node The indexed node.
+   * @return A new array of the identifiers of the node in ascending order.
+   * @throws IllegalArgumentException When the node is not in the index.
+   */
+  public int[] getIds(TreeNode node) {
+    int[] shared = this.sharedIds.get(node);
+    return shared != null ? shared.clone() : new int[] { getId(node) };
+  }
+
+  /**
+   * Provides the node by its identifier.
+   *
+   * @param id The identifier (pre-order number) of the node.
+   * @return The node.
+   */
+  public TreeNode getNode(int id) {
+    return this.nodes[id];
+  }
+
+  /**
+   * Provides the post-order number of a node.
+   *
+   * @param id The identifier of the node.
+   * @return The post-order number of the node.
+   */
+  public int getPostOrder(int id) {
+    return this.postOrders[id];
+  }
+
+  /**
+   * Provides the depth of a node.
+   *
+   * @param id The identifier of the node.
+   * @return The depth of the node (zero for the root node).
+   */
+  public int getDepth(int id) {
+    return this.depths[id];
+  }
+
+  /**
+   * Provides the parent of a node.
+   *
+   * @param id The identifier of the node.
+   * @return The identifier of the parent node, or <code>-1</code> for the root node.
+   */
+  public int getParent(int id) {
+    return this.parents[id];
+  }
+
+  /**
+   * Provides the last identifier of the subtree of a node. The subtree consists of the nodes with identifiers from
+   * <code>id</code> to the returned value (inclusive).
+   *
+   * @param id The identifier of the root node of the subtree.
+   * @return The last identifier within the subtree.
+   */
+  public int getSubtreeEnd(int id) {
+    return this.subtreeEnds[id];
+  }
+
+  /**
+   * Provides the nodes of the subtree of a node in pre-order.
+   *
+   * @param node The root node of the subtree.
+   * @return An unmodifiable list of the nodes of the subtree.
+   * @throws IllegalArgumentException When the node is not in the index.
+   */
+  public List<TreeNode> getSubtree(TreeNode node) {
+    int id = getId(node);
+    return Collections.unmodifiableList(Arrays.asList(this.nodes).subList(id, this.subtreeEnds[id] + 1));
+  }
+
+  /**
+   * Checks whether a node is a (proper) ancestor of another node.
+   *
+   * @param ancestor The possible ancestor.
+   * @param node The possible descendant.
+   * @return A Boolean that is true when <code>ancestor</code> is on the path from the root node to <code>node</code>,
+   *         and is not <code>node</code> itself.
+   * @throws IllegalArgumentException When a node is not in the index.
+   */
+  public boolean isAncestor(TreeNode ancestor, TreeNode node) {
+    return isAncestor(getId(ancestor), getId(node));
+  }
+
+  /**
+   * Checks whether a node is a (proper) ancestor of another node.
+   *
+   * @param ancestor The identifier of the possible ancestor.
+   * @param node The identifier of the possible descendant.
+   * @return A Boolean that is true when <code>ancestor</code> is on the path from the root node to <code>node</code>,
+   *         and is not <code>node</code> itself.
+   */
+  public boolean isAncestor(int ancestor, int node) {
+    return ancestor < node && this.postOrders[ancestor] > this.postOrders[node];
+  }
+
+  /**
+   * Finds the lowest common ancestor of two nodes, i.e. the deepest node that is on the paths of both nodes. When one
+   * node is an ancestor of the other, the ancestor is returned.
+   *
+   * @param node1 A node.
+   * @param node2 Another node.
+   * @return The lowest common ancestor.
+   * @throws IllegalArgumentException When a node is not in the index.
+   */
+  public TreeNode getCommonAncestor(TreeNode node1, TreeNode node2) {
+    return this.nodes[getCommonAncestor(getId(node1), getId(node2))];
+  }
+
+  /**
+   * Finds the lowest common ancestor of two nodes, i.e. the deepest node that is on the paths of both nodes. When one
+   * node is an ancestor of the other, the ancestor is returned.
+   *
+   * @param id1 The identifier of a node.
+   * @param id2 The identifier of another node.
+   * @return The identifier of the lowest common ancestor.
+   */
+  public int getCommonAncestor(int id1, int id2) {
+    int from = Math.min(id1, id2);
+    int to = Math.max(id1, id2);
+
+    if (from == to || this.subtreeEnds[from] >= to) {
+      return from;
+    }
+
+    // The shallowest node after "from" up to "to" is a child of the common ancestor:
+    int[][] table = getSparseTable();
+    int level = 31 - Integer.numberOfLeadingZeros(to - from);
+    int min1 = table[level][from + 1];
+    int min2 = table[level][to - (1 << level) + 1];
+
+    return this.parents[this.depths[min1] <= this.depths[min2] ? min1 : min2];
+  }
+
+  private int[][] getSparseTable() {
+    int[][] table = this.sparseTable;
+
+    if (table == null) {
+      synchronized (this) {
+        table = this.sparseTable;
+        if (table == null) {
+          this.sparseTable = table = createSparseTable();
+        }
+      }
+    }
+
+    return table;
+  }
+
+  private int[][] createSparseTable() {
+    int size = this.nodes.length;
+    int[][] table = new int[32 - Integer.numberOfLeadingZeros(size)][];
+
+    table[0] = new int[size];
+    for (int i = 0; i < size; i++) {
+      table[0][i] = i;
+    }
+
+    for (int level = 1; level < table.length; level++) {
+      int half = 1 << level - 1;
+      int[] previous = table[level - 1];
+      int[] current = new int[size - (1 << level) + 1];
+
+      for (int i = 0; i < current.length; i++) {
+        int min1 = previous[i];
+        int min2 = previous[i + half];
+        current[i] = this.depths[min1] <= this.depths[min2] ? min1 : min2;
+      }
+
+      table[level] = current;
+    }
+
+    return table;
+  }
+
+  /**
+   * Records the numbers of the nodes while the tree is walked.
+   */
+  private final class IndexBuilder implements TreeVisitor {
+
+    private final Map<TreeNode, List<Integer>> sharedIds = new IdentityHashMap<TreeNode, List<Integer>>();
+
+    private int[] path = new int[16];
+
+    private int nextId;
+
+    private int nextPostOrder;
+
+    @Override
+    public TreeVisitResult preVisit(TreeNode node, int depth) {
+      int id = this.nextId++;
+      Integer firstId = TreeIndex.this.ids.get(node);
+
+      if (firstId == null) {
+        TreeIndex.this.ids.put(node, id);
+      } else {
+        addSharedId(node, firstId, id);
+      }
+
+      if (depth == this.path.length) {
+        this.path = Arrays.copyOf(this.path, depth * 2);
+      }
+
+      TreeIndex.this.nodes[id] = node;
+      TreeIndex.this.depths[id] = depth;
+      TreeIndex.this.parents[id] = depth == 0 ? -1 : this.path[depth - 1];
+      this.path[depth] = id;
+
+      return TreeVisitResult.CONTINUE;
+    }
+
+    private void addSharedId(TreeNode node, int firstId, int id) {
+      List<Integer> shared = this.sharedIds.get(node);
+
+      if (shared == null) {
+        shared = new ArrayList<Integer>();
+        shared.add(firstId);
+        this.sharedIds.put(node, shared);
+      }
+
+      shared.add(id);
+    }
+
+    private void storeSharedIds() {
+      for (Map.Entry<TreeNode, List<Integer>> entry : this.sharedIds.entrySet()) {
+        List<Integer> shared = entry.getValue();
+        int[] result = new int[shared.size()];
+
+        for (int i = 0; i < result.length; i++) {
+          result[i] = shared.get(i);
+        }
+
+        TreeIndex.this.sharedIds.put(entry.getKey(), result);
+      }
+    }
+
+    @Override
+    public TreeVisitResult postVisit(TreeNode node, int depth) {
+      int id = this.path[depth];
+      TreeIndex.this.postOrders[id] = this.nextPostOrder++;
+      TreeIndex.this.subtreeEnds[id] = this.nextId - 1;
+      return TreeVisitResult.CONTINUE;
+    }
+  }
+}
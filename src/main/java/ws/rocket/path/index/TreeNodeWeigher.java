@@ -0,0 +1,37 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.index;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Provides the weights of tree nodes for ranking them (see {@link PrefixIndex}).
+ *
+ * @author Martti Tamm
+ */
+public interface TreeNodeWeigher {
+
+  /**
+   * Provides the weight of a tree node. The weight of a node must not change while it is indexed.
+   *
+   * @param node The tree node.
+   * @return The weight of the node (higher is better).
+   */
+  long getWeight(TreeNode node);
+}
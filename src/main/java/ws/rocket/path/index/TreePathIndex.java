@@ -0,0 +1,215 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.index;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+
+/**
+ * A reverse index of a tree that provides the parent node and the path of each node without searching the tree. This
+ * is useful for reverse routing and link generation, when a node has been found by other means (e.g. by its value).
+ * <p>
+ * The index keeps the parent and the path segment of each node, where equal path segments share the same String
+ * instance, so its memory use is linear in the number of nodes also for very deep trees. The path string of a node is
+ * built when first requested (from the path segments up to the nearest ancestor with a known path string), and then
+ * cached. As usual, the key of the root node is not part of the paths, and a <code>null</code> key stands for an empty
+ * path segment.
+ * <p>
+ * The index is based on a {@link TreeIndex}, so the entries are kept per occurrence of a node in the tree. For a node
+ * that occurs more than once (a shared subtree), the methods that take a node instance use its first occurrence, and
+ * the paths of the other occurrences are provided by their identifiers (see {@link TreeIndex#getIds(TreeNode)}). An
+ * index is thread-safe.
+ *
+ * @author Martti Tamm
+ */
+public final class TreePathIndex {
+
+  private final TreeIndex index;
+
+  private final String pathSeparator;
+
+  private final String[] segments;
+
+  private final String[] paths;
+
+  /**
+   * Builds a path index of a tree, using the default path separator.
+   *
+   * @param root The root node of the tree.
+   */
+  public TreePathIndex(TreeNode root) {
+    this(new TreeIndex(root), TreePath.DEFAULT_PATH_SEPARATOR);
+  }
+
+  /**
+   * Builds a path index of a tree using an existing tree index.
+   *
+   * @param index The index of the tree.
+   * @param pathSeparator The path segment separator used in the paths.
+   */
+  public TreePathIndex(TreeIndex index, String pathSeparator) {
+    if (index == null) {
+      throw new NullPointerException("Tree index must not be null.");
+    } else if (pathSeparator == null) {
+      throw new NullPointerException("Path separator must not be null.");
+    }
+
+    this.index = index;
+    this.pathSeparator = pathSeparator;
+    this.segments = new String[index.size()];
+    this.paths = new String[index.size()];
+
+    Map<String, String> sharedSegments = new HashMap<String, String>();
+    this.segments[0] = "";
+    this.paths[0] = "";
+
+    for (int id = 1; id < this.segments.length; id++) {
+      Object key = index.getNode(id).getKey();
+      String segment = key == null ? "" : key.toString();
+      String shared = sharedSegments.get(segment);
+
+      if (shared == null) {
+        sharedSegments.put(segment, segment);
+        shared = segment;
+      }
+
+      this.segments[id] = shared;
+    }
+  }
+
+  /**
+   * Provides the tree index this path index is based on.
+   *
+   * @return The tree index.
+   */
+  public TreeIndex getTreeIndex() {
+    return this.index;
+  }
+
+  /**
+   * Provides the path segment separator used in the paths.
+   *
+   * @return The path separator.
+   */
+  public String getPathSeparator() {
+    return this.pathSeparator;
+  }
+
+  /**
+   * Provides the parent of a node.
+   *
+   * @param node The indexed node.
+   * @return The parent node, or <code>null</code> for the root node.
+   * @throws IllegalArgumentException When the node is not in the index.
+   */
+  public TreeNode getParent(TreeNode node) {
+    int parent = this.index.getParent(this.index.getId(node));
+    return parent < 0 ? null : this.index.getNode(parent);
+  }
+
+  /**
+   * Provides the path string of a node.
+   *
+   * @param node The indexed node.
+   * @return The path string of the node (an empty string for the root node).
+   * @throws IllegalArgumentException When the node is not in the index.
+   */
+  public String getPathString(TreeNode node) {
+    return getPathString(this.index.getId(node));
+  }
+
+  /**
+   * Provides the path string of a node.
+   *
+   * @param id The identifier of the node in the tree index.
+   * @return The path string of the node (an empty string for the root node).
+   */
+  public String getPathString(int id) {
+    String result = this.paths[id];
+
+    if (result == null) {
+      // Concurrent threads may create the same path string, which is harmless since strings are immutable:
+      result = createPathString(id);
+      this.paths[id] = result;
+    }
+
+    return result;
+  }
+
+  /**
+   * Provides the path segment of a node (i.e. its key as a string).
+   *
+   * @param id The identifier of the node in the tree index.
+   * @return The path segment of the node (an empty string for the root node).
+   */
+  public String getSegment(int id) {
+    return this.segments[id];
+  }
+
+  /**
+   * Creates a new tree path of a node.
+   *
+   * @param node The indexed node.
+   * @return A new tree path of the node.
+   * @throws IllegalArgumentException When the node is not in the index.
+   */
+  public TreePath getPath(TreeNode node) {
+    int id = this.index.getId(node);
+    String[] pathSegments = new String[this.index.getDepth(id)];
+
+    for (int i = pathSegments.length - 1; i >= 0; i--) {
+      pathSegments[i] = this.segments[id];
+      id = this.index.getParent(id);
+    }
+
+    return new TreePath(pathSegments, this.pathSeparator);
+  }
+
+  /**
+   * Creates the path string of a node from the path segments up to the nearest ancestor with a known path string. The
+   * path strings of the intermediate nodes are not cached, so that the memory use would not depend on the depth.
+   */
+  private String createPathString(int id) {
+    int ancestor = id;
+    int length = 0;
+
+    while (this.paths[ancestor] == null) {
+      length += this.pathSeparator.length() + this.segments[ancestor].length();
+      ancestor = this.index.getParent(ancestor);
+    }
+
+    String prefix = this.paths[ancestor];
+    char[] chars = new char[prefix.length() + length];
+    int end = chars.length;
+
+    for (int current = id; current != ancestor; current = this.index.getParent(current)) {
+      String segment = this.segments[current];
+      end -= segment.length();
+      segment.getChars(0, segment.length(), chars, end);
+      end -= this.pathSeparator.length();
+      this.pathSeparator.getChars(0, this.pathSeparator.length(), chars, end);
+    }
+
+    prefix.getChars(0, prefix.length(), chars, 0);
+    return new String(chars);
+  }
+}
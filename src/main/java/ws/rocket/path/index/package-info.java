@@ -0,0 +1,40 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+/**
+ * Indexes that are built once over a tree of {@link ws.rocket.path.TreeNode}s for answering frequent queries about the
+ * tree without walking it.
+ * <p>
+ * {@link ws.rocket.path.index.TreeIndex} numbers the nodes in pre-order and post-order, so that ancestor checks take
+ * constant time, the nodes of a subtree form a contiguous range of identifiers, and lowest common ancestors are found
+ * using a sparse table.
+ * <p>
+ * {@link ws.rocket.path.index.TreePathIndex} provides the parent and the cached path of each node, e.g. for reverse
+ * routing.
+ * <p>
+ * {@link ws.rocket.path.index.RadixIndex} resolves nodes by path, comparing the segments of single-child chains in one
+ * step.
+ * <p>
+ * {@link ws.rocket.path.index.PathBloomFilter} rejects paths that do not exist in a tree without resolving them.
+ * <p>
+ * {@link ws.rocket.path.index.PrefixIndex} finds child-nodes by the prefix of their path segment, and ranks them by
+ * weight for autocompletion.
+ * <p>
+ * {@link ws.rocket.path.index.LongKeyIndex} resolves nodes by numeric keys stored in primitive arrays.
+ */
+package ws.rocket.path.index;
@@ -0,0 +1,37 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.query;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * A condition on tree nodes, which can be used in the patterns of tree queries by its name (see {@link TreeQuery}).
+ *
+ * @author Martti Tamm
+ */
+public interface TreeNodePredicate {
+
+  /**
+   * Checks whether a tree node satisfies the condition. The method may be called concurrently.
+   *
+   * @param node The tree node to check.
+   * @return A Boolean that is true when the node satisfies the condition.
+   */
+  boolean matches(TreeNode node);
+}
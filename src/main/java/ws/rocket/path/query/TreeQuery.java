@@ -0,0 +1,634 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * A compiled query for selecting the nodes of a tree by a path pattern. The pattern consists of steps separated by
+ * slashes (a leading slash is optional), and each step matches a path segment, i.e. the key of a node as a string. As
+ * usual, the key of the root node is not part of the paths, so an empty pattern (or <code>"/"</code>) matches the root
+ * node. A step may be:
+ * <ul>
+ * <li><code>**</code> &ndash; matches any number (including zero) of path segments;
+ * <li>a segment pattern, where <code>*</code> matches any (possibly empty) sequence of characters, e.g.
+ * <code>*</code>, <code>user*</code>, or <code>routes</code>;
+ * <li>alternatives of segment patterns, separated by <code>|</code>, e.g. <code>edit|view</code>;
+ * <li>any of the above (except <code>**</code>) followed by predicates in brackets, which the matching node must
+ * satisfy: <code>[leaf]</code> (the node has no child-nodes), <code>[value]</code> (the node has a value),
+ * <code>[value=text]</code> (the value as a string equals the text), or <code>[name]</code> for a custom
+ * {@link TreeNodePredicate} given when compiling the query. A predicate is negated with <code>!</code>, e.g.
+ * <code>[!leaf]</code>.
+ * </ul>
+ * The characters <code>/ | * [ ] = \</code> are escaped with a backslash when they are part of a path segment.
+ * <p>
+ * The pattern is compiled into an automaton whose states are the positions between the steps. While walking the tree,
+ * the set of states of each node is derived from the set of its parent node (as a bit-mask), so a single pass over the
+ * tree finds all the matches. The subtrees of nodes without states are not visited (nor loaded when lazy). Therefore,
+ * the more specific the pattern, the smaller part of the tree is visited. The matching nodes are returned lazily in
+ * pre-order.
+ * <p>
+ * A compiled query is immutable and thread-safe. The queries compiled by {@link #compile(String)} are cached.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeQuery {
+
+  private static final int MAX_STEPS = 63;
+
+  private static final int CACHE_SIZE = 256;
+
+  private static final Map<String, TreeQuery> CACHE = Collections.synchronizedMap(new QueryCache());
+
+  private final String pattern;
+
+  private final Step[] steps;
+
+  private final long[] closures;
+
+  private final long acceptState;
+
+  private TreeQuery(String pattern, Map<String, TreeNodePredicate> predicates) {
+    this.pattern = pattern;
+    this.steps = new Parser(pattern, predicates).parse();
+    this.acceptState = 1L << this.steps.length;
+    this.closures = new long[this.steps.length + 1];
+
+    this.closures[this.steps.length] = this.acceptState;
+    for (int i = this.steps.length - 1; i >= 0; i--) {
+      this.closures[i] = 1L << i | (this.steps[i].anyPath ? this.closures[i + 1] : 0);
+    }
+  }
+
+  /**
+   * Provides a compiled query for a pattern without custom predicates. The compiled queries are cached by pattern.
+   *
+   * @param pattern The query pattern.
+   * @return The compiled query.
+   * @throws IllegalArgumentException When the pattern is not valid.
+   */
+  public static TreeQuery compile(String pattern) {
+    TreeQuery query = CACHE.get(pattern);
+
+    if (query == null) {
+      query = compile(pattern, null);
+      CACHE.put(pattern, query);
+    }
+
+    return query;
+  }
+
+  /**
+   * Compiles a query pattern that may refer to custom predicates. The compiled query is not cached.
+   *
+   * @param pattern The query pattern.
+   * @param predicates The custom predicates by their names (may be <code>null</code>).
+   * @return The compiled query.
+   * @throws IllegalArgumentException When the pattern is not valid, or refers to an unknown predicate.
+   */
+  public static TreeQuery compile(String pattern, Map<String, TreeNodePredicate> predicates) {
+    if (pattern == null) {
+      throw new NullPointerException("Query pattern must not be null.");
+    }
+
+    Map<String, TreeNodePredicate> customPredicates = Collections.emptyMap();
+    return new TreeQuery(pattern, predicates == null ? customPredicates : predicates);
+  }
+
+  /**
+   * Provides the pattern of this query.
+   *
+   * @return The query pattern.
+   */
+  public String getPattern() {
+    return this.pattern;
+  }
+
+  /**
+   * Selects the matching nodes of a tree lazily. Each iteration of the returned <code>Iterable</code> walks the tree
+   * again.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty tree).
+   * @return The matching nodes in pre-order.
+   */
+  public Iterable<TreeNode> select(final TreeNode root) {
+    return new Iterable<TreeNode>() {
+
+      @Override
+      public Iterator<TreeNode> iterator() {
+        return new Matches(root);
+      }
+    };
+  }
+
+  /**
+   * Selects all the matching nodes of a tree.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty tree).
+   * @return A list of the matching nodes in pre-order.
+   */
+  public List<TreeNode> selectAll(TreeNode root) {
+    List<TreeNode> result = new ArrayList<TreeNode>();
+    for (Iterator<TreeNode> matches = new Matches(root); matches.hasNext();) {
+      result.add(matches.next());
+    }
+    return result;
+  }
+
+  /**
+   * Selects the first matching node of a tree (in pre-order). The walk stops at the first match.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty tree).
+   * @return The first matching node, or <code>null</code> when there are no matches.
+   */
+  public TreeNode selectFirst(TreeNode root) {
+    Iterator<TreeNode> matches = new Matches(root);
+    return matches.hasNext() ? matches.next() : null;
+  }
+
+  @Override
+  public String toString() {
+    return this.pattern;
+  }
+
+  private long getRootStates() {
+    return this.closures[0];
+  }
+
+  private long getChildStates(long states, TreeNode child) {
+    String segment = null;
+    long result = 0;
+
+    for (int i = 0; i < this.steps.length; i++) {
+      if ((states & 1L << i) == 0) {
+        continue;
+      }
+
+      Step step = this.steps[i];
+
+      if (step.anyPath) {
+        result |= this.closures[i];
+      } else {
+        if (segment == null) {
+          Object key = child.getKey();
+          segment = key == null ? "" : key.toString();
+        }
+
+        if (step.matches(segment, child)) {
+          result |= this.closures[i + 1];
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * A step of the pattern, matching a path segment.
+   */
+  private static final class Step {
+
+    private final boolean anyPath;
+
+    private final boolean anySegment;
+
+    private final Set<String> literals;
+
+    private final String[][] globs;
+
+    private final TreeNodePredicate[] predicates;
+
+    Step() {
+      this.anyPath = true;
+      this.anySegment = true;
+      this.literals = null;
+      this.globs = null;
+      this.predicates = null;
+    }
+
+    Step(List<String[]> alternatives, List<TreeNodePredicate> predicates) {
+      boolean any = false;
+      List<String[]> globList = new ArrayList<String[]>();
+      this.literals = new HashSet<String>();
+
+      for (String[] parts : alternatives) {
+        if (parts.length == 1) {
+          this.literals.add(parts[0]);
+        } else if (parts.length == 2 && parts[0].length() == 0 && parts[1].length() == 0) {
+          any = true;
+        } else {
+          globList.add(parts);
+        }
+      }
+
+      this.anyPath = false;
+      this.anySegment = any;
+      this.globs = globList.toArray(new String[globList.size()][]);
+      this.predicates = predicates.toArray(new TreeNodePredicate[predicates.size()]);
+    }
+
+    boolean matches(String segment, TreeNode node) {
+      if (!matchesSegment(segment)) {
+        return false;
+      }
+
+      for (TreeNodePredicate predicate : this.predicates) {
+        if (!predicate.matches(node)) {
+          return false;
+        }
+      }
+
+      return true;
+    }
+
+    private boolean matchesSegment(String segment) {
+      if (this.anySegment || this.literals.contains(segment)) {
+        return true;
+      }
+
+      for (String[] glob : this.globs) {
+        if (matchesGlob(segment, glob)) {
+          return true;
+        }
+      }
+
+      return false;
+    }
+
+    private static boolean matchesGlob(String segment, String[] parts) {
+      int last = parts.length - 1;
+
+      if (segment.length() < parts[0].length() + parts[last].length() || !segment.startsWith(parts[0])
+          || !segment.endsWith(parts[last])) {
+        return false;
+      }
+
+      int from = parts[0].length();
+      int to = segment.length() - parts[last].length();
+
+      for (int i = 1; i < last; i++) {
+        int found = segment.indexOf(parts[i], from);
+
+        if (found < 0 || found + parts[i].length() > to) {
+          return false;
+        }
+
+        from = found + parts[i].length();
+      }
+
+      return true;
+    }
+  }
+
+  /**
+   * Parses a query pattern into steps.
+   */
+  private static final class Parser {
+
+    private final String pattern;
+
+    private final Map<String, TreeNodePredicate> customPredicates;
+
+    private int pos;
+
+    Parser(String pattern, Map<String, TreeNodePredicate> customPredicates) {
+      this.pattern = pattern;
+      this.customPredicates = customPredicates;
+    }
+
+    Step[] parse() {
+      List<Step> steps = new ArrayList<Step>();
+
+      if (this.pattern.startsWith("/")) {
+        this.pos = 1;
+      }
+
+      while (this.pos < this.pattern.length()) {
+        if (steps.size() == MAX_STEPS) {
+          throw error("The pattern has more than " + MAX_STEPS + " steps");
+        }
+
+        steps.add(parseStep());
+
+        if (this.pos < this.pattern.length()) {
+          if (this.pattern.charAt(this.pos) != '/') {
+            throw error("Expected '/'");
+          }
+          this.pos++;
+          if (this.pos == this.pattern.length()) {
+            throw error("Empty step");
+          }
+        }
+      }
+
+      return steps.toArray(new Step[steps.size()]);
+    }
+
+    private Step parseStep() {
+      if (this.pattern.startsWith("**", this.pos)
+          && (this.pos + 2 == this.pattern.length() || this.pattern.charAt(this.pos + 2) == '/')) {
+        this.pos += 2;
+        return new Step();
+      }
+
+      List<String[]> alternatives = new ArrayList<String[]>();
+      alternatives.add(parseGlob());
+
+      while (isAt('|')) {
+        this.pos++;
+        alternatives.add(parseGlob());
+      }
+
+      List<TreeNodePredicate> predicates = new ArrayList<TreeNodePredicate>();
+
+      while (isAt('[')) {
+        this.pos++;
+        predicates.add(parsePredicate());
+      }
+
+      return new Step(alternatives, predicates);
+    }
+
+    private String[] parseGlob() {
+      List<String> parts = new ArrayList<String>();
+      StringBuilder part = new StringBuilder();
+      int start = this.pos;
+
+      while (this.pos < this.pattern.length() && "/|[]=".indexOf(this.pattern.charAt(this.pos)) < 0) {
+        char c = this.pattern.charAt(this.pos++);
+
+        if (c == '*') {
+          parts.add(part.toString());
+          part.setLength(0);
+        } else {
+          part.append(c == '\\' ? parseEscaped() : c);
+        }
+      }
+
+      if (this.pos == start) {
+        throw error("Empty segment pattern");
+      }
+
+      parts.add(part.toString());
+      return parts.toArray(new String[parts.size()]);
+    }
+
+    private TreeNodePredicate parsePredicate() {
+      boolean negated = isAt('!');
+      if (negated) {
+        this.pos++;
+      }
+
+      int start = this.pos;
+      String name = parseText();
+      String text = null;
+
+      if (isAt('=')) {
+        this.pos++;
+        text = parseText();
+      }
+
+      if (!isAt(']')) {
+        throw error("Expected ']'");
+      }
+      this.pos++;
+
+      TreeNodePredicate predicate = resolvePredicate(name, text, start);
+      return negated ? new NotPredicate(predicate) : predicate;
+    }
+
+    private TreeNodePredicate resolvePredicate(String name, String text, int start) {
+      TreeNodePredicate predicate = null;
+
+      if ("value".equals(name)) {
+        predicate = text == null ? new ValuePredicate() : new ValueTextPredicate(text);
+      } else if (text != null) {
+        this.pos = start;
+        throw error("Only the value predicate takes a text");
+      } else if ("leaf".equals(name)) {
+        predicate = new LeafPredicate();
+      } else {
+        predicate = this.customPredicates.get(name);
+      }
+
+      if (predicate == null) {
+        this.pos = start;
+        throw error("Unknown predicate '" + name + "'");
+      }
+
+      return predicate;
+    }
+
+    private String parseText() {
+      StringBuilder text = new StringBuilder();
+
+      while (this.pos < this.pattern.length() && "]=".indexOf(this.pattern.charAt(this.pos)) < 0) {
+        char c = this.pattern.charAt(this.pos++);
+        text.append(c == '\\' ? parseEscaped() : c);
+      }
+
+      return text.toString();
+    }
+
+    private char parseEscaped() {
+      if (this.pos == this.pattern.length()) {
+        throw error("Expected an escaped character");
+      }
+      return this.pattern.charAt(this.pos++);
+    }
+
+    private boolean isAt(char c) {
+      return this.pos < this.pattern.length() && this.pattern.charAt(this.pos) == c;
+    }
+
+    private IllegalArgumentException error(String message) {
+      return new IllegalArgumentException(message + " at position " + this.pos + " of query pattern: " + this.pattern);
+    }
+  }
+
+  /**
+   * Walks the tree and finds the matching nodes one at a time.
+   */
+  private final class Matches implements Iterator<TreeNode> {
+
+    private TreeNode[] nodes = new TreeNode[16];
+
+    private long[] states = new long[16];
+
+    private int[] nextChildren = new int[16];
+
+    private int depth = -1;
+
+    private TreeNode nextMatch;
+
+    Matches(TreeNode root) {
+      if (root != null) {
+        long rootStates = getRootStates();
+        push(root, rootStates);
+        this.nextMatch = (rootStates & TreeQuery.this.acceptState) != 0 ? root : findNext();
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.nextMatch != null;
+    }
+
+    @Override
+    public TreeNode next() {
+      if (this.nextMatch == null) {
+        throw new NoSuchElementException();
+      }
+
+      TreeNode result = this.nextMatch;
+      this.nextMatch = findNext();
+      return result;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Query results do not support removal.");
+    }
+
+    private TreeNode findNext() {
+      while (this.depth >= 0) {
+        List<TreeNode> children = this.nodes[this.depth].getChildren();
+        int childIndex = this.nextChildren[this.depth];
+
+        if (childIndex < children.size()) {
+          this.nextChildren[this.depth] = childIndex + 1;
+          TreeNode child = children.get(childIndex);
+          long childStates = getChildStates(this.states[this.depth], child);
+
+          push(child, childStates);
+
+          if ((childStates & TreeQuery.this.acceptState) != 0) {
+            return child;
+          }
+        } else {
+          this.nodes[this.depth--] = null;
+        }
+      }
+
+      return null;
+    }
+
+    private void push(TreeNode node, long nodeStates) {
+      if ((nodeStates & ~TreeQuery.this.acceptState) == 0) {
+        return;
+      }
+
+      this.depth++;
+
+      if (this.depth == this.nodes.length) {
+        this.nodes = Arrays.copyOf(this.nodes, this.depth * 2);
+        this.states = Arrays.copyOf(this.states, this.depth * 2);
+        this.nextChildren = Arrays.copyOf(this.nextChildren, this.depth * 2);
+      }
+
+      this.nodes[this.depth] = node;
+      this.states[this.depth] = nodeStates;
+      this.nextChildren[this.depth] = 0;
+    }
+  }
+
+  /**
+   * Checks that a node has no child-nodes.
+   */
+  private static final class LeafPredicate implements TreeNodePredicate {
+
+    @Override
+    public boolean matches(TreeNode node) {
+      return node.getChildren().isEmpty();
+    }
+  }
+
+  /**
+   * Checks that a node has a value.
+   */
+  private static final class ValuePredicate implements TreeNodePredicate {
+
+    @Override
+    public boolean matches(TreeNode node) {
+      return node.getValue() != null;
+    }
+  }
+
+  /**
+   * Checks the value of a node as a string.
+   */
+  private static final class ValueTextPredicate implements TreeNodePredicate {
+
+    private final String text;
+
+    ValueTextPredicate(String text) {
+      this.text = text;
+    }
+
+    @Override
+    public boolean matches(TreeNode node) {
+      return node.getValue() != null && this.text.equals(node.getValue().toString());
+    }
+  }
+
+  /**
+   * Negates another predicate.
+   */
+  private static final class NotPredicate implements TreeNodePredicate {
+
+    private final TreeNodePredicate predicate;
+
+    NotPredicate(TreeNodePredicate predicate) {
+      this.predicate = predicate;
+    }
+
+    @Override
+    public boolean matches(TreeNode node) {
+      return !this.predicate.matches(node);
+    }
+  }
+
+  /**
+   * A cache of the most recently used compiled queries.
+   */
+  private static final class QueryCache extends LinkedHashMap<String, TreeQuery> {
+
+    private static final long serialVersionUID = 1L;
+
+    QueryCache() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, TreeQuery> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  }
+}
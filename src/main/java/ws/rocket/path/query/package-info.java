@@ -0,0 +1,27 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+/**
+ * Queries for selecting the nodes of a tree by path patterns, such as <code>/tenants/*&#47;routes/**&#47;admin</code>.
+ * <p>
+ * A pattern is compiled once into a {@link ws.rocket.path.query.TreeQuery}, which can be cached and used concurrently.
+ * The query selects the matching nodes lazily in a single pass over the tree, and does not visit the subtrees that
+ * cannot contain matches. Custom conditions on the nodes can be added to the patterns as named
+ * {@link ws.rocket.path.query.TreeNodePredicate}s.
+ */
+package ws.rocket.path.query;
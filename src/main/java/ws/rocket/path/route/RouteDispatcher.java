@@ -0,0 +1,238 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.route;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+
+/**
+ * A dispatcher that resolves paths in a frozen route tree with as little work per path segment as possible. The
+ * literal children of all the nodes are compiled into flat arrays: for each node, an open-addressing table of the
+ * children, keyed by the precomputed hash codes of their path segments. Resolving a path string scans it once,
+ * computing the hash code of each segment while looking for the separator, and then probes the table of the current
+ * node, comparing the segment in place. So resolving a path of literal segments does not allocate any objects, nor
+ * call any other code than <code>String</code> methods.
+ * <p>
+ * The dispatcher falls back to the generic {@link RouteTree} when a literal segment is not found, and a node on the
+ * path so far has pattern children (parameters, regular expressions or catch-all parameters). The results are the same
+ * as those of the route tree, since the route tree also tries the literal children first.
+ * <p>
+ * The dispatcher is built from the tree nodes eagerly (loading lazy child-nodes), and it does not reflect later changes
+ * of evictable child-nodes. A dispatcher is thread-safe, while each thread should use its own {@link RouteMatch}.
+ *
+ * @author Martti Tamm
+ */
+public final class RouteDispatcher {
+
+  private static final String[] NO_PARAMETERS = new String[0];
+
+  private static final char SEPARATOR = TreePath.DEFAULT_PATH_SEPARATOR.charAt(0);
+
+  private final RouteTree routeTree;
+
+  private final TreeNode[] nodes;
+
+  private final boolean[] patterns;
+
+  private final int[] tableOffsets;
+
+  private final int[] tableMasks;
+
+  private final int[] slotHashes;
+
+  private final String[] slotSegments;
+
+  private final int[] slotNodes;
+
+  /**
+   * Compiles a dispatcher for the routes of given tree.
+   *
+   * @param root The root node of the routes.
+   * @throws java.util.regex.PatternSyntaxException When a key has an invalid regular expression.
+   */
+  public RouteDispatcher(TreeNode root) {
+    this.routeTree = new RouteTree(root);
+
+    List<TreeNode> nodeList = new ArrayList<TreeNode>();
+    List<List<TreeNode>> literalLists = new ArrayList<List<TreeNode>>();
+    nodeList.add(root);
+    int tableSize = 0;
+
+    for (int node = 0; node < nodeList.size(); node++) {
+      List<TreeNode> literals = new ArrayList<TreeNode>();
+
+      for (TreeNode child : nodeList.get(node).getChildren()) {
+        if (!RouteTree.toSegment(child.getKey()).isParameter()) {
+          literals.add(child);
+          nodeList.add(child);
+        }
+      }
+
+      literalLists.add(literals);
+      tableSize += getTableCapacity(literals.size());
+    }
+
+    this.nodes = nodeList.toArray(new TreeNode[nodeList.size()]);
+    this.patterns = new boolean[this.nodes.length];
+    this.tableOffsets = new int[this.nodes.length];
+    this.tableMasks = new int[this.nodes.length];
+    this.slotHashes = new int[tableSize];
+    this.slotSegments = new String[tableSize];
+    this.slotNodes = new int[tableSize];
+
+    int offset = 0;
+    int childNode = 1;
+
+    for (int node = 0; node < this.nodes.length; node++) {
+      List<TreeNode> literals = literalLists.get(node);
+      int capacity = getTableCapacity(literals.size());
+
+      this.patterns[node] = literals.size() < this.nodes[node].getChildren().size();
+      this.tableOffsets[node] = offset;
+      this.tableMasks[node] = capacity - 1;
+
+      for (TreeNode literal : literals) {
+        addSlot(node, RouteTree.toSegment(literal.getKey()).getText(), childNode++);
+      }
+
+      offset += capacity;
+    }
+  }
+
+  /**
+   * Provides the generic route tree, which this dispatcher falls back to.
+   *
+   * @return The route tree of the same routes.
+   */
+  public RouteTree getRouteTree() {
+    return this.routeTree;
+  }
+
+  /**
+   * Creates a new match object for resolving paths with this dispatcher.
+   *
+   * @return A new match object.
+   */
+  public RouteMatch createMatch() {
+    return this.routeTree.createMatch();
+  }
+
+  /**
+   * Resolves a path string (using the default path separator). As in {@link TreePath}, empty path segments are
+   * ignored.
+   *
+   * @param path The path to resolve.
+   * @param match The match object for the result (see {@link #createMatch()}).
+   * @return A Boolean that is true when the path was resolved.
+   */
+  public boolean resolve(String path, RouteMatch match) {
+    int length = path == null ? 0 : path.length();
+    int node = 0;
+    int pos = 0;
+    boolean fallback = false;
+
+    while (true) {
+      while (pos < length && path.charAt(pos) == SEPARATOR) {
+        pos++;
+      }
+
+      if (pos == length) {
+        break;
+      }
+
+      int end = path.indexOf(SEPARATOR, pos);
+      if (end < 0) {
+        end = length;
+      }
+
+      int hash = 0;
+      for (int i = pos; i < end; i++) {
+        hash = 31 * hash + path.charAt(i);
+      }
+
+      fallback |= this.patterns[node];
+      node = findChild(node, hash, path, pos, end - pos);
+
+      if (node < 0) {
+        if (fallback) {
+          return this.routeTree.resolve(path, match);
+        }
+
+        match.clear();
+        return false;
+      }
+
+      pos = end;
+    }
+
+    match.clear();
+    match.setMatched(this.nodes[node], NO_PARAMETERS);
+    return true;
+  }
+
+  private int findChild(int node, int hash, String path, int from, int length) {
+    int mask = this.tableMasks[node];
+
+    if (mask < 0) {
+      return -1;
+    }
+
+    int offset = this.tableOffsets[node];
+
+    for (int slot = spread(hash) & mask; this.slotSegments[offset + slot] != null; slot = slot + 1 & mask) {
+      String segment = this.slotSegments[offset + slot];
+
+      if (this.slotHashes[offset + slot] == hash && segment.length() == length
+          && path.regionMatches(from, segment, 0, length)) {
+        return this.slotNodes[offset + slot];
+      }
+    }
+
+    return -1;
+  }
+
+  private void addSlot(int node, String segment, int childNode) {
+    int hash = segment.hashCode();
+    int mask = this.tableMasks[node];
+    int offset = this.tableOffsets[node];
+    int slot = spread(hash) & mask;
+
+    while (this.slotSegments[offset + slot] != null) {
+      if (this.slotSegments[offset + slot].equals(segment)) {
+        return;
+      }
+      slot = slot + 1 & mask;
+    }
+
+    this.slotHashes[offset + slot] = hash;
+    this.slotSegments[offset + slot] = segment;
+    this.slotNodes[offset + slot] = childNode;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ hash >>> 16;
+  }
+
+  private static int getTableCapacity(int entries) {
+    return entries == 0 ? 0 : Integer.highestOneBit(entries * 2 - 1) << 1;
+  }
+}
@@ -0,0 +1,156 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.route;
+
+import java.util.Arrays;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * The result of resolving a path in a {@link RouteTree}: the resolved node and the captured parameter values. A match
+ * is created by {@link RouteTree#createMatch()} and it is meant to be reused (e.g. per thread) for resolving many
+ * paths, so that resolving does not allocate collections. The parameter values are kept in an array in the order of
+ * the parameters on the route, and the names of the parameters are shared by all matches of the same route.
+ * <p>
+ * A match is not thread-safe.
+ *
+ * @author Martti Tamm
+ */
+public final class RouteMatch {
+
+  private static final String[] NO_NAMES = new String[0];
+
+  private String[] segments = new String[16];
+
+  private int segmentCount;
+
+  private final String[] values;
+
+  private String[] names = NO_NAMES;
+
+  private TreeNode node;
+
+  /**
+   * Creates a match for the routes of a tree.
+   *
+   * @param maxParameters The maximum number of parameters on a route of the tree.
+   */
+  RouteMatch(int maxParameters) {
+    this.values = new String[maxParameters];
+  }
+
+  /**
+   * Informs whether the last resolved path matched a route.
+   *
+   * @return A Boolean that is true when a route was matched.
+   */
+  public boolean isMatched() {
+    return this.node != null;
+  }
+
+  /**
+   * Provides the tree node of the matched route.
+   *
+   * @return The matched tree node, or <code>null</code> when the path did not match.
+   */
+  public TreeNode getNode() {
+    return this.node;
+  }
+
+  /**
+   * Provides the number of parameters of the matched route.
+   *
+   * @return The number of parameters (zero when the path did not match).
+   */
+  public int getParameterCount() {
+    return this.names.length;
+  }
+
+  /**
+   * Provides the name of a parameter of the matched route.
+   *
+   * @param index The index of the parameter (from zero to <code>getParameterCount() - 1</code>).
+   * @return The parameter name.
+   */
+  public String getParameterName(int index) {
+    return this.names[index];
+  }
+
+  /**
+   * Provides the value of a parameter of the matched route.
+   *
+   * @param index The index of the parameter (from zero to <code>getParameterCount() - 1</code>).
+   * @return The captured path segment (or segments of a catch-all parameter).
+   */
+  public String getParameterValue(int index) {
+    if (index >= this.names.length) {
+      throw new IndexOutOfBoundsException("Parameter index " + index + " is not less than " + this.names.length);
+    }
+    return this.values[index];
+  }
+
+  /**
+   * Provides the value of a parameter of the matched route by its name. When several parameters have the same name,
+   * the last one is returned.
+   *
+   * @param name The parameter name.
+   * @return The captured path segment (or segments of a catch-all parameter), or <code>null</code> when the route has
+   *         no such parameter.
+   */
+  public String getParameter(String name) {
+    for (int i = this.names.length - 1; i >= 0; i--) {
+      if (this.names[i].equals(name)) {
+        return this.values[i];
+      }
+    }
+    return null;
+  }
+
+  int getSegmentCount() {
+    return this.segmentCount;
+  }
+
+  String getSegment(int index) {
+    return this.segments[index];
+  }
+
+  void clear() {
+    Arrays.fill(this.segments, 0, this.segmentCount, null);
+    Arrays.fill(this.values, null);
+    this.segmentCount = 0;
+    this.names = NO_NAMES;
+    this.node = null;
+  }
+
+  void addSegment(String segment) {
+    if (this.segmentCount == this.segments.length) {
+      this.segments = Arrays.copyOf(this.segments, this.segmentCount * 2);
+    }
+    this.segments[this.segmentCount++] = segment;
+  }
+
+  void setValue(int index, String value) {
+    this.values[index] = value;
+  }
+
+  void setMatched(TreeNode matchedNode, String[] parameterNames) {
+    this.node = matchedNode;
+    this.names = parameterNames;
+  }
+}
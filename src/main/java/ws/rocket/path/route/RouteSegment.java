@@ -0,0 +1,242 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.route;
+
+import java.io.Serializable;
+import java.util.regex.Pattern;
+
+/**
+ * A key of a route tree node that matches path segments. There are four types of segments, which are also the priority
+ * order of matching (see {@link Type}):
+ * <ol>
+ * <li>literal &ndash; matches the path segment equal to its text;
+ * <li>regular expression &ndash; a parameter (<code>{name:regex}</code>) that matches a path segment matching the
+ * regular expression;
+ * <li>parameter &ndash; (<code>{name}</code>) matches any path segment;
+ * <li>catch-all &ndash; (<code>*name</code>) matches all the remaining path segments (at least one).
+ * </ol>
+ * The matched path segments of the parameters are captured by their names. The string representation of a segment is
+ * its syntax, so a segment can be parsed again from its <code>toString()</code> (see {@link #parse(String)}).
+ * <p>
+ * Instances of this class are immutable.
+ *
+ * @author Martti Tamm
+ */
+public final class RouteSegment implements Serializable {
+
+  private static final long serialVersionUID = -2944209618233406472L;
+
+  /**
+   * The types of route segments, in the priority order of matching.
+   */
+  public enum Type {
+
+    /**
+     * A segment that matches its text.
+     */
+    LITERAL,
+
+    /**
+     * A parameter that matches a segment by a regular expression.
+     */
+    REGEX,
+
+    /**
+     * A parameter that matches any segment.
+     */
+    PARAMETER,
+
+    /**
+     * A parameter that matches all the remaining segments.
+     */
+    CATCH_ALL
+  }
+
+  private final Type type;
+
+  private final String text;
+
+  private final Pattern pattern;
+
+  private RouteSegment(Type type, String text, Pattern pattern) {
+    if (text == null) {
+      throw new NullPointerException("Route segment text must not be null.");
+    } else if (type != Type.LITERAL && text.length() == 0) {
+      throw new IllegalArgumentException("Route parameter name must not be empty.");
+    }
+
+    this.type = type;
+    this.text = text;
+    this.pattern = pattern;
+  }
+
+  /**
+   * Creates a literal segment.
+   *
+   * @param text The text of the path segment to match.
+   * @return A new route segment.
+   */
+  public static RouteSegment literal(String text) {
+    return new RouteSegment(Type.LITERAL, text, null);
+  }
+
+  /**
+   * Creates a parameter segment that matches any path segment.
+   *
+   * @param name The name of the parameter.
+   * @return A new route segment.
+   */
+  public static RouteSegment parameter(String name) {
+    return new RouteSegment(Type.PARAMETER, name, null);
+  }
+
+  /**
+   * Creates a parameter segment that matches path segments by a regular expression.
+   *
+   * @param name The name of the parameter.
+   * @param regex The regular expression for matching entire path segments.
+   * @return A new route segment.
+   * @throws java.util.regex.PatternSyntaxException When the regular expression is not valid.
+   */
+  public static RouteSegment regex(String name, String regex) {
+    return new RouteSegment(Type.REGEX, name, Pattern.compile(regex));
+  }
+
+  /**
+   * Creates a catch-all parameter segment that matches all the remaining path segments.
+   *
+   * @param name The name of the parameter.
+   * @return A new route segment.
+   */
+  public static RouteSegment catchAll(String name) {
+    return new RouteSegment(Type.CATCH_ALL, name, null);
+  }
+
+  /**
+   * Parses a route segment from its syntax: <code>{name}</code> for a parameter, <code>{name:regex}</code> for a
+   * regular expression parameter, <code>*name</code> for a catch-all parameter, and any other text for a literal.
+   *
+   * @param segment The segment syntax (<code>null</code> is handled as an empty literal).
+   * @return A new route segment.
+   */
+  public static RouteSegment parse(String segment) {
+    RouteSegment result;
+
+    if (segment == null) {
+      result = literal("");
+    } else if (segment.length() > 2 && segment.startsWith("{") && segment.endsWith("}")) {
+      int colon = segment.indexOf(':');
+
+      if (colon < 0) {
+        result = parameter(segment.substring(1, segment.length() - 1));
+      } else {
+        result = regex(segment.substring(1, colon), segment.substring(colon + 1, segment.length() - 1));
+      }
+    } else if (segment.length() > 1 && segment.startsWith("*")) {
+      result = catchAll(segment.substring(1));
+    } else {
+      result = literal(segment);
+    }
+
+    return result;
+  }
+
+  /**
+   * Provides the type of this segment.
+   *
+   * @return The segment type.
+   */
+  public Type getType() {
+    return this.type;
+  }
+
+  /**
+   * Provides the text of a literal segment, or the parameter name of other segments.
+   *
+   * @return The text or parameter name.
+   */
+  public String getText() {
+    return this.text;
+  }
+
+  /**
+   * Informs whether this segment is a parameter, i.e. whether it captures the matched path segment(s).
+   *
+   * @return A Boolean that is true for all but literal segments.
+   */
+  public boolean isParameter() {
+    return this.type != Type.LITERAL;
+  }
+
+  /**
+   * Provides the regular expression of a regular expression parameter.
+   *
+   * @return The regular expression, or <code>null</code> for other types of segments.
+   */
+  public String getRegex() {
+    return this.pattern == null ? null : this.pattern.pattern();
+  }
+
+  /**
+   * Checks whether a path segment matches this segment. A catch-all segment matches any path segment.
+   *
+   * @param segment The path segment to check.
+   * @return A Boolean that is true when the path segment matches.
+   */
+  public boolean matches(String segment) {
+    boolean result;
+
+    if (this.type == Type.LITERAL) {
+      result = this.text.equals(segment);
+    } else if (this.type == Type.REGEX) {
+      result = this.pattern.matcher(segment).matches();
+    } else {
+      result = true;
+    }
+
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof RouteSegment && this.type == ((RouteSegment) obj).type && toString().equals(obj.toString());
+  }
+
+  @Override
+  public int hashCode() {
+    return toString().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    String result;
+
+    if (this.type == Type.LITERAL) {
+      result = this.text;
+    } else if (this.type == Type.REGEX) {
+      result = "{" + this.text + ":" + getRegex() + "}";
+    } else if (this.type == Type.PARAMETER) {
+      result = "{" + this.text + "}";
+    } else {
+      result = "*" + this.text;
+    }
+
+    return result;
+  }
+}
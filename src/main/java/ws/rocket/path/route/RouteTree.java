@@ -0,0 +1,325 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+
+/**
+ * Resolves paths in a tree where the keys of the nodes are {@link RouteSegment}s. Keys of other types are parsed as
+ * route segments from their string representation, so <code>"{id}"</code> is a parameter and <code>"*rest"</code> is
+ * a catch-all parameter (and a <code>null</code> key is an empty literal). As usual, the key of the root node is not
+ * part of the paths.
+ * <p>
+ * When the route tree is created, the child-nodes of each tree node are split into literal children, which are looked
+ * up by path segment from a hash map, and pattern children, which are ordered by their priority (see
+ * {@link RouteSegment.Type}; children of the same type keep their order). A path segment is first looked up from the
+ * literal children, and then matched against the pattern children in their order. When the rest of the path cannot be
+ * resolved under a child, the next candidate is tried. A catch-all parameter matches the rest of the path, so its
+ * child-nodes are never reached. The path resolves to a node when its segments are exhausted, regardless of whether the
+ * node has a value.
+ * <p>
+ * When a node has several regular expression children, their regular expressions are compiled into a single automaton,
+ * which tells all the matching children after reading a path segment once. This works when the regular expressions
+ * are regular in the strict sense (no anchors, back-references, look-around, flags, etc.); otherwise, the regular
+ * expressions of the node are run one by one.
+ * <p>
+ * The route tree is built from the tree nodes eagerly (loading lazy child-nodes), and it does not reflect later changes
+ * of evictable child-nodes. Building does not use recursion, so it also works for very deep trees, and a shared subtree
+ * (the same node instance under several parents) is built once, unless it is reached with different parameters.
+ * Resolving a path backtracks recursively, one level per path segment, so the resolved paths are limited to a few
+ * thousand segments (depending on the thread stack size). A route tree is thread-safe, while each thread should use
+ * its own {@link RouteMatch}.
+ *
+ * @author Martti Tamm
+ */
+public final class RouteTree {
+
+  private static final int MIN_AUTOMATON_REGEXES = 2;
+
+  private final RouteNode root;
+
+  private final int maxParameters;
+
+  /**
+   * Creates a route tree for the routes of given tree.
+   *
+   * @param root The root node of the routes.
+   * @throws java.util.regex.PatternSyntaxException When a key has an invalid regular expression.
+   */
+  public RouteTree(TreeNode root) {
+    if (root == null) {
+      throw new NullPointerException("Tree node must not be null.");
+    }
+
+    int[] parameters = new int[1];
+    this.root = buildNodes(root, parameters);
+    this.maxParameters = parameters[0];
+  }
+
+  /**
+   * Creates a new match object for resolving paths in this route tree.
+   *
+   * @return A new match object.
+   */
+  public RouteMatch createMatch() {
+    return new RouteMatch(this.maxParameters);
+  }
+
+  /**
+   * Resolves a path string (using the default path separator).
+   *
+   * @param path The path to resolve.
+   * @param match The match object for the result (see {@link #createMatch()}).
+   * @return A Boolean that is true when the path was resolved.
+   */
+  public boolean resolve(String path, RouteMatch match) {
+    return resolve(new TreePath(path), match);
+  }
+
+  /**
+   * Resolves the path segments of a tree path, starting from its current position. The position of the path is not
+   * changed.
+   *
+   * @param path The path to resolve.
+   * @param match The match object for the result (see {@link #createMatch()}).
+   * @return A Boolean that is true when the path was resolved.
+   */
+  public boolean resolve(TreePath path, RouteMatch match) {
+    match.clear();
+
+    int start = path.getPosition();
+    while (path.hasNext()) {
+      match.addSegment(path.next());
+    }
+    while (path.getPosition() > start) {
+      path.previous();
+    }
+
+    return resolve(this.root, match, 0);
+  }
+
+  /**
+   * Builds the route nodes of a tree using a stack (instead of recursion). A route node is reused for another
+   * occurrence of its tree node when the parameter names inherited from the parent are the same.
+   */
+  private static RouteNode buildNodes(TreeNode root, int[] maxParameters) {
+    RouteNode result = new RouteNode(root, null, new String[0]);
+    Map<TreeNode, RouteNode> built = new IdentityHashMap<TreeNode, RouteNode>();
+    List<RouteNode> pending = new ArrayList<RouteNode>();
+    pending.add(result);
+
+    while (!pending.isEmpty()) {
+      RouteNode node = pending.remove(pending.size() - 1);
+      List<TreeNode> children = node.treeNode.getChildren();
+      RouteNode[] childNodes = new RouteNode[children.size()];
+
+      for (int i = 0; i < childNodes.length; i++) {
+        TreeNode child = children.get(i);
+        RouteNode childNode = built.get(child);
+
+        if (childNode == null || childNode.parentParameterNames != node.parameterNames) {
+          childNode = new RouteNode(child, toSegment(child.getKey()), node.parameterNames);
+          maxParameters[0] = Math.max(maxParameters[0], childNode.parameterNames.length);
+          pending.add(childNode);
+
+          if (!built.containsKey(child)) {
+            built.put(child, childNode);
+          }
+        }
+
+        childNodes[i] = childNode;
+      }
+
+      node.setChildren(childNodes);
+    }
+
+    return result;
+  }
+
+  private static boolean resolve(RouteNode node, RouteMatch match, int index) {
+    if (index == match.getSegmentCount()) {
+      match.setMatched(node.treeNode, node.parameterNames);
+      return true;
+    }
+
+    String segment = match.getSegment(index);
+    RouteNode literal = node.literals.get(segment);
+
+    if (literal != null && resolve(literal, match, index + 1)) {
+      return true;
+    }
+
+    int first = 0;
+
+    if (node.regexAutomaton != null) {
+      int[] regexMatches = node.regexAutomaton.match(segment);
+
+      if (regexMatches != null) {
+        for (int i : regexMatches) {
+          if (resolveParameter(node.patterns[i], match, segment, index)) {
+            return true;
+          }
+        }
+        first = node.regexCount;
+      }
+    }
+
+    for (int i = first; i < node.patterns.length; i++) {
+      RouteNode child = node.patterns[i];
+
+      if (child.segment.getType() == RouteSegment.Type.CATCH_ALL) {
+        match.setValue(child.parameterIndex, joinSegments(match, index));
+        match.setMatched(child.treeNode, child.parameterNames);
+        return true;
+      } else if (child.segment.matches(segment) && resolveParameter(child, match, segment, index)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean resolveParameter(RouteNode child, RouteMatch match, String segment, int index) {
+    match.setValue(child.parameterIndex, segment);
+    return resolve(child, match, index + 1);
+  }
+
+  /**
+   * Provides the route segment of a tree node key.
+   *
+   * @param key The key of a tree node.
+   * @return The key itself when it is a route segment, otherwise the route segment parsed from the key as a string.
+   */
+  static RouteSegment toSegment(Object key) {
+    return key instanceof RouteSegment ? (RouteSegment) key : RouteSegment.parse(key == null ? null : key.toString());
+  }
+
+  private static String joinSegments(RouteMatch match, int from) {
+    if (from == match.getSegmentCount() - 1) {
+      return match.getSegment(from);
+    }
+
+    StringBuilder result = new StringBuilder(match.getSegment(from));
+    for (int i = from + 1; i < match.getSegmentCount(); i++) {
+      result.append(TreePath.DEFAULT_PATH_SEPARATOR).append(match.getSegment(i));
+    }
+    return result.toString();
+  }
+
+  /**
+   * A tree node with its route segment, and its child-nodes split into literals and patterns.
+   */
+  private static final class RouteNode {
+
+    private static final Comparator<RouteNode> PRIORITY = new Comparator<RouteNode>() {
+
+      @Override
+      public int compare(RouteNode node1, RouteNode node2) {
+        return node1.segment.getType().compareTo(node2.segment.getType());
+      }
+    };
+
+    private final TreeNode treeNode;
+
+    private final RouteSegment segment;
+
+    private final int parameterIndex;
+
+    private final String[] parentParameterNames;
+
+    private final String[] parameterNames;
+
+    // The child-nodes are set by setChildren(), before the route tree is published:
+    private Map<String, RouteNode> literals;
+
+    private RouteNode[] patterns;
+
+    private int regexCount;
+
+    private SegmentAutomaton regexAutomaton;
+
+    RouteNode(TreeNode treeNode, RouteSegment segment, String[] parentParameterNames) {
+      this.treeNode = treeNode;
+      this.segment = segment;
+      this.parentParameterNames = parentParameterNames;
+
+      if (segment != null && segment.isParameter()) {
+        this.parameterIndex = parentParameterNames.length;
+        this.parameterNames = Arrays.copyOf(parentParameterNames, this.parameterIndex + 1);
+        this.parameterNames[this.parameterIndex] = segment.getText();
+      } else {
+        this.parameterIndex = -1;
+        this.parameterNames = parentParameterNames;
+      }
+    }
+
+    void setChildren(RouteNode[] childNodes) {
+      Map<String, RouteNode> literalNodes = new HashMap<String, RouteNode>();
+      List<RouteNode> patternNodes = new ArrayList<RouteNode>();
+
+      for (RouteNode childNode : childNodes) {
+        if (!childNode.segment.isParameter()) {
+          if (!literalNodes.containsKey(childNode.segment.getText())) {
+            literalNodes.put(childNode.segment.getText(), childNode);
+          }
+        } else {
+          patternNodes.add(childNode);
+        }
+      }
+
+      Collections.sort(patternNodes, PRIORITY);
+
+      Map<String, RouteNode> noLiterals = Collections.emptyMap();
+      this.literals = literalNodes.isEmpty() ? noLiterals : literalNodes;
+      this.patterns = patternNodes.toArray(new RouteNode[patternNodes.size()]);
+      this.regexCount = countRegexes(this.patterns);
+      this.regexAutomaton = this.regexCount >= MIN_AUTOMATON_REGEXES ? createAutomaton() : null;
+    }
+
+    private SegmentAutomaton createAutomaton() {
+      String[] regexes = new String[this.regexCount];
+      int[] indices = new int[this.regexCount];
+
+      for (int i = 0; i < this.regexCount; i++) {
+        regexes[i] = this.patterns[i].segment.getRegex();
+        indices[i] = i;
+      }
+
+      return SegmentAutomaton.compile(regexes, indices);
+    }
+
+    private static int countRegexes(RouteNode[] nodes) {
+      int count = 0;
+      while (count < nodes.length && nodes[count].segment.getType() == RouteSegment.Type.REGEX) {
+        count++;
+      }
+      return count;
+    }
+  }
+}
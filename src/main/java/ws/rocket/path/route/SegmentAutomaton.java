@@ -0,0 +1,755 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A deterministic finite automaton that matches a path segment against several regular expressions at once. The
+ * automaton reads each character of the segment once, and the final state tells which regular expressions matched
+ * the entire segment. This replaces running each <code>java.util.regex.Pattern</code> in turn.
+ * <p>
+ * Only the regular languages subset of the <code>java.util.regex</code> syntax is supported: literals and escaped
+ * characters, <code>.</code>, character classes (with ranges, negation and the predefined classes <code>\d \D \w \W
+ * \s \S</code>), groups (capturing and <code>(?:...)</code>), alternation, and the greedy or reluctant quantifiers
+ * (<code>* + ? {n} {n,} {n,m}</code>). Since the segments are matched entirely, grouping and greediness do not affect
+ * the result. When a regular expression uses other features (anchors, back-references, look-around, flags, etc.), or
+ * when the automaton would become too large, the automaton is not created (see {@link #compile(String[], int[])}).
+ * <p>
+ * The automaton works on <code>char</code>s, while regular expressions work on code points. Therefore, segments
+ * containing surrogate characters are not matched by the automaton (see {@link #match(String)}).
+ *
+ * @author Martti Tamm
+ */
+final class SegmentAutomaton {
+
+  private static final int MAX_NFA_STATES = 10000;
+
+  private static final int MAX_DFA_STATES = 2000;
+
+  private static final int MAX_CHAR = Character.MAX_VALUE;
+
+  private static final int[] NO_MATCHES = new int[0];
+
+  private static final int[] DOT = { 0, '\n' - 1, '\n' + 1, '\r' - 1, '\r' + 1, '\u0084', '\u0086', '\u2027',
+      '\u202A', MAX_CHAR };
+
+  private static final int[][] PREDEFINED = { { '0', '9' }, { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' },
+      { '\t', '\r', ' ', ' ' } };
+
+  private final int[] classBounds;
+
+  private final int[] asciiClasses = new int[128];
+
+  private final int[][] transitions;
+
+  private final int[][] matches;
+
+  private SegmentAutomaton(int[] classBounds, int[][] transitions, int[][] matches) {
+    this.classBounds = classBounds;
+    this.transitions = transitions;
+    this.matches = matches;
+
+    for (char c = 0; c < this.asciiClasses.length; c++) {
+      this.asciiClasses[c] = findClass(c);
+    }
+  }
+
+  /**
+   * Compiles regular expressions into an automaton.
+   *
+   * @param regexes The regular expressions (already validated by <code>java.util.regex.Pattern</code>).
+   * @param indices The indices to report for the matching regular expressions (in the same order).
+   * @return The automaton, or <code>null</code> when a regular expression is not supported, or when the automaton
+   *         would be too large.
+   */
+  static SegmentAutomaton compile(String[] regexes, int[] indices) {
+    try {
+      Nfa nfa = new Nfa();
+      int[] starts = new int[regexes.length];
+
+      for (int i = 0; i < regexes.length; i++) {
+        Regex regex = new RegexParser(regexes[i]).parse();
+        starts[i] = nfa.build(regex, nfa.addAcceptState(indices[i]));
+      }
+
+      return nfa.toDfa(nfa.addEpsilonState(starts));
+    } catch (UnsupportedRegexException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Matches a path segment against all the regular expressions.
+   *
+   * @param segment The path segment to match.
+   * @return The indices of the matching regular expressions in ascending order (a shared array that must not be
+   *         modified), or <code>null</code> when the segment contains surrogate characters and must be matched using
+   *         the regular expressions.
+   */
+  int[] match(String segment) {
+    int state = 0;
+
+    for (int i = 0; i < segment.length(); i++) {
+      char c = segment.charAt(i);
+
+      if (isSurrogate(c)) {
+        return null;
+      }
+
+      state = this.transitions[state][c < this.asciiClasses.length ? this.asciiClasses[c] : findClass(c)];
+
+      if (state < 0) {
+        return NO_MATCHES;
+      }
+    }
+
+    return this.matches[state];
+  }
+
+  private int findClass(char c) {
+    int index = Arrays.binarySearch(this.classBounds, c);
+    return index >= 0 ? index : -index - 2;
+  }
+
+  /**
+   * Signals that a regular expression cannot be compiled into the automaton.
+   */
+  private static final class UnsupportedRegexException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedRegexException() {
+    }
+  }
+
+  /**
+   * A node of a parsed regular expression.
+   */
+  private static final class Regex {
+
+    private static final int CHARS = 0;
+
+    private static final int CONCAT = 1;
+
+    private static final int ALTERNATION = 2;
+
+    private static final int REPEAT = 3;
+
+    private final int kind;
+
+    private int[] ranges;
+
+    private List<Regex> children;
+
+    private int min;
+
+    private int max;
+
+    Regex(int kind) {
+      this.kind = kind;
+    }
+
+    static Regex chars(int[] ranges) {
+      Regex result = new Regex(CHARS);
+      result.ranges = ranges;
+      return result;
+    }
+
+    static Regex group(int kind, List<Regex> children) {
+      if (children.size() == 1) {
+        return children.get(0);
+      }
+
+      Regex result = new Regex(kind);
+      result.children = children;
+      return result;
+    }
+
+    static Regex repeat(Regex child, int min, int max) {
+      Regex result = new Regex(REPEAT);
+      result.children = new ArrayList<Regex>(1);
+      result.children.add(child);
+      result.min = min;
+      result.max = max;
+      return result;
+    }
+  }
+
+  /**
+   * Parses the supported subset of regular expressions.
+   */
+  private static final class RegexParser {
+
+    private final String regex;
+
+    private int pos;
+
+    RegexParser(String regex) {
+      this.regex = regex;
+    }
+
+    Regex parse() {
+      Regex result = parseAlternation();
+
+      if (this.pos < this.regex.length()) {
+        throw new UnsupportedRegexException();
+      }
+
+      return result;
+    }
+
+    private Regex parseAlternation() {
+      List<Regex> alternatives = new ArrayList<Regex>();
+      alternatives.add(parseConcatenation());
+
+      while (isAt('|')) {
+        this.pos++;
+        alternatives.add(parseConcatenation());
+      }
+
+      return Regex.group(Regex.ALTERNATION, alternatives);
+    }
+
+    private Regex parseConcatenation() {
+      List<Regex> items = new ArrayList<Regex>();
+
+      while (this.pos < this.regex.length() && !isAt('|') && !isAt(')')) {
+        items.add(parseQuantified());
+      }
+
+      return Regex.group(Regex.CONCAT, items);
+    }
+
+    private Regex parseQuantified() {
+      Regex result = parseAtom();
+
+      while (this.pos < this.regex.length()) {
+        char c = this.regex.charAt(this.pos);
+
+        if (c == '*') {
+          result = Regex.repeat(result, 0, -1);
+        } else if (c == '+') {
+          result = Regex.repeat(result, 1, -1);
+        } else if (c == '?') {
+          result = Regex.repeat(result, 0, 1);
+        } else if (c == '{') {
+          result = parseCountedRepeat(result);
+          continue;
+        } else {
+          break;
+        }
+
+        this.pos++;
+        skipReluctant();
+      }
+
+      return result;
+    }
+
+    private Regex parseCountedRepeat(Regex repeated) {
+      this.pos++;
+      int min = parseNumber();
+      int max = min;
+
+      if (isAt(',')) {
+        this.pos++;
+        max = isAt('}') ? -1 : parseNumber();
+      }
+
+      expect('}');
+      skipReluctant();
+      return Regex.repeat(repeated, min, max);
+    }
+
+    private void skipReluctant() {
+      if (isAt('?')) {
+        this.pos++;
+      } else if (isAt('+')) {
+        throw new UnsupportedRegexException();
+      }
+    }
+
+    private int parseNumber() {
+      int start = this.pos;
+
+      while (this.pos < this.regex.length() && Character.isDigit(this.regex.charAt(this.pos))) {
+        this.pos++;
+      }
+
+      if (this.pos == start || this.pos - start > 4) {
+        throw new UnsupportedRegexException();
+      }
+
+      return Integer.parseInt(this.regex.substring(start, this.pos));
+    }
+
+    private Regex parseAtom() {
+      char c = this.regex.charAt(this.pos++);
+      Regex result;
+
+      if (c == '(') {
+        if (isAt('?')) {
+          this.pos++;
+          expect(':');
+        }
+
+        result = parseAlternation();
+        expect(')');
+      } else if (c == '[') {
+        result = Regex.chars(parseClass());
+      } else if (c == '.') {
+        result = Regex.chars(DOT);
+      } else if (c == '\\') {
+        result = Regex.chars(parseEscape());
+      } else if ("^$*+?{".indexOf(c) >= 0 || isSurrogate(c)) {
+        throw new UnsupportedRegexException();
+      } else {
+        result = Regex.chars(new int[] { c, c });
+      }
+
+      return result;
+    }
+
+    private int[] parseClass() {
+      boolean negated = isAt('^');
+      if (negated) {
+        this.pos++;
+      }
+
+      if (isAt(']')) {
+        throw new UnsupportedRegexException();
+      }
+
+      List<int[]> sets = new ArrayList<int[]>();
+
+      while (!isAt(']')) {
+        if (this.pos == this.regex.length() || isAt('[') || this.regex.startsWith("&&", this.pos)) {
+          throw new UnsupportedRegexException();
+        }
+
+        int[] set = parseClassChar();
+
+        if (set.length == 2 && set[0] == set[1] && isAt('-') && this.pos + 1 < this.regex.length()
+            && this.regex.charAt(this.pos + 1) != ']') {
+          this.pos++;
+          int[] to = parseClassChar();
+
+          if (to.length != 2 || to[0] != to[1] || to[0] < set[0]) {
+            throw new UnsupportedRegexException();
+          }
+
+          set = new int[] { set[0], to[0] };
+        }
+
+        sets.add(set);
+      }
+
+      this.pos++;
+
+      int[] result = union(sets);
+      return negated ? complement(result) : result;
+    }
+
+    private int[] parseClassChar() {
+      char c = this.regex.charAt(this.pos++);
+
+      if (c == '\\') {
+        return parseEscape();
+      } else if (isSurrogate(c)) {
+        throw new UnsupportedRegexException();
+      }
+
+      return new int[] { c, c };
+    }
+
+    private int[] parseEscape() {
+      if (this.pos == this.regex.length()) {
+        throw new UnsupportedRegexException();
+      }
+
+      char c = this.regex.charAt(this.pos++);
+      int predefined = "dws".indexOf(Character.toLowerCase(c));
+      int control = "tnrfae".indexOf(c);
+      int[] result;
+
+      if (predefined >= 0) {
+        result = Character.isLowerCase(c) ? PREDEFINED[predefined] : complement(PREDEFINED[predefined]);
+      } else if (control >= 0) {
+        result = single("\t\n\r\f\u0007\u001B".charAt(control));
+      } else if (c == 'x' || c == 'u') {
+        result = single(parseHex(c == 'x' ? 2 : 4));
+      } else if (Character.isLetterOrDigit(c) || isSurrogate(c)) {
+        throw new UnsupportedRegexException();
+      } else {
+        result = single(c);
+      }
+
+      return result;
+    }
+
+    private int parseHex(int digits) {
+      if (this.pos + digits > this.regex.length()) {
+        throw new UnsupportedRegexException();
+      }
+
+      int result = 0;
+      for (int i = 0; i < digits; i++) {
+        int digit = Character.digit(this.regex.charAt(this.pos++), 16);
+        if (digit < 0) {
+          throw new UnsupportedRegexException();
+        }
+        result = result * 16 + digit;
+      }
+
+      if (isSurrogate(result)) {
+        throw new UnsupportedRegexException();
+      }
+
+      return result;
+    }
+
+    private void expect(char c) {
+      if (!isAt(c)) {
+        throw new UnsupportedRegexException();
+      }
+      this.pos++;
+    }
+
+    private boolean isAt(char c) {
+      return this.pos < this.regex.length() && this.regex.charAt(this.pos) == c;
+    }
+
+    private static int[] single(int c) {
+      return new int[] { c, c };
+    }
+  }
+
+  /**
+   * A non-deterministic automaton built from regular expressions using Thompson's construction, and converted to a
+   * deterministic one using subset construction.
+   */
+  private static final class Nfa {
+
+    private static final int[] NONE = new int[0];
+
+    private final List<int[]> ranges = new ArrayList<int[]>();
+
+    private final List<Integer> targets = new ArrayList<Integer>();
+
+    private final List<int[]> epsilons = new ArrayList<int[]>();
+
+    private final List<Integer> accepts = new ArrayList<Integer>();
+
+    int addAcceptState(int index) {
+      int state = addState(null, -1, NONE);
+      this.accepts.set(state, index);
+      return state;
+    }
+
+    int addEpsilonState(int... next) {
+      return addState(null, -1, next);
+    }
+
+    int build(Regex regex, int target) {
+      int result = target;
+
+      if (regex.kind == Regex.CHARS) {
+        result = addState(regex.ranges, target, NONE);
+      } else if (regex.kind == Regex.CONCAT) {
+        for (int i = regex.children.size() - 1; i >= 0; i--) {
+          result = build(regex.children.get(i), result);
+        }
+      } else if (regex.kind == Regex.ALTERNATION) {
+        int[] starts = new int[regex.children.size()];
+        for (int i = 0; i < starts.length; i++) {
+          starts[i] = build(regex.children.get(i), target);
+        }
+        result = addEpsilonState(starts);
+      } else {
+        result = buildRepeat(regex.children.get(0), regex.min, regex.max, target);
+      }
+
+      return result;
+    }
+
+    private int buildRepeat(Regex repeated, int min, int max, int target) {
+      int result = target;
+      int mandatory = min;
+
+      if (max < 0) {
+        int loop = addEpsilonState();
+        int start = build(repeated, loop);
+        this.epsilons.set(loop, new int[] { start, target });
+
+        result = min == 0 ? loop : start;
+        mandatory = Math.max(min - 1, 0);
+      } else {
+        for (int i = min; i < max; i++) {
+          result = addEpsilonState(build(repeated, result), target);
+        }
+      }
+
+      for (int i = 0; i < mandatory; i++) {
+        result = build(repeated, result);
+      }
+
+      return result;
+    }
+
+    private int addState(int[] stateRanges, int target, int[] next) {
+      if (this.ranges.size() == MAX_NFA_STATES) {
+        throw new UnsupportedRegexException();
+      }
+
+      this.ranges.add(stateRanges);
+      this.targets.add(target);
+      this.epsilons.add(next);
+      this.accepts.add(-1);
+      return this.ranges.size() - 1;
+    }
+
+    SegmentAutomaton toDfa(int start) {
+      int[] bounds = getClassBounds();
+      List<int[]> dfaStates = new ArrayList<int[]>();
+      Map<StateSet, Integer> dfaIds = new HashMap<StateSet, Integer>();
+      List<int[]> transitions = new ArrayList<int[]>();
+
+      int[] startSet = closure(new int[] { start });
+      dfaStates.add(startSet);
+      dfaIds.put(new StateSet(startSet), 0);
+
+      for (int dfaState = 0; dfaState < dfaStates.size(); dfaState++) {
+        int[] nfaStates = dfaStates.get(dfaState);
+        int[] row = new int[bounds.length];
+
+        for (int charClass = 0; charClass < bounds.length; charClass++) {
+          int[] nextSet = closure(move(nfaStates, bounds[charClass]));
+
+          if (nextSet.length == 0) {
+            row[charClass] = -1;
+            continue;
+          }
+
+          StateSet key = new StateSet(nextSet);
+          Integer nextState = dfaIds.get(key);
+
+          if (nextState == null) {
+            if (dfaStates.size() == MAX_DFA_STATES) {
+              throw new UnsupportedRegexException();
+            }
+
+            nextState = dfaStates.size();
+            dfaStates.add(nextSet);
+            dfaIds.put(key, nextState);
+          }
+
+          row[charClass] = nextState;
+        }
+
+        transitions.add(row);
+      }
+
+      int[][] matches = new int[dfaStates.size()][];
+      for (int i = 0; i < matches.length; i++) {
+        matches[i] = getAccepts(dfaStates.get(i));
+      }
+
+      return new SegmentAutomaton(bounds, transitions.toArray(new int[transitions.size()][]), matches);
+    }
+
+    private int[] getClassBounds() {
+      TreeSet<Integer> bounds = new TreeSet<Integer>();
+      bounds.add(0);
+
+      for (int[] stateRanges : this.ranges) {
+        if (stateRanges != null) {
+          for (int i = 0; i < stateRanges.length; i += 2) {
+            bounds.add(stateRanges[i]);
+            if (stateRanges[i + 1] < MAX_CHAR) {
+              bounds.add(stateRanges[i + 1] + 1);
+            }
+          }
+        }
+      }
+
+      int[] result = new int[bounds.size()];
+      int i = 0;
+      for (Integer bound : bounds) {
+        result[i++] = bound;
+      }
+      return result;
+    }
+
+    private int[] move(int[] nfaStates, int c) {
+      TreeSet<Integer> result = new TreeSet<Integer>();
+
+      for (int state : nfaStates) {
+        int[] stateRanges = this.ranges.get(state);
+        if (stateRanges != null && contains(stateRanges, c)) {
+          result.add(this.targets.get(state));
+        }
+      }
+
+      return toArray(result);
+    }
+
+    private int[] closure(int[] nfaStates) {
+      TreeSet<Integer> result = new TreeSet<Integer>();
+      List<Integer> pending = new ArrayList<Integer>();
+
+      for (int state : nfaStates) {
+        pending.add(state);
+      }
+
+      while (!pending.isEmpty()) {
+        int state = pending.remove(pending.size() - 1);
+
+        if (result.add(state)) {
+          for (int next : this.epsilons.get(state)) {
+            pending.add(next);
+          }
+        }
+      }
+
+      return toArray(result);
+    }
+
+    private int[] getAccepts(int[] nfaStates) {
+      TreeSet<Integer> result = new TreeSet<Integer>();
+
+      for (int state : nfaStates) {
+        if (this.accepts.get(state) >= 0) {
+          result.add(this.accepts.get(state));
+        }
+      }
+
+      return result.isEmpty() ? NO_MATCHES : toArray(result);
+    }
+
+    private static boolean contains(int[] ranges, int c) {
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (c >= ranges[i] && c <= ranges[i + 1]) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private static int[] toArray(TreeSet<Integer> values) {
+      int[] result = new int[values.size()];
+      int i = 0;
+      for (Integer value : values) {
+        result[i++] = value;
+      }
+      return result;
+    }
+  }
+
+  /**
+   * A set of NFA states as a key of a DFA state.
+   */
+  private static final class StateSet {
+
+    private final int[] states;
+
+    private final int hash;
+
+    StateSet(int[] states) {
+      this.states = states;
+      this.hash = Arrays.hashCode(states);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof StateSet && Arrays.equals(this.states, ((StateSet) obj).states);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+
+  private static boolean isSurrogate(int c) {
+    return c >= Character.MIN_SURROGATE && c <= Character.MAX_SURROGATE;
+  }
+
+  private static int[] union(List<int[]> sets) {
+    List<int[]> ranges = new ArrayList<int[]>();
+
+    for (int[] set : sets) {
+      for (int i = 0; i < set.length; i += 2) {
+        ranges.add(new int[] { set[i], set[i + 1] });
+      }
+    }
+
+    Collections.sort(ranges, new Comparator<int[]>() {
+
+      @Override
+      public int compare(int[] range1, int[] range2) {
+        return range1[0] - range2[0];
+      }
+    });
+
+    List<int[]> merged = new ArrayList<int[]>();
+
+    for (int[] range : ranges) {
+      int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+
+      if (last != null && range[0] <= last[1] + 1) {
+        last[1] = Math.max(last[1], range[1]);
+      } else {
+        merged.add(range);
+      }
+    }
+
+    int[] result = new int[merged.size() * 2];
+    for (int i = 0; i < merged.size(); i++) {
+      result[i * 2] = merged.get(i)[0];
+      result[i * 2 + 1] = merged.get(i)[1];
+    }
+    return result;
+  }
+
+  private static int[] complement(int[] ranges) {
+    List<int[]> result = new ArrayList<int[]>();
+    int from = 0;
+
+    for (int i = 0; i < ranges.length; i += 2) {
+      if (ranges[i] > from) {
+        result.add(new int[] { from, ranges[i] - 1 });
+      }
+      from = ranges[i + 1] + 1;
+    }
+
+    if (from <= MAX_CHAR) {
+      result.add(new int[] { from, MAX_CHAR });
+    }
+
+    return union(result);
+  }
+}
@@ -0,0 +1,27 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+/**
+ * Resolving request paths in route trees, where the keys of the nodes may be path segment patterns.
+ * <p>
+ * The keys are {@link ws.rocket.path.route.RouteSegment}s (or strings in their syntax): literals, parameters
+ * (<code>{id}</code>), parameters restricted by a regular expression (<code>{id:\d+}</code>), and catch-all parameters
+ * (<code>*rest</code>). {@link ws.rocket.path.route.RouteTree} resolves paths in a tree of such nodes with a fixed
+ * priority order, and captures the parameter values into a reusable {@link ws.rocket.path.route.RouteMatch}.
+ */
+package ws.rocket.path.route;
@@ -0,0 +1,313 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+
+/**
+ * Resolves many paths against the same tree at once. The paths are sorted by their segments, so that the paths with a
+ * common prefix follow each other, and the nodes of a common prefix are looked up only once: each path is resolved
+ * from the deepest node of the prefix it shares with the previous path. The child-nodes of a node with many
+ * child-nodes are looked up from a hash map, which is created once per batch (or part of the batch).
+ * <p>
+ * The sorted paths can be resolved in parallel: they are split into parts at the boundaries of the first path
+ * segment, so that the parts resolve disjoint subtrees (except for very large groups, which are split further).
+ * <p>
+ * As usual, the path segments are the keys of the nodes as strings (a <code>null</code> key is an empty segment), the
+ * key of the root node is not part of the paths, and the first one of siblings with equal path segments is used. The
+ * paths are resolved from their current position, which is not changed.
+ *
+ * @author Martti Tamm
+ */
+public final class BatchResolver {
+
+  private static final int PARTS_PER_THREAD = 4;
+
+  private static final int MAP_THRESHOLD = 8;
+
+  private BatchResolver() {
+  }
+
+  /**
+   * Resolves the nodes of the paths.
+   *
+   * @param root The root node of the tree.
+   * @param paths The paths to resolve.
+   * @return The resolved nodes in the order of the paths (<code>null</code> for paths that do not resolve).
+   */
+  public static TreeNode[] resolve(TreeNode root, Collection<TreePath> paths) {
+    String[][] segments = getSegments(paths);
+    Integer[] order = sort(segments);
+    TreeNode[] result = new TreeNode[segments.length];
+
+    new Part(root, segments, order, 0, order.length, result).call();
+
+    return result;
+  }
+
+  /**
+   * Resolves the nodes of the paths in parallel.
+   *
+   * @param root The root node of the tree.
+   * @param paths The paths to resolve.
+   * @param executor The executor for running the tasks.
+   * @param parallelism The expected number of threads of the executor.
+   * @return The resolved nodes in the order of the paths (<code>null</code> for paths that do not resolve).
+   */
+  public static TreeNode[] resolve(TreeNode root, Collection<TreePath> paths, ExecutorService executor,
+      int parallelism) {
+
+    String[][] segments = getSegments(paths);
+    Integer[] order = sort(segments);
+    TreeNode[] result = new TreeNode[segments.length];
+
+    int partSize = Math.max(1, order.length / (Math.max(1, parallelism) * PARTS_PER_THREAD));
+    List<Future<Object>> futures = new ArrayList<Future<Object>>();
+    int from = 0;
+
+    while (from < order.length) {
+      int to = findPartEnd(segments, order, from, partSize);
+      futures.add(executor.submit(new Part(root, segments, order, from, to, result)));
+      from = to;
+    }
+
+    waitFor(futures);
+
+    return result;
+  }
+
+  private static String[][] getSegments(Collection<TreePath> paths) {
+    String[][] result = new String[paths.size()][];
+    int index = 0;
+
+    for (TreePath path : paths) {
+      String[] segments = new String[path.getPathLength() - path.getPosition()];
+      int start = path.getPosition();
+
+      for (int i = 0; i < segments.length; i++) {
+        segments[i] = path.next();
+      }
+      while (path.getPosition() > start) {
+        path.previous();
+      }
+
+      result[index++] = segments;
+    }
+
+    return result;
+  }
+
+  private static Integer[] sort(final String[][] segments) {
+    Integer[] order = new Integer[segments.length];
+
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+
+    Arrays.sort(order, new Comparator<Integer>() {
+
+      @Override
+      public int compare(Integer index1, Integer index2) {
+        String[] path1 = segments[index1];
+        String[] path2 = segments[index2];
+        int common = Math.min(path1.length, path2.length);
+
+        for (int i = 0; i < common; i++) {
+          int result = path1[i].compareTo(path2[i]);
+          if (result != 0) {
+            return result;
+          }
+        }
+
+        return path1.length - path2.length;
+      }
+    });
+
+    return order;
+  }
+
+  /**
+   * Finds the end of a part: the next boundary of the first path segment after the part has reached given size.
+   */
+  private static int findPartEnd(String[][] segments, Integer[] order, int from, int partSize) {
+    int to = Math.min(from + partSize, order.length);
+
+    while (to < order.length && to - from < partSize * 2 && sameFirstSegment(segments, order[to - 1], order[to])) {
+      to++;
+    }
+
+    return to;
+  }
+
+  private static boolean sameFirstSegment(String[][] segments, int index1, int index2) {
+    String[] path1 = segments[index1];
+    String[] path2 = segments[index2];
+    return path1.length > 0 && path2.length > 0 && path1[0].equals(path2[0]);
+  }
+
+  private static void waitFor(List<Future<Object>> futures) {
+    RuntimeException failure = null;
+
+    for (Future<Object> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for batch resolution.", e);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+              : new RuntimeException("Batch resolution failed.", e.getCause());
+        }
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Resolves a range of the sorted paths, reusing the nodes of the prefix shared with the previous path.
+   */
+  private static final class Part implements Callable<Object> {
+
+    private final TreeNode root;
+
+    private final String[][] segments;
+
+    private final Integer[] order;
+
+    private final int from;
+
+    private final int to;
+
+    private final TreeNode[] result;
+
+    private final Map<TreeNode, Map<String, TreeNode>> childMaps =
+        new IdentityHashMap<TreeNode, Map<String, TreeNode>>();
+
+    Part(TreeNode root, String[][] segments, Integer[] order, int from, int to, TreeNode[] result) {
+      this.root = root;
+      this.segments = segments;
+      this.order = order;
+      this.from = from;
+      this.to = to;
+      this.result = result;
+    }
+
+    @Override
+    public Object call() {
+      TreeNode[] prefix = new TreeNode[16];
+      String[] previous = null;
+      int resolved = 0;
+      prefix[0] = this.root;
+
+      for (int i = this.from; i < this.to; i++) {
+        String[] path = this.segments[this.order[i]];
+        int depth = previous == null ? 0 : getCommonLength(previous, path, resolved);
+
+        if (path.length >= prefix.length) {
+          prefix = Arrays.copyOf(prefix, path.length * 2);
+        }
+
+        while (depth < path.length) {
+          TreeNode child = findChild(prefix[depth], path[depth]);
+
+          if (child == null) {
+            break;
+          }
+
+          prefix[++depth] = child;
+        }
+
+        this.result[this.order[i]] = depth == path.length ? prefix[depth] : null;
+        previous = path;
+        resolved = depth;
+      }
+
+      return null;
+    }
+
+    private TreeNode findChild(TreeNode parent, String segment) {
+      List<TreeNode> children = parent.getChildren();
+
+      if (children.size() > MAP_THRESHOLD) {
+        return getChildMap(parent, children).get(segment);
+      }
+
+      for (TreeNode child : children) {
+        if (segment.equals(toSegment(child))) {
+          return child;
+        }
+      }
+
+      return null;
+    }
+
+    private Map<String, TreeNode> getChildMap(TreeNode parent, List<TreeNode> children) {
+      Map<String, TreeNode> map = this.childMaps.get(parent);
+
+      if (map == null) {
+        map = new HashMap<String, TreeNode>();
+
+        for (TreeNode child : children) {
+          String segment = toSegment(child);
+          if (!map.containsKey(segment)) {
+            map.put(segment, child);
+          }
+        }
+
+        this.childMaps.put(parent, map);
+      }
+
+      return map;
+    }
+
+    private static int getCommonLength(String[] path1, String[] path2, int maxLength) {
+      int length = Math.min(maxLength, path2.length);
+
+      for (int i = 0; i < length; i++) {
+        if (!path1[i].equals(path2[i])) {
+          return i;
+        }
+      }
+
+      return length;
+    }
+
+    private static String toSegment(TreeNode node) {
+      return node.getKey() == null ? "" : node.getKey().toString();
+    }
+  }
+}
@@ -0,0 +1,172 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Iterator over the nodes of a tree in level-order (breadth-first): the root node first, then its child-nodes, then
+ * the nodes at depth two, and so on. The nodes at the same depth are returned in the order of their parents, and the
+ * child-nodes of a parent in their order.
+ * <p>
+ * The iterator keeps the nodes to be visited in a queue, which takes memory proportional to the width of the tree. The
+ * path to the current node is available only when path tracking is enabled. Then the iterator keeps all the visited
+ * nodes (and their parents) in the queue, which takes memory proportional to the size of the tree. Without path
+ * tracking, only the current node itself is available from {@link #getPathNode(int)}.
+ *
+ * @author Martti Tamm
+ */
+public final class LevelOrderIterator extends TreeIterator {
+
+  private final boolean trackPaths;
+
+  private TreeNode[] queue = new TreeNode[16];
+
+  private int[] depths = new int[16];
+
+  private int[] parents = new int[16];
+
+  private int head;
+
+  private int tail;
+
+  private int current = -1;
+
+  /**
+   * Creates an iterator without a tree (see {@link #reset(TreeNode)}), and without path tracking.
+   */
+  public LevelOrderIterator() {
+    this(null, false);
+  }
+
+  /**
+   * Creates an iterator over the nodes of given tree without path tracking.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty iteration).
+   */
+  public LevelOrderIterator(TreeNode root) {
+    this(root, false);
+  }
+
+  /**
+   * Creates an iterator over the nodes of given tree.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty iteration).
+   * @param trackPaths Whether the iterator must provide the paths of the nodes.
+   */
+  public LevelOrderIterator(TreeNode root, boolean trackPaths) {
+    this.trackPaths = trackPaths;
+    reset(root);
+  }
+
+  /**
+   * Reports whether the iterator provides the paths of the nodes.
+   *
+   * @return A Boolean that is <code>true</code> when path tracking is enabled.
+   */
+  public boolean isTrackPaths() {
+    return this.trackPaths;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return this.head < this.tail;
+  }
+
+  @Override
+  void init(TreeNode root) {
+    Arrays.fill(this.queue, 0, this.tail, null);
+    this.head = 0;
+    this.tail = 0;
+    this.current = -1;
+
+    if (root != null) {
+      enqueue(root, 0, -1);
+    }
+  }
+
+  @Override
+  TreeNode advance() {
+    this.current = this.head++;
+
+    TreeNode node = this.queue[this.current];
+    List<TreeNode> children = node.getChildren();
+    int depth = this.depths[this.current] + 1;
+
+    for (int i = 0; i < children.size(); i++) {
+      enqueue(children.get(i), depth, this.current);
+    }
+
+    return node;
+  }
+
+  @Override
+  int getCurrentDepth() {
+    return this.depths[this.current];
+  }
+
+  @Override
+  TreeNode getCurrentPathNode(int depth) {
+    int index = this.current;
+
+    if (depth != this.depths[index] && !this.trackPaths) {
+      throw new IllegalStateException("Path tracking is not enabled.");
+    }
+
+    while (this.depths[index] > depth) {
+      index = this.parents[index];
+    }
+
+    return this.queue[index];
+  }
+
+  private void enqueue(TreeNode node, int depth, int parent) {
+    if (this.tail == this.queue.length) {
+      makeRoom();
+    }
+
+    this.queue[this.tail] = node;
+    this.depths[this.tail] = depth;
+    this.parents[this.tail] = parent;
+    this.tail++;
+  }
+
+  private void makeRoom() {
+    int start = this.trackPaths || this.current < 0 ? 0 : this.current;
+
+    if (start > this.queue.length / 2) {
+      int length = this.tail - start;
+      System.arraycopy(this.queue, start, this.queue, 0, length);
+      System.arraycopy(this.depths, start, this.depths, 0, length);
+      Arrays.fill(this.queue, length, this.tail, null);
+
+      this.head -= start;
+      this.current -= start;
+      this.tail = length;
+    } else {
+      int capacity = this.queue.length * 2;
+      this.queue = Arrays.copyOf(this.queue, capacity);
+      this.depths = Arrays.copyOf(this.depths, capacity);
+      this.parents = Arrays.copyOf(this.parents, capacity);
+    }
+  }
+}
@@ -0,0 +1,182 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Processes the nodes of a tree in parallel, using an executor service. The tree is split into parts of (roughly)
+ * equal size using {@link TreeSpliterator}, and each part is processed by a separate task. The number of parts is a
+ * few times the requested parallelism, so that the work would be balanced even when the processing of some nodes takes
+ * longer.
+ * <p>
+ * The parts are balanced by the subtree sizes only when the size of the tree is already known (see
+ * {@link TreeNode#isSubtreeSizeKnown()}). Otherwise, the subtrees are split by count, so that the traversal would not
+ * need an additional pass over the tree (which would also load all lazily expanded nodes before any parallel work).
+ * <p>
+ * Note that the order, in which the nodes are processed, is not defined. The calling thread waits until all parts have
+ * been processed. When processing a part fails, the first failure is thrown (after all tasks have completed).
+ *
+ * @author Martti Tamm
+ */
+public final class ParallelTraversal {
+
+  private static final int PARTS_PER_THREAD = 4;
+
+  private ParallelTraversal() {
+  }
+
+  /**
+   * Performs an action on each node of a tree in parallel.
+   *
+   * @param root The root node of the tree.
+   * @param executor The executor for running the tasks.
+   * @param parallelism The expected number of threads of the executor.
+   * @param action The action to perform on each node.
+   */
+  public static void forEach(TreeNode root, ExecutorService executor, int parallelism, final TreeNodeAction action) {
+    collect(root, executor, parallelism, new TreeCollector<Object>() {
+
+      @Override
+      public Object create() {
+        return null;
+      }
+
+      @Override
+      public Object add(Object result, TreeNode node) {
+        action.perform(node);
+        return null;
+      }
+
+      @Override
+      public Object merge(Object left, Object right) {
+        return null;
+      }
+    });
+  }
+
+  /**
+   * Collects a result from the nodes of a tree in parallel.
+   *
+   * @param <R> The type of the result.
+   * @param root The root node of the tree.
+   * @param executor The executor for running the tasks.
+   * @param parallelism The expected number of threads of the executor.
+   * @param collector The collector of the result.
+   * @return The merged result of all parts.
+   */
+  public static <R> R collect(TreeNode root, ExecutorService executor, int parallelism,
+      final TreeCollector<R> collector) {
+
+    boolean sized = root != null && root.isSubtreeSizeKnown();
+    List<TreeSpliterator> parts = split(new TreeSpliterator(root, sized), Math.max(1, parallelism) * PARTS_PER_THREAD);
+    List<Future<R>> futures = new ArrayList<Future<R>>(parts.size());
+
+    for (final TreeSpliterator part : parts) {
+      futures.add(executor.submit(new Callable<R>() {
+
+        @Override
+        public R call() {
+          R result = collector.create();
+          while (part.hasNext()) {
+            result = collector.add(result, part.next());
+          }
+          return result;
+        }
+      }));
+    }
+
+    return mergeResults(futures, collector);
+  }
+
+  /**
+   * Splits the iterator into at most given number of parts, splitting the largest part each time.
+   */
+  private static List<TreeSpliterator> split(TreeSpliterator spliterator, int maxParts) {
+    List<TreeSpliterator> parts = new ArrayList<TreeSpliterator>();
+    parts.add(spliterator);
+
+    int splittable = 0;
+
+    while (parts.size() < maxParts && splittable < parts.size()) {
+      int largest = splittable;
+
+      for (int i = splittable + 1; i < parts.size(); i++) {
+        if (getWeight(parts.get(i)) > getWeight(parts.get(largest))) {
+          largest = i;
+        }
+      }
+
+      TreeSpliterator prefix = parts.get(largest).trySplit();
+
+      if (prefix != null) {
+        parts.add(prefix);
+      } else {
+        // Unsplittable parts are moved to the beginning of the list and excluded from further splitting:
+        TreeSpliterator unsplittable = parts.get(largest);
+        parts.set(largest, parts.get(splittable));
+        parts.set(splittable++, unsplittable);
+      }
+    }
+
+    return parts;
+  }
+
+  /**
+   * Provides the number of remaining nodes of a sized part, or the number of remaining subtrees otherwise.
+   */
+  private static long getWeight(TreeSpliterator part) {
+    return part.isSized() ? part.estimateSize() : part.getSubtreeCount();
+  }
+
+  private static <R> R mergeResults(List<Future<R>> futures, TreeCollector<R> collector) {
+    R result = null;
+    boolean first = true;
+    RuntimeException failure = null;
+
+    for (Future<R> future : futures) {
+      try {
+        R partResult = future.get();
+        result = first ? partResult : collector.merge(result, partResult);
+        first = false;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while waiting for parallel tree traversal.", e);
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+              : new RuntimeException("Parallel tree traversal failed.", e.getCause());
+        }
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,118 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Base class for the depth-first iterators, which keep the path from the root node to the current node in an array
+ * (together with the index of each node among the child-nodes of its parent).
+ *
+ * @author Martti Tamm
+ */
+abstract class PathStackIterator extends TreeIterator {
+
+  private TreeNode[] nodes = new TreeNode[16];
+
+  private int[] indices = new int[16];
+
+  private int depth = -1;
+
+  private TreeNode root;
+
+  @Override
+  final void init(TreeNode rootNode) {
+    Arrays.fill(this.nodes, 0, this.depth + 1, null);
+    this.depth = -1;
+    this.root = rootNode;
+  }
+
+  @Override
+  final int getCurrentDepth() {
+    return this.depth;
+  }
+
+  @Override
+  final TreeNode getCurrentPathNode(int pathDepth) {
+    return this.nodes[pathDepth];
+  }
+
+  /**
+   * Reports whether the iteration has not started yet, and there is a root node to start with.
+   *
+   * @return A Boolean that is <code>true</code> when the next node will be the first one.
+   */
+  final boolean isStartPending() {
+    return this.depth < 0 && this.root != null;
+  }
+
+  final int getStackDepth() {
+    return this.depth;
+  }
+
+  final TreeNode getStackNode() {
+    return this.nodes[this.depth];
+  }
+
+  /**
+   * Starts the iteration by pushing the root node to the stack.
+   */
+  final void pushRoot() {
+    push(this.root, 0);
+    this.root = null;
+  }
+
+  final void push(TreeNode node, int index) {
+    this.depth++;
+
+    if (this.depth == this.nodes.length) {
+      this.nodes = Arrays.copyOf(this.nodes, this.depth * 2);
+      this.indices = Arrays.copyOf(this.indices, this.depth * 2);
+    }
+
+    this.nodes[this.depth] = node;
+    this.indices[this.depth] = index;
+  }
+
+  final void pop() {
+    this.nodes[this.depth--] = null;
+  }
+
+  /**
+   * Checks whether the node at given depth has a following sibling.
+   *
+   * @param stackDepth The depth of the node (must be positive).
+   * @return A Boolean that is <code>true</code> when the node has a following sibling.
+   */
+  final boolean hasNextSibling(int stackDepth) {
+    return this.indices[stackDepth] + 1 < this.nodes[stackDepth - 1].getChildren().size();
+  }
+
+  /**
+   * Replaces the current node (the top of the stack) with its following sibling. The current node must have one.
+   */
+  final void moveToNextSibling() {
+    List<TreeNode> siblings = this.nodes[this.depth - 1].getChildren();
+    int index = ++this.indices[this.depth];
+    this.nodes[this.depth] = siblings.get(index);
+  }
+}
@@ -0,0 +1,79 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.List;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Iterator over the nodes of a tree in post-order: a node is returned after its child-nodes (and their subtrees), and
+ * the child-nodes are returned in their order. Therefore, the root node is returned last.
+ * <p>
+ * The iterator keeps the path to the current node in a stack, which takes memory proportional to the depth of the
+ * tree.
+ *
+ * @author Martti Tamm
+ */
+public final class PostOrderIterator extends PathStackIterator {
+
+  /**
+   * Creates an iterator without a tree (see {@link #reset(TreeNode)}).
+   */
+  public PostOrderIterator() {
+  }
+
+  /**
+   * Creates an iterator over the nodes of given tree.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty iteration).
+   */
+  public PostOrderIterator(TreeNode root) {
+    reset(root);
+  }
+
+  @Override
+  public boolean hasNext() {
+    return getStackDepth() < 0 ? isStartPending() : getStackDepth() > 0;
+  }
+
+  @Override
+  TreeNode advance() {
+    if (getStackDepth() < 0) {
+      pushRoot();
+      descendToFirstLeaf();
+    } else if (hasNextSibling(getStackDepth())) {
+      moveToNextSibling();
+      descendToFirstLeaf();
+    } else {
+      pop();
+    }
+
+    return getStackNode();
+  }
+
+  private void descendToFirstLeaf() {
+    List<TreeNode> children = getStackNode().getChildren();
+
+    while (!children.isEmpty()) {
+      push(children.get(0), 0);
+      children = getStackNode().getChildren();
+    }
+  }
+}
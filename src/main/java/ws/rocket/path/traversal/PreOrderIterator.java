@@ -0,0 +1,103 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.List;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Iterator over the nodes of a tree in pre-order: a node is returned before its child-nodes, and the child-nodes are
+ * returned in their order. The iterator can be told to skip the subtree of the current node (see
+ * {@link #skipSubtree()}).
+ * <p>
+ * The iterator keeps the path to the current node in a stack, which takes memory proportional to the depth of the
+ * tree.
+ *
+ * @author Martti Tamm
+ */
+public final class PreOrderIterator extends PathStackIterator {
+
+  private boolean descend = true;
+
+  /**
+   * Creates an iterator without a tree (see {@link #reset(TreeNode)}).
+   */
+  public PreOrderIterator() {
+  }
+
+  /**
+   * Creates an iterator over the nodes of given tree.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty iteration).
+   */
+  public PreOrderIterator(TreeNode root) {
+    reset(root);
+  }
+
+  /**
+   * Tells the iterator not to visit the child-nodes (and the rest of the subtree) of the current node. The next node
+   * will be the following sibling of the current node (or of its closest ancestor having one).
+   */
+  public void skipSubtree() {
+    this.descend = false;
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (getStackDepth() < 0) {
+      return isStartPending();
+    } else if (this.descend && !getStackNode().getChildren().isEmpty()) {
+      return true;
+    }
+
+    for (int depth = getStackDepth(); depth > 0; depth--) {
+      if (hasNextSibling(depth)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  TreeNode advance() {
+    boolean descendCurrent = this.descend;
+    this.descend = true;
+
+    if (getStackDepth() < 0) {
+      pushRoot();
+      return getStackNode();
+    }
+
+    List<TreeNode> children = getStackNode().getChildren();
+
+    if (descendCurrent && !children.isEmpty()) {
+      push(children.get(0), 0);
+      return getStackNode();
+    }
+
+    while (!hasNextSibling(getStackDepth())) {
+      pop();
+    }
+
+    moveToNextSibling();
+    return getStackNode();
+  }
+}
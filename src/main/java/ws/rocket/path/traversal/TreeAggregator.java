@@ -0,0 +1,61 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Contract for aggregating a result over the nodes of a subtree (see {@link TreeFold}). The results of the child-nodes
+ * are combined monoid-style, starting from {@link #empty()}, and the combined result is then aggregated with the node
+ * itself. For example, the depth of a subtree is aggregated with <code>empty() = 0</code>,
+ * <code>combine(a, b) = max(a, b)</code> and <code>aggregate(node, c) = c + 1</code>.
+ * <p>
+ * Since the results are cached per node, the aggregation must depend only on the node and its subtree, and the results
+ * should be immutable. The results must not refer to the tree nodes, otherwise they won't be released from the cache.
+ *
+ * @param <R> The type of the aggregated result.
+ * @author Martti Tamm
+ */
+public interface TreeAggregator<R> {
+
+  /**
+   * Provides the identity result for combining, i.e. the combined result of a node without child-nodes.
+   *
+   * @return The identity result.
+   */
+  R empty();
+
+  /**
+   * Combines the results of two subtrees. The combination must be associative and must not modify the given results.
+   *
+   * @param left The result of the preceding subtree(s).
+   * @param right The result of the next subtree.
+   * @return The combined result.
+   */
+  R combine(R left, R right);
+
+  /**
+   * Aggregates the result of a subtree from its root node and the combined result of its child-nodes.
+   *
+   * @param node The root node of the subtree.
+   * @param children The combined result of the child-nodes (or {@link #empty()} when there are none).
+   * @return The result of the subtree.
+   */
+  R aggregate(TreeNode node, R children);
+}
@@ -0,0 +1,57 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Contract for collecting a result from the nodes of a tree in parallel (see {@link ParallelTraversal}). Each part of
+ * the tree is collected into its own (mutable) result container, and the containers of the parts are merged at the
+ * end. Since the order of the nodes across the parts is not defined, the merge should not depend on it.
+ *
+ * @param <R> The type of the result container.
+ * @author Martti Tamm
+ */
+public interface TreeCollector<R> {
+
+  /**
+   * Creates a new (empty) result container for a part of the tree.
+   *
+   * @return A new result container.
+   */
+  R create();
+
+  /**
+   * Adds a tree node to a result container. A container is used by one thread at a time.
+   *
+   * @param result The result container of a part of the tree.
+   * @param node The tree node to add.
+   * @return The result container (the same or a replaced one, e.g. for immutable results).
+   */
+  R add(R result, TreeNode node);
+
+  /**
+   * Merges two result containers.
+   *
+   * @param left The result container of a part of the tree.
+   * @param right The result container of another part of the tree.
+   * @return The merged result container.
+   */
+  R merge(R left, R right);
+}
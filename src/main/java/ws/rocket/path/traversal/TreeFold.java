@@ -0,0 +1,173 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Memoized aggregation of subtrees: the result of a {@link TreeAggregator} is computed once per tree node and cached
+ * for the following requests. Since the tree nodes are immutable, a tree is updated by replacing the nodes on the path
+ * (spine) from the root node to the changed node, while the other subtrees are shared by the old and the new tree. When
+ * the result of the new root node is requested, only the results of the new nodes are computed, and the cached results
+ * of the shared subtrees are reused.
+ * <p>
+ * The results are weakly keyed by the node instances, so the results of the nodes no longer in use are released. The
+ * subtrees are aggregated without recursion. A fold is thread-safe; however, concurrent requests may aggregate the same
+ * new nodes more than once.
+ *
+ * @param <R> The type of the aggregated result.
+ * @author Martti Tamm
+ */
+public final class TreeFold<R> {
+
+  private static final Object NULL = new Object();
+
+  private final TreeAggregator<R> aggregator;
+
+  private final Map<TreeNode, Object> results = Collections.synchronizedMap(new WeakHashMap<TreeNode, Object>());
+
+  /**
+   * Creates a new fold with an empty cache.
+   *
+   * @param aggregator The aggregator of the results.
+   */
+  public TreeFold(TreeAggregator<R> aggregator) {
+    if (aggregator == null) {
+      throw new NullPointerException("Tree aggregator must not be null.");
+    }
+    this.aggregator = aggregator;
+  }
+
+  /**
+   * Provides the aggregator of the results.
+   *
+   * @return The aggregator.
+   */
+  public TreeAggregator<R> getAggregator() {
+    return this.aggregator;
+  }
+
+  /**
+   * Provides the aggregated result of a subtree, computing the results of the nodes that have no cached result.
+   *
+   * @param node The root node of the subtree.
+   * @return The aggregated result.
+   */
+  public R get(TreeNode node) {
+    if (node == null) {
+      throw new NullPointerException("Tree node must not be null.");
+    }
+
+    Object result = this.results.get(node);
+    return unmask(result != null ? result : compute(node));
+  }
+
+  /**
+   * Informs whether the result of given node is cached.
+   *
+   * @param node The tree node to check.
+   * @return A Boolean that is true when the result of the node is cached.
+   */
+  public boolean isCached(TreeNode node) {
+    return this.results.containsKey(node);
+  }
+
+  /**
+   * Provides the number of cached results.
+   *
+   * @return The number of cached results.
+   */
+  public int getCachedCount() {
+    return this.results.size();
+  }
+
+  /**
+   * Removes all cached results.
+   */
+  public void clear() {
+    this.results.clear();
+  }
+
+  private Object compute(TreeNode root) {
+    List<Frame> stack = new ArrayList<Frame>();
+    stack.add(new Frame(root));
+    Object result = null;
+
+    while (!stack.isEmpty()) {
+      Frame frame = stack.get(stack.size() - 1);
+
+      if (frame.children == null) {
+        frame.children = frame.node.getChildren();
+
+        for (TreeNode child : frame.children) {
+          if (!this.results.containsKey(child)) {
+            stack.add(new Frame(child));
+          }
+        }
+      } else {
+        stack.remove(stack.size() - 1);
+        result = mask(this.aggregator.aggregate(frame.node, combineChildren(frame.children)));
+        this.results.put(frame.node, result);
+      }
+    }
+
+    return result;
+  }
+
+  private R combineChildren(List<TreeNode> children) {
+    R combined = this.aggregator.empty();
+
+    for (TreeNode child : children) {
+      Object result = this.results.get(child);
+      combined = this.aggregator.combine(combined, unmask(result != null ? result : compute(child)));
+    }
+
+    return combined;
+  }
+
+  private static Object mask(Object result) {
+    return result == null ? NULL : result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private R unmask(Object result) {
+    return result == NULL ? null : (R) result;
+  }
+
+  /**
+   * A node waiting for the results of its child-nodes. The child-nodes are kept for aggregation, since the list may be
+   * reloaded (as new nodes) in the meantime for nodes with evictable child-nodes.
+   */
+  private static final class Frame {
+
+    private final TreeNode node;
+
+    private List<TreeNode> children;
+
+    Frame(TreeNode node) {
+      this.node = node;
+    }
+  }
+}
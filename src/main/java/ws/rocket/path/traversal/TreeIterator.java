@@ -0,0 +1,175 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+
+/**
+ * Base class for the iterators over the nodes of a tree. The iterators do not use recursion, and they can be reused for
+ * iterating over another tree (see {@link #reset(TreeNode)}), which avoids allocating their internal arrays again.
+ * <p>
+ * In addition to the nodes, an iterator provides the depth and the path of the node last returned by {@link #next()}.
+ * The path consists of the nodes from the root node to the current node (see {@link #getPathNode(int)}), and it can be
+ * converted to a {@link TreePath} (or to path segments) when needed. Like {@link ws.rocket.path.diff.TreeDiff}, the
+ * path segments are derived from node keys using <code>toString()</code>, a <code>null</code> key becomes an empty
+ * segment, and the root node key is not a part of the path.
+ * <p>
+ * The iterators do not support removal, and they are not thread-safe. Note that iterating over lazily expanded nodes
+ * (see {@link TreeNode#createLazy(Object, Object, ws.rocket.path.ChildNodesLoader)}) loads their child-nodes (except
+ * when the iterator is told to skip them).
+ *
+ * @author Martti Tamm
+ */
+public abstract class TreeIterator implements Iterator<TreeNode> {
+
+  private TreeNode current;
+
+  /**
+   * Constructor for the iterators of this package.
+   */
+  TreeIterator() {
+  }
+
+  /**
+   * Resets the iterator to iterate over the nodes of another tree (from the beginning), reusing its internal arrays.
+   *
+   * @param root The root node of the tree to iterate over (<code>null</code> for an empty iteration).
+   * @return This iterator.
+   */
+  public final TreeIterator reset(TreeNode root) {
+    this.current = null;
+    init(root);
+    return this;
+  }
+
+  @Override
+  public final TreeNode next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    this.current = advance();
+    return this.current;
+  }
+
+  @Override
+  public final void remove() {
+    throw new UnsupportedOperationException("Tree iterators do not support removal.");
+  }
+
+  /**
+   * Provides the node last returned by {@link #next()}.
+   *
+   * @return The current node, or <code>null</code> when iteration has not started.
+   */
+  public final TreeNode getCurrent() {
+    return this.current;
+  }
+
+  /**
+   * Provides the depth of the current node: zero for the root node, one for its child-nodes, and so on.
+   *
+   * @return The depth of the current node.
+   * @throws IllegalStateException When iteration has not started.
+   */
+  public final int getDepth() {
+    checkCurrent();
+    return getCurrentDepth();
+  }
+
+  /**
+   * Provides a node on the path from the root node to the current node.
+   *
+   * @param depth The depth of the node on the path (zero for the root node, {@link #getDepth()} for the current node).
+   * @return The node at given depth.
+   * @throws IllegalStateException When iteration has not started.
+   * @throws IndexOutOfBoundsException When the depth is negative or greater than the depth of the current node.
+   */
+  public final TreeNode getPathNode(int depth) {
+    checkCurrent();
+    if (depth < 0 || depth > getCurrentDepth()) {
+      throw new IndexOutOfBoundsException("Depth " + depth + " is not on path of depth " + getCurrentDepth());
+    }
+    return getCurrentPathNode(depth);
+  }
+
+  /**
+   * Provides the path segments of the current node (the keys of the nodes on the path, excluding the root node).
+   *
+   * @return A new array of path segments with length equal to the depth of the current node.
+   * @throws IllegalStateException When iteration has not started.
+   */
+  public final String[] getPathSegments() {
+    String[] segments = new String[getDepth()];
+    for (int i = 0; i < segments.length; i++) {
+      Object key = getCurrentPathNode(i + 1).getKey();
+      segments[i] = key != null ? key.toString() : "";
+    }
+    return segments;
+  }
+
+  /**
+   * Creates a tree path to the current node (using the default path separator).
+   *
+   * @return A new tree path.
+   * @throws IllegalStateException When iteration has not started.
+   */
+  public final TreePath getPath() {
+    return new TreePath(getPathSegments(), TreePath.DEFAULT_PATH_SEPARATOR);
+  }
+
+  /**
+   * Initializes the iteration over the nodes of a tree.
+   *
+   * @param root The root node of the tree (may be <code>null</code>).
+   */
+  abstract void init(TreeNode root);
+
+  /**
+   * Moves to the next node of the iteration. This method is called only when {@link #hasNext()} has returned
+   * <code>true</code>.
+   *
+   * @return The next node.
+   */
+  abstract TreeNode advance();
+
+  /**
+   * Provides the depth of the current node (after {@link #advance()} has returned it).
+   *
+   * @return The depth of the current node.
+   */
+  abstract int getCurrentDepth();
+
+  /**
+   * Provides a node on the path to the current node (after {@link #advance()} has returned it).
+   *
+   * @param depth The depth of the node on the path (validated).
+   * @return The node at given depth.
+   */
+  abstract TreeNode getCurrentPathNode(int depth);
+
+  private void checkCurrent() {
+    if (this.current == null) {
+      throw new IllegalStateException("Iteration has not started.");
+    }
+  }
+}
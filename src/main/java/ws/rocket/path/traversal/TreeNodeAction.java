@@ -0,0 +1,37 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Contract for an action performed on each node of a tree (see {@link ParallelTraversal}).
+ *
+ * @author Martti Tamm
+ */
+public interface TreeNodeAction {
+
+  /**
+   * Performs the action on a tree node. When the nodes are processed in parallel, the method is called by several
+   * threads at the same time.
+   *
+   * @param node The tree node.
+   */
+  void perform(TreeNode node);
+}
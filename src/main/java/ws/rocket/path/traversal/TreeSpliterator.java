@@ -0,0 +1,205 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * An iterator over the nodes of a tree, which can be split into several iterators over disjoint parts of the tree, so
+ * that the parts could be processed in parallel (similarly to <code>java.util.Spliterator</code>). A tree is split by
+ * subtrees: the iterator keeps a stack of subtrees to iterate over, and gives away the subtrees at the bottom of the
+ * stack, which are usually the largest ones. When the iterator has only one subtree left, its root node is kept and its
+ * child-nodes become the subtrees to split.
+ * <p>
+ * When created as <em>sized</em>, the iterator uses the subtree sizes (see {@link TreeNode#getSubtreeSize()}) for
+ * splitting the remaining nodes into halves, and for providing the exact number of remaining nodes. Note that the
+ * sizes are computed when not known yet (see {@link TreeNode#isSubtreeSizeKnown()}), which takes an additional pass
+ * over the tree (the sizes are cached in the nodes, though). Without sizes, the remaining subtrees are split into
+ * halves by count.
+ * <p>
+ * The nodes of a subtree are returned in pre-order. However, the order of the nodes across the split parts is not
+ * defined. The iterator does not support removal, and it is not thread-safe (but the split parts may be used by
+ * different threads).
+ *
+ * @author Martti Tamm
+ */
+public final class TreeSpliterator implements Iterator<TreeNode> {
+
+  private final boolean sized;
+
+  private TreeNode[] stack;
+
+  private int count;
+
+  private TreeNode head;
+
+  private long size;
+
+  /**
+   * Creates an iterator over the nodes of given tree.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty iteration).
+   * @param sized Whether the subtree sizes are used for splitting and size estimates.
+   */
+  public TreeSpliterator(TreeNode root, boolean sized) {
+    this(new TreeNode[16], root != null ? 1 : 0, sized);
+    this.stack[0] = root;
+    this.size = sized && root != null ? root.getSubtreeSize() : -1;
+  }
+
+  private TreeSpliterator(TreeNode[] stack, int count, boolean sized) {
+    this.stack = stack;
+    this.count = count;
+    this.sized = sized;
+    this.size = -1;
+  }
+
+  /**
+   * Reports whether this iterator uses subtree sizes.
+   *
+   * @return A Boolean that is <code>true</code> when the iterator is sized.
+   */
+  public boolean isSized() {
+    return this.sized;
+  }
+
+  /**
+   * Provides the number of nodes remaining in this iterator.
+   *
+   * @return The exact number of remaining nodes when this iterator is sized, or <code>-1</code> when unknown.
+   */
+  public long estimateSize() {
+    return this.size;
+  }
+
+  /**
+   * Provides the number of subtrees remaining in this iterator (excluding the root node kept after splitting).
+   *
+   * @return The number of remaining subtrees.
+   */
+  int getSubtreeCount() {
+    return this.count;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return this.head != null || this.count > 0;
+  }
+
+  @Override
+  public TreeNode next() {
+    TreeNode node = this.head;
+
+    if (node != null) {
+      this.head = null;
+    } else if (this.count > 0) {
+      node = this.stack[--this.count];
+      this.stack[this.count] = null;
+      pushChildren(node.getChildren());
+    } else {
+      throw new NoSuchElementException();
+    }
+
+    if (this.sized) {
+      this.size--;
+    }
+
+    return node;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Tree iterators do not support removal.");
+  }
+
+  /**
+   * Splits this iterator: the returned iterator covers a part of the remaining nodes, and this iterator covers the
+   * rest. When sized, the parts have (approximately) equal number of nodes.
+   *
+   * @return The iterator over a part of the remaining nodes, or <code>null</code> when the remaining nodes cannot be
+   *         split.
+   */
+  public TreeSpliterator trySplit() {
+    if (this.count == 1 && this.head == null) {
+      TreeNode node = this.stack[0];
+      List<TreeNode> children = node.getChildren();
+
+      if (children.size() < 2) {
+        return null;
+      }
+
+      this.head = node;
+      this.count = 0;
+      pushChildren(children);
+    }
+
+    if (this.count < 2) {
+      return null;
+    }
+
+    int splitCount = this.sized ? getSplitCount() : this.count / 2;
+    TreeNode[] prefixStack = new TreeNode[Math.max(splitCount, 16)];
+    System.arraycopy(this.stack, 0, prefixStack, 0, splitCount);
+    TreeSpliterator prefix = new TreeSpliterator(prefixStack, splitCount, this.sized);
+
+    System.arraycopy(this.stack, splitCount, this.stack, 0, this.count - splitCount);
+    Arrays.fill(this.stack, this.count - splitCount, this.count, null);
+    this.count -= splitCount;
+
+    if (this.sized) {
+      prefix.size = 0;
+      for (int i = 0; i < splitCount; i++) {
+        prefix.size += prefix.stack[i].getSubtreeSize();
+      }
+      this.size -= prefix.size;
+    }
+
+    return prefix;
+  }
+
+  private int getSplitCount() {
+    long half = (this.size - (this.head != null ? 1 : 0)) / 2;
+    long total = 0;
+    int result = 0;
+
+    while (result < this.count - 1 && total < half) {
+      total += this.stack[result++].getSubtreeSize();
+    }
+
+    return Math.max(result, 1);
+  }
+
+  private void pushChildren(List<TreeNode> children) {
+    int required = this.count + children.size();
+
+    if (required > this.stack.length) {
+      this.stack = Arrays.copyOf(this.stack, Math.max(required, this.stack.length * 2));
+    }
+
+    // Pushed in reverse order so that the first child-node would be iterated first:
+    for (int i = children.size() - 1; i >= 0; i--) {
+      this.stack[this.count++] = children.get(i);
+    }
+  }
+}
@@ -0,0 +1,52 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+/**
+ * The result of a {@link TreeVisitor} method, which determines how {@link TreeWalker} continues.
+ *
+ * @author Martti Tamm
+ */
+public enum TreeVisitResult {
+
+  /**
+   * Continue the walk. When returned from {@link TreeVisitor#preVisit(ws.rocket.path.TreeNode, int)}, the child-nodes
+   * of the node will be visited.
+   */
+  CONTINUE,
+
+  /**
+   * Continue without visiting the child-nodes of the node. This result is meaningful only when returned from
+   * {@link TreeVisitor#preVisit(ws.rocket.path.TreeNode, int)}, and then
+   * {@link TreeVisitor#postVisit(ws.rocket.path.TreeNode, int)} won't be called for the node.
+   */
+  SKIP_SUBTREE,
+
+  /**
+   * Continue without visiting the following siblings of the node. When returned from
+   * {@link TreeVisitor#preVisit(ws.rocket.path.TreeNode, int)}, the child-nodes of the node won't be visited either,
+   * and {@link TreeVisitor#postVisit(ws.rocket.path.TreeNode, int)} won't be called for the node.
+   */
+  SKIP_SIBLINGS,
+
+  /**
+   * Stop the walk immediately.
+   */
+  TERMINATE
+}
@@ -0,0 +1,52 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Contract for visiting the nodes of a tree walked by {@link TreeWalker}. Each node is visited before its child-nodes
+ * (pre-visit) and after its child-nodes (post-visit). The results of the methods control the walk, so that the
+ * visitor can prune subtrees and terminate the walk once it has found what it was looking for (see
+ * {@link TreeVisitResult}).
+ *
+ * @author Martti Tamm
+ */
+public interface TreeVisitor {
+
+  /**
+   * Visits a node before its child-nodes are visited.
+   *
+   * @param node The visited node.
+   * @param depth The depth of the node (zero for the root node of the walk).
+   * @return The result determining how the walk continues.
+   */
+  TreeVisitResult preVisit(TreeNode node, int depth);
+
+  /**
+   * Visits a node after its child-nodes have been visited (or skipped due to {@link TreeVisitResult#SKIP_SIBLINGS}
+   * returned for a child-node).
+   *
+   * @param node The visited node.
+   * @param depth The depth of the node (zero for the root node of the walk).
+   * @return The result determining how the walk continues ({@link TreeVisitResult#SKIP_SUBTREE} is the same as
+   *         {@link TreeVisitResult#CONTINUE} here).
+   */
+  TreeVisitResult postVisit(TreeNode node, int depth);
+}
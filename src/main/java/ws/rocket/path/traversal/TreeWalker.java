@@ -0,0 +1,163 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.traversal;
+
+import java.util.Arrays;
+import java.util.List;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Walks a tree depth-first and calls a {@link TreeVisitor} for each node, similarly to
+ * <code>java.nio.file.Files.walkFileTree()</code>. The visitor controls the walk: it can skip the subtree or the
+ * following siblings of a node, or terminate the walk. Therefore, searches and scans of large trees visit only the
+ * relevant nodes.
+ * <p>
+ * The walker does not use recursion, so it also works for very deep trees. The nodes on the path from the root node to
+ * the current node are kept in an array, which the visitor may query (see {@link #getPathNode(int)}), and which is
+ * reused when the walker is used again. A walker is not thread-safe, nor reentrant.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeWalker {
+
+  private TreeNode[] nodes = new TreeNode[16];
+
+  private int[] nextChildren = new int[16];
+
+  private int depth = -1;
+
+  /**
+   * Walks a tree using a new walker.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty tree).
+   * @param visitor The visitor to call for the nodes.
+   * @return The node for which the visitor returned {@link TreeVisitResult#TERMINATE}, or <code>null</code> when the
+   *         walk was completed.
+   */
+  public static TreeNode walkTree(TreeNode root, TreeVisitor visitor) {
+    return new TreeWalker().walk(root, visitor);
+  }
+
+  /**
+   * Walks a tree, reusing the internal arrays of this walker.
+   *
+   * @param root The root node of the tree (<code>null</code> for an empty tree).
+   * @param visitor The visitor to call for the nodes.
+   * @return The node for which the visitor returned {@link TreeVisitResult#TERMINATE}, or <code>null</code> when the
+   *         walk was completed.
+   */
+  public TreeNode walk(TreeNode root, TreeVisitor visitor) {
+    if (visitor == null) {
+      throw new NullPointerException("Tree visitor must not be null.");
+    } else if (this.depth >= 0) {
+      throw new IllegalStateException("The walker is already walking a tree.");
+    } else if (root == null) {
+      return null;
+    }
+
+    try {
+      return walkNodes(root, visitor);
+    } finally {
+      Arrays.fill(this.nodes, 0, this.depth + 1, null);
+      this.depth = -1;
+    }
+  }
+
+  /**
+   * Provides a node on the path from the root node to the node currently being visited. The method may be called by
+   * the visitor during the walk.
+   *
+   * @param pathDepth The depth of the node on the path (zero for the root node).
+   * @return The node at given depth.
+   * @throws IndexOutOfBoundsException When the depth is not on the path of the current node.
+   */
+  public TreeNode getPathNode(int pathDepth) {
+    if (pathDepth < 0 || pathDepth > this.depth) {
+      throw new IndexOutOfBoundsException("Depth " + pathDepth + " is not on the current path.");
+    }
+    return this.nodes[pathDepth];
+  }
+
+  private TreeNode walkNodes(TreeNode root, TreeVisitor visitor) {
+    TreeVisitResult result = visitNode(visitor, root, 0);
+
+    if (result == TreeVisitResult.TERMINATE) {
+      return root;
+    } else if (result != TreeVisitResult.CONTINUE) {
+      return null;
+    }
+
+    while (this.depth >= 0) {
+      TreeNode node = this.nodes[this.depth];
+      List<TreeNode> children = node.getChildren();
+      int parentDepth = this.depth;
+      int childIndex = this.nextChildren[parentDepth];
+      TreeNode visited;
+
+      if (childIndex < children.size()) {
+        visited = children.get(childIndex);
+        this.nextChildren[parentDepth] = childIndex + 1;
+        result = visitNode(visitor, visited, parentDepth + 1);
+
+        if (result == TreeVisitResult.SKIP_SIBLINGS) {
+          this.nextChildren[parentDepth] = Integer.MAX_VALUE;
+        }
+      } else {
+        visited = node;
+        result = visitor.postVisit(node, parentDepth);
+        this.nodes[this.depth--] = null;
+
+        if (result == TreeVisitResult.SKIP_SIBLINGS && this.depth >= 0) {
+          this.nextChildren[this.depth] = Integer.MAX_VALUE;
+        }
+      }
+
+      if (result == TreeVisitResult.TERMINATE) {
+        return visited;
+      }
+    }
+
+    return null;
+  }
+
+  private TreeVisitResult visitNode(TreeVisitor visitor, TreeNode node, int nodeDepth) {
+    // The node is pushed before pre-visit so that the visitor could see it on the path:
+    push(node);
+    TreeVisitResult result = visitor.preVisit(node, nodeDepth);
+
+    if (result != TreeVisitResult.CONTINUE) {
+      this.nodes[this.depth--] = null;
+    }
+
+    return result;
+  }
+
+  private void push(TreeNode node) {
+    this.depth++;
+
+    if (this.depth == this.nodes.length) {
+      this.nodes = Arrays.copyOf(this.nodes, this.depth * 2);
+      this.nextChildren = Arrays.copyOf(this.nextChildren, this.depth * 2);
+    }
+
+    this.nodes[this.depth] = node;
+    this.nextChildren[this.depth] = 0;
+  }
+}
@@ -0,0 +1,40 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+/**
+ * Support for traversing trees of {@link ws.rocket.path.TreeNode}s without recursion, so that the depth of a tree is
+ * limited only by available memory (and not by the stack size of a thread).
+ * <p>
+ * The iterators ({@link ws.rocket.path.traversal.PreOrderIterator}, {@link ws.rocket.path.traversal.PostOrderIterator},
+ * {@link ws.rocket.path.traversal.LevelOrderIterator}) keep their state in arrays, which are reused when an iterator is
+ * reset for traversing another tree. In addition to the nodes, the iterators report the depth and the path of the
+ * current node (see {@link ws.rocket.path.traversal.TreeIterator}) without creating objects for every node.
+ * <p>
+ * {@link ws.rocket.path.traversal.TreeWalker} walks a tree and calls a {@link ws.rocket.path.traversal.TreeVisitor} for
+ * every node, and the visitor may prune the walk or terminate it (see
+ * {@link ws.rocket.path.traversal.TreeVisitResult}).
+ * <p>
+ * {@link ws.rocket.path.traversal.TreeSpliterator} splits the nodes of a tree into parts by subtrees, which
+ * {@link ws.rocket.path.traversal.ParallelTraversal} traverses in parallel using an executor.
+ * <p>
+ * {@link ws.rocket.path.traversal.TreeFold} caches the results of a {@link ws.rocket.path.traversal.TreeAggregator} per
+ * node, so that the aggregates of an updated tree are computed only for the replaced nodes.
+ * <p>
+ * {@link ws.rocket.path.traversal.BatchResolver} resolves many paths at once, walking each shared path prefix once.
+ */
+package ws.rocket.path.traversal;
@@ -0,0 +1,192 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.SortedChildNodes;
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.builder.TreeNodeBuilder;
+
+/**
+ * Test-cases for {@link SortedChildNodes} and the sorted child-nodes of {@link TreeNode}.
+ *
+ * @author Martti Tamm
+ */
+public final class SortedChildNodesTest {
+
+  /**
+   * Tests that the child-nodes are sorted by their keys, and keys are looked up exactly.
+   */
+  @Test
+  public void testGet() {
+    TreeNode root = TreeNode.createSorted(null, null, null, node(30), node(10), node(20), node(50), node(40));
+    SortedChildNodes sorted = root.getSortedChildren();
+
+    assertTrue(root.isSorted());
+    assertEquals(keys(root.getChildren()), "[10, 20, 30, 40, 50]");
+    assertSame(sorted.getAll(), root.getChildren());
+    assertEquals(sorted.get(30).getKey(), 30);
+    assertEquals(sorted.get(10).getKey(), 10);
+    assertEquals(sorted.get(50).getKey(), 50);
+    assertNull(sorted.get(35));
+    assertNull(sorted.get(5));
+    assertNull(sorted.get(55));
+  }
+
+  /**
+   * Tests the floor, ceiling, lower and higher lookups.
+   */
+  @Test
+  public void testNavigation() {
+    SortedChildNodes sorted = TreeNode.createSorted(null, null, null, node(10), node(20), node(30)).getSortedChildren();
+
+    assertEquals(sorted.floor(20).getKey(), 20);
+    assertEquals(sorted.floor(25).getKey(), 20);
+    assertNull(sorted.floor(5));
+    assertEquals(sorted.ceiling(20).getKey(), 20);
+    assertEquals(sorted.ceiling(25).getKey(), 30);
+    assertNull(sorted.ceiling(35));
+    assertEquals(sorted.lower(20).getKey(), 10);
+    assertNull(sorted.lower(10));
+    assertEquals(sorted.higher(20).getKey(), 30);
+    assertNull(sorted.higher(30));
+  }
+
+  /**
+   * Tests the range views of the child-nodes.
+   */
+  @Test
+  public void testRanges() {
+    SortedChildNodes sorted = TreeNode.createSorted(null, null, null, node(10), node(20), node(30), node(40))
+        .getSortedChildren();
+
+    assertEquals(keys(sorted.subList(20, true, 30, true)), "[20, 30]");
+    assertEquals(keys(sorted.subList(20, false, 40, false)), "[30]");
+    assertEquals(keys(sorted.subList(15, true, 35, true)), "[20, 30]");
+    assertEquals(keys(sorted.subList(30, true, 20, true)), "[]");
+    assertEquals(keys(sorted.headList(30, false)), "[10, 20]");
+    assertEquals(keys(sorted.headList(30, true)), "[10, 20, 30]");
+    assertEquals(keys(sorted.tailList(30, false)), "[40]");
+    assertEquals(keys(sorted.tailList(5, true)), "[10, 20, 30, 40]");
+  }
+
+  /**
+   * Tests that child-nodes with equal keys keep their order, and the first of them is found.
+   */
+  @Test
+  public void testEqualKeys() {
+    TreeNode first = new TreeNode("b", 1);
+    TreeNode second = new TreeNode("b", 2);
+    TreeNode nodeA = new TreeNode("a", null);
+    TreeNode nodeC = new TreeNode("c", null);
+    TreeNode root = TreeNode.createSorted(null, null, null, nodeC, first, nodeA, second);
+    SortedChildNodes sorted = root.getSortedChildren();
+
+    assertSame(sorted.get("b"), first);
+    assertSame(sorted.ceiling("b"), first);
+    assertSame(sorted.floor("b"), second);
+    assertEquals(sorted.subList("b", true, "b", true).size(), 2);
+  }
+
+  /**
+   * Tests sorting with a custom comparator, and that <code>null</code> keys come first in natural order.
+   */
+  @Test
+  public void testComparators() {
+    TreeNode reversed = TreeNode.createSorted(null, null, Collections.reverseOrder(), node(1), node(3), node(2));
+    assertEquals(keys(reversed.getChildren()), "[3, 2, 1]");
+    assertEquals(reversed.getSortedChildren().floor(4), null);
+    assertEquals(reversed.getSortedChildren().ceiling(4).getKey(), 3);
+
+    TreeNode withNull = TreeNode.createSorted(null, null, null, new TreeNode("a", null), new TreeNode(null, "x"));
+    assertEquals(keys(withNull.getChildren()), "[null, a]");
+    assertEquals(withNull.getSortedChildren().get(null).getValue(), "x");
+  }
+
+  /**
+   * Tests that the builder creates sorted nodes, and that unsorted nodes do not provide the sorted view.
+   */
+  @Test
+  public void testBuilder() {
+    TreeNodeBuilder builder = new TreeNodeBuilder("root", null).addChild("b", null).addChild("a", null);
+    TreeNode root = builder.build(null);
+
+    assertTrue(root.isSorted());
+    assertEquals(root.getSortedChildren().get("a").getKey(), "a");
+    assertFalse(new TreeNode("x", null).isSorted());
+    assertTrue(TreeNode.createSorted(null, null, null).getSortedChildren().getAll().isEmpty());
+  }
+
+  /**
+   * Tests that the view cannot be requested for a node with unsorted child-nodes.
+   */
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testUnsorted() {
+    new TreeNode("x", null, node(1)).getSortedChildren();
+  }
+
+  /**
+   * Tests that sorted nodes remain sorted after serialization.
+   *
+   * @throws Exception When serialization fails.
+   */
+  @Test
+  public void testSerialization() throws Exception {
+    TreeNode root = TreeNode.createSorted(null, null, null, node(2), node(1));
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(root);
+    out.close();
+
+    ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    TreeNode copy = (TreeNode) in.readObject();
+    in.close();
+
+    assertTrue(copy.isSorted());
+    assertEquals(copy.getSortedChildren().get(2).getKey(), 2);
+  }
+
+  private static TreeNode node(int key) {
+    return new TreeNode(key, null);
+  }
+
+  private static String keys(List<TreeNode> nodes) {
+    List<Object> keys = new ArrayList<Object>(nodes.size());
+    for (TreeNode node : nodes) {
+      keys.add(node.getKey());
+    }
+    return keys.toString();
+  }
+}
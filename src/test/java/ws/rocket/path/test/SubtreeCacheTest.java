@@ -0,0 +1,208 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.ChildNodesLoader;
+import ws.rocket.path.SubtreeCache;
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.builder.BuilderChildNodesLoader;
+import ws.rocket.path.builder.TreeNodeBuilder;
+import ws.rocket.path.builder.TreeNodeBuilderAware;
+
+/**
+ * Test-cases for {@link SubtreeCache}.
+ *
+ * @author Martti Tamm
+ */
+public final class SubtreeCacheTest {
+
+  /**
+   * Tests that loaded subtrees are kept until the node limit is exceeded, and the least recently used subtree is
+   * evicted (and reloaded when requested).
+   */
+  @Test
+  public void testEviction() {
+    SubtreeCache cache = new SubtreeCache(5);
+    TreeNode nodeA = cache.createNode("a", null, new LeavesLoader(2));
+    TreeNode nodeB = cache.createNode("b", null, new LeavesLoader(2));
+    TreeNode nodeC = cache.createNode("c", null, new LeavesLoader(2));
+
+    assertFalse(nodeA.isLoaded());
+
+    List<TreeNode> childrenA = nodeA.getChildren();
+    nodeB.getChildren();
+    assertSame(nodeA.getChildren(), childrenA);
+
+    assertEquals(cache.getLoadedNodes(), 4);
+    assertEquals(cache.getMissCount(), 2);
+    assertEquals(cache.getHitCount(), 1);
+
+    nodeC.getChildren();
+
+    assertEquals(cache.getLoadedNodes(), 4);
+    assertEquals(cache.getLoadedSubtrees(), 2);
+    assertEquals(cache.getEvictionCount(), 1);
+    assertFalse(nodeA.isLoaded());
+    assertTrue(nodeB.isLoaded());
+    assertTrue(nodeC.isLoaded());
+
+    assertEquals(nodeA.getChildren().size(), 2);
+    assertEquals(cache.getMissCount(), 4);
+
+    cache.evictAll();
+    assertEquals(cache.getLoadedNodes(), 0);
+    assertFalse(nodeA.isLoaded());
+    assertFalse(nodeB.isLoaded());
+  }
+
+  /**
+   * Tests that the child-nodes managed by the cache are not counted as a part of the subtree of their parent.
+   */
+  @Test
+  public void testNestedSubtrees() {
+    final SubtreeCache cache = new SubtreeCache(100);
+    TreeNode root = cache.createNode("root", null, new ChildNodesLoader() {
+
+      @Override
+      public TreeNode[] loadChildNodes() {
+        return new TreeNode[] { cache.createNode("a", null, new LeavesLoader(3)), new TreeNode("b", null) };
+      }
+    });
+
+    assertEquals(root.getChildren().get(0).getChildren().size(), 3);
+    assertEquals(cache.getLoadedNodes(), 5);
+    assertEquals(cache.getLoadedSubtrees(), 2);
+  }
+
+  /**
+   * Tests that the digest and the subtree size of a node are computed from the child-nodes managed by the cache.
+   */
+  @Test
+  public void testDigestAndSize() {
+    SubtreeCache cache = new SubtreeCache(10);
+    TreeNode node = cache.createNode("key", null, new LeavesLoader(3));
+    TreeNode regular = new TreeNode("key", null, new LeavesLoader(3).loadChildNodes());
+
+    assertEquals(node.getSubtreeSize(), 4);
+    assertEquals(node.getDigest(), regular.getDigest());
+  }
+
+  /**
+   * Tests that the digest and the subtree size are computed when the tree has more nodes than the cache allows, so that
+   * subtrees are evicted and reloaded (as new nodes) during the computation.
+   */
+  @Test(timeOut = 10000)
+  public void testDigestAndSizeOverLimit() {
+    SubtreeCache cache = new SubtreeCache(3);
+    TreeNode node = cache.createNode("root", null, new NestedLoader(cache, 2, 4));
+    TreeNode regular = copy(node);
+
+    assertEquals(node.getSubtreeSize(), 1 + 4 + 16 + 48);
+    assertEquals(node.getDigest(), regular.getDigest());
+    assertTrue(cache.getEvictionCount() > 0);
+  }
+
+  /**
+   * Tests reloading child-nodes from a value that describes them using the builder.
+   */
+  @Test
+  public void testBuilderLoader() {
+    SubtreeCache cache = new SubtreeCache(1);
+    TreeNode node = cache.createNode("key", null, new BuilderChildNodesLoader(new TreeNodeBuilderAware() {
+
+      @Override
+      public void initNode(TreeNodeBuilder builder) {
+        builder.addChild("x", null).addChild("y", null);
+      }
+    }));
+
+    assertEquals(node.getChildren().size(), 2);
+    assertEquals(node.getChildren().get(1).getKey(), "y");
+    assertEquals(cache.getLoadedNodes(), 2);
+  }
+
+  private static TreeNode copy(TreeNode node) {
+    List<TreeNode> children = node.getChildren();
+    TreeNode[] copies = new TreeNode[children.size()];
+    for (int i = 0; i < copies.length; i++) {
+      copies[i] = copy(children.get(i));
+    }
+    return new TreeNode(node.getKey(), node.getValue(), copies);
+  }
+
+  /**
+   * Loader of given number of child-nodes, which have loaders of their own until the given depth, and three leaf nodes
+   * below it.
+   */
+  private static final class NestedLoader implements ChildNodesLoader {
+
+    private final SubtreeCache cache;
+
+    private final int depth;
+
+    private final int width;
+
+    NestedLoader(SubtreeCache cache, int depth, int width) {
+      this.cache = cache;
+      this.depth = depth;
+      this.width = width;
+    }
+
+    @Override
+    public TreeNode[] loadChildNodes() {
+      TreeNode[] result = new TreeNode[this.width];
+      for (int i = 0; i < result.length; i++) {
+        ChildNodesLoader loader = this.depth > 1 ? new NestedLoader(this.cache, this.depth - 1, this.width)
+            : new LeavesLoader(3);
+        result[i] = this.cache.createNode(i, null, loader);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Loader of given number of leaf nodes.
+   */
+  private static final class LeavesLoader implements ChildNodesLoader {
+
+    private final int count;
+
+    LeavesLoader(int count) {
+      this.count = count;
+    }
+
+    @Override
+    public TreeNode[] loadChildNodes() {
+      TreeNode[] result = new TreeNode[this.count];
+      for (int i = 0; i < result.length; i++) {
+        result[i] = new TreeNode(i, null);
+      }
+      return result;
+    }
+  }
+}
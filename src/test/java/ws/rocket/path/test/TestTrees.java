@@ -0,0 +1,110 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test;
+
+import java.util.Random;
+
+import ws.rocket.path.TreeNode;
+
+/**
+ * Factories of the trees shared by tests. The keys of child-nodes default to their index among their siblings, and the
+ * key of the root node is always <code>null</code>.
+ *
+ * @author Martti Tamm
+ */
+public final class TestTrees {
+
+  /**
+   * Creates the keys of the child-nodes of random trees.
+   */
+  public interface KeyFactory {
+
+    /**
+     * Creates the key of a child-node.
+     *
+     * @param random The random generator of the tree.
+     * @param depth The depth of the parent node (root has depth 0).
+     * @param index The index of the child-node among its siblings.
+     * @return The key of the child-node.
+     */
+    Object createKey(Random random, int depth, int index);
+  }
+
+  /**
+   * The key factory that uses the index of a child-node as its key.
+   */
+  public static final KeyFactory INDEX_KEYS = new KeyFactory() {
+
+    @Override
+    public Object createKey(Random random, int depth, int index) {
+      return index;
+    }
+  };
+
+  private TestTrees() {
+  }
+
+  /**
+   * Creates a full tree where each node has the value 1, and each node above the given depth has the given number of
+   * child-nodes.
+   *
+   * @param depth The number of levels below the root node.
+   * @param width The number of child-nodes per node.
+   * @return The root node of the tree.
+   */
+  public static TreeNode createTree(int depth, int width) {
+    return createNode(null, depth, width);
+  }
+
+  /**
+   * Creates a random tree where each node above the given depth has a random number of child-nodes. The value of a
+   * child-node is "depth/index" of its parent depth and its own index, and the root node has no value. The tree is
+   * determined by the seed of the random generator.
+   *
+   * @param random The random generator to use.
+   * @param depth The number of levels below the root node.
+   * @param minChildren The minimum number of child-nodes per node above the given depth.
+   * @param maxChildren The maximum number of child-nodes per node above the given depth.
+   * @param keys The factory of the keys of child-nodes.
+   * @return The root node of the tree.
+   */
+  public static TreeNode createRandomTree(Random random, int depth, int minChildren, int maxChildren,
+      KeyFactory keys) {
+    return new TreeNode(null, null, createRandomChildren(random, 0, depth, minChildren, maxChildren, keys));
+  }
+
+  private static TreeNode createNode(Object key, int depth, int width) {
+    TreeNode[] children = new TreeNode[depth > 0 ? width : 0];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = createNode(i, depth - 1, width);
+    }
+    return new TreeNode(key, 1, children);
+  }
+
+  private static TreeNode[] createRandomChildren(Random random, int level, int depth, int minChildren, int maxChildren,
+      KeyFactory keys) {
+    TreeNode[] children = new TreeNode[level < depth ? minChildren + random.nextInt(maxChildren - minChildren + 1) : 0];
+    for (int i = 0; i < children.length; i++) {
+      Object key = keys.createKey(random, level, i);
+      children[i] = new TreeNode(key, level + "/" + i,
+          createRandomChildren(random, level + 1, depth, minChildren, maxChildren, keys));
+    }
+    return children;
+  }
+}
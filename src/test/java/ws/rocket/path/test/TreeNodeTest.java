@@ -19,16 +19,25 @@
 package ws.rocket.path.test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigDecimal;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
 
+import ws.rocket.path.ChildNodesLoader;
 import ws.rocket.path.TreeNode;
 
 /**
@@ -83,6 +92,165 @@ public final class TreeNodeTest {
     assertEquals(Arrays.asList(nodeChildA, nodeChildB, nodeChildC), node.getChildren());
   }
 
+  /**
+   * Tests <code>TreeNode</code> with lazily loaded child-nodes. Expects the loader to be called once, when the
+   * child-nodes are requested for the first time (also when requested by several threads at the same time).
+   *
+   * @throws InterruptedException When the test is interrupted.
+   */
+  @Test
+  public void testLazyChildren() throws InterruptedException {
+    final AtomicInteger loads = new AtomicInteger();
+    final TreeNode child = new TreeNode("child", null);
+    final TreeNode node = TreeNode.createLazy("key", "value", new ChildNodesLoader() {
+
+      @Override
+      public TreeNode[] loadChildNodes() {
+        loads.incrementAndGet();
+        return new TreeNode[] { child };
+      }
+    });
+
+    assertFalse(node.isLoaded());
+    assertEquals(loads.get(), 0);
+
+    final CountDownLatch start = new CountDownLatch(1);
+    Thread[] threads = new Thread[4];
+
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            return;
+          }
+          node.getChildren();
+        }
+      };
+      threads[i].start();
+    }
+
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertTrue(node.isLoaded());
+    assertKeyValue(node, "key", "value", 1);
+    assertSame(node.getChildren().get(0), child);
+    assertEquals(loads.get(), 1);
+  }
+
+  /**
+   * Tests <code>TreeNode</code> with evictable child-nodes. Expects the loader to be called once while the child-nodes
+   * are referenced, and the node to be serialized as a regular node with its child-nodes.
+   *
+   * @throws Exception When serialization fails.
+   */
+  @Test
+  public void testEvictableChildren() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+    TreeNode node = TreeNode.createEvictable("key", null, new ChildNodesLoader() {
+
+      @Override
+      public TreeNode[] loadChildNodes() {
+        loads.incrementAndGet();
+        return new TreeNode[] { new TreeNode("child", null) };
+      }
+    });
+
+    assertFalse(node.isLoaded());
+
+    List<TreeNode> children = node.getChildren();
+    assertTrue(node.isLoaded());
+    assertSame(node.getChildren(), children);
+    assertEquals(loads.get(), 1);
+
+    TreeNode copy = serialize(node);
+    assertTrue(copy.isLoaded());
+    assertEquals(copy.getChildren().size(), 1);
+    assertEquals(copy.getChildren().get(0).getKey(), "child");
+  }
+
+  /**
+   * Tests that the digest of a node with evictable child-nodes is computed from the loaded child-nodes, and equals the
+   * digest of a regular node with the same child-nodes.
+   */
+  @Test
+  public void testEvictableDigest() {
+    TreeNode node = TreeNode.createEvictable("key", "value", new ChildNodesLoader() {
+
+      @Override
+      public TreeNode[] loadChildNodes() {
+        return new TreeNode[] { new TreeNode("child", 1) };
+      }
+    });
+
+    TreeNode regular = new TreeNode("key", "value", new TreeNode("child", 1));
+
+    assertEquals(node.getDigest(), regular.getDigest());
+    assertEquals(node.getSubtreeSize(), 2);
+  }
+
+  /**
+   * Tests that the subtree size is computed without computing the digests (which would need the hash codes of the
+   * values).
+   */
+  @Test
+  public void testSubtreeSize() {
+    Object unhashable = new Object() {
+
+      @Override
+      public int hashCode() {
+        throw new UnsupportedOperationException();
+      }
+    };
+
+    TreeNode child = new TreeNode("child", unhashable, new TreeNode("leaf", null));
+    TreeNode root = new TreeNode("root", null, child, new TreeNode("other", null));
+
+    assertFalse(root.isSubtreeSizeKnown());
+    assertEquals(root.getSubtreeSize(), 4);
+    assertTrue(root.isSubtreeSizeKnown());
+    assertTrue(child.isSubtreeSizeKnown());
+    assertEquals(child.getSubtreeSize(), 2);
+  }
+
+  /**
+   * Tests that a lazily loaded <code>TreeNode</code> is serialized with its child-nodes.
+   *
+   * @throws Exception When serialization fails.
+   */
+  @Test
+  public void testLazySerialization() throws Exception {
+    TreeNode node = TreeNode.createLazy("key", null, new ChildNodesLoader() {
+
+      @Override
+      public TreeNode[] loadChildNodes() {
+        return new TreeNode[] { new TreeNode("child", null) };
+      }
+    });
+
+    TreeNode copy = serialize(node);
+
+    assertTrue(copy.isLoaded());
+    assertEquals(copy.getKey(), "key");
+    assertEquals(copy.getChildren().size(), 1);
+    assertEquals(copy.getChildren().get(0).getKey(), "child");
+  }
+
+  private static TreeNode serialize(TreeNode node) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(node);
+    out.close();
+
+    return (TreeNode) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+  }
+
   /**
    * Asserts that given node has no key, no value and no child-nodes.
    * 
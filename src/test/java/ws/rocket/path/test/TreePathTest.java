@@ -426,4 +426,27 @@ public final class TreePathTest {
     new TreePath("").append(new TreePath("", ".", "/"));
   }
 
+  /**
+   * Tests that a path created from path segments keeps the segments as they are and has no extension.
+   */
+  @Test
+  public void testPathFromSegments() {
+    String[] segments = { "a", "b.txt", "c" };
+    TreePath path = new TreePath(segments, "/");
+    segments[0] = "x";
+
+    assertEquals(path.toString(), "/a/b.txt/c");
+    assertEquals(path.getPathLength(), 3);
+    assertEquals(path.next(), "a");
+    assertEquals(path.getExtension(), null);
+  }
+
+  /**
+   * Tests that a path cannot be created from a <code>null</code> segments array.
+   */
+  @Test(expectedExceptions = RuntimeException.class)
+  public void testPathFromNullSegments() {
+    new TreePath(null, "/");
+  }
+
 }
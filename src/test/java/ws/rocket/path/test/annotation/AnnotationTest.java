@@ -21,7 +21,6 @@ package ws.rocket.path.test.annotation;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertTrue;
 
-import org.jboss.weld.environment.se.Weld;
 import org.jboss.weld.environment.se.WeldContainer;
 import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
@@ -53,25 +52,23 @@ public final class AnnotationTest {
 
   private TreeNode rootNode;
 
-  private Weld weld = new Weld();
-
   /**
-   * Initializes the Weld container and retrieves the constructed {@link TreeNode} through a wrapper bean &ndash;
+   * Acquires the shared Weld container and retrieves the constructed {@link TreeNode} through a wrapper bean &ndash;
    * {@link RootNodeBeanWrapper}, which retrieved from Weld container.
    */
   @BeforeClass
   public void beforeTests() {
     new RootNodeBeanWrapper().getNode();
-    WeldContainer weldContainer = this.weld.initialize();
+    WeldContainer weldContainer = SharedWeldContainer.acquire();
     this.rootNode = weldContainer.instance().select(RootNodeBeanWrapper.class).get().getNode();
   }
 
   /**
-   * Shuts down the Weld container.
+   * Releases the shared Weld container.
    */
   @AfterClass
   public void afterTests() {
-    this.weld.shutdown();
+    SharedWeldContainer.release();
   }
 
   /**
@@ -0,0 +1,86 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation;
+
+import javax.inject.Inject;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.annotation.RootNode;
+import ws.rocket.path.test.annotation.data.Root;
+
+/**
+ * A wrapper-class used for testing cached trees. The first two trees are expected to be the same instance (one referred
+ * by bean type, another by bean name), whereas the third tree is not cached.
+ *
+ * @author Martti Tamm
+ */
+public final class CachedRootNodeBeanWrapper {
+
+  @Inject
+  @RootNode(value = "root", cached = true)
+  private TreeNode cachedNode1;
+
+  @Inject
+  @RootNode(value = "root", cached = true)
+  private TreeNode cachedNode2;
+
+  @Inject
+  @RootNode(type = Root.class, cached = true)
+  private TreeNode cachedNodeByType;
+
+  @Inject
+  @RootNode("root")
+  private TreeNode node;
+
+  /**
+   * Provides the first injected cached tree.
+   *
+   * @return The injected node.
+   */
+  public TreeNode getCachedNode1() {
+    return this.cachedNode1;
+  }
+
+  /**
+   * Provides the second injected cached tree.
+   *
+   * @return The injected node.
+   */
+  public TreeNode getCachedNode2() {
+    return this.cachedNode2;
+  }
+
+  /**
+   * Provides the injected cached tree (referred by root node value type).
+   *
+   * @return The injected node.
+   */
+  public TreeNode getCachedNodeByType() {
+    return this.cachedNodeByType;
+  }
+
+  /**
+   * Provides the injected tree that was not cached.
+   *
+   * @return The injected node.
+   */
+  public TreeNode getNode() {
+    return this.node;
+  }
+}
@@ -0,0 +1,111 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.jboss.weld.environment.se.WeldContainer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.annotation.RootNodeContexts;
+import ws.rocket.path.annotation.TreeNodeFactories;
+import ws.rocket.path.test.annotation.data.BeanLazy;
+import ws.rocket.path.test.annotation.data.BeanLazyChild;
+
+/**
+ * Test-cases for <code>&#064;TreeNode(lazy = true)</code>: the child-nodes must be constructed only when requested.
+ *
+ * @author Martti Tamm
+ */
+public final class LazyTreeNodeTest {
+
+  private WeldContainer container;
+
+  /**
+   * Acquires the shared Weld container.
+   */
+  @BeforeClass
+  public void beforeTests() {
+    this.container = SharedWeldContainer.acquire();
+  }
+
+  /**
+   * Releases the shared Weld container.
+   */
+  @AfterClass
+  public void afterTests() {
+    SharedWeldContainer.release();
+  }
+
+  /**
+   * Tests lazily constructed child-nodes of a tree injected by CDI.
+   */
+  @Test
+  public void testLazyInjection() {
+    TreeNode tree = this.container.instance().select(LazyRootNodeBeanWrapper.class).get().getNode();
+    assertLazyTree(tree);
+  }
+
+  /**
+   * Tests that the child-nodes of a lazy node are not constructed after the beans of the tree have been released.
+   */
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testLazyAfterRelease() {
+    TreeNode tree = this.container.instance().select(LazyRootNodeBeanWrapper.class).get().getNode();
+    int instances = BeanLazyChild.getInstances();
+
+    assertTrue(this.container.instance().select(RootNodeContexts.class).get().release(tree));
+
+    try {
+      tree.getChildren();
+    } finally {
+      assertFalse(tree.isLoaded());
+      assertEquals(BeanLazyChild.getInstances(), instances);
+    }
+  }
+
+  /**
+   * Tests lazily constructed child-nodes of a tree constructed without CDI.
+   */
+  @Test
+  public void testLazyWithoutCdi() {
+    assertLazyTree(TreeNodeFactories.createTree(BeanLazy.class));
+  }
+
+  private static void assertLazyTree(TreeNode tree) {
+    int instances = BeanLazyChild.getInstances();
+
+    assertEquals(tree.getKey(), "lazy");
+    assertFalse(tree.isLoaded());
+    assertEquals(BeanLazyChild.getInstances(), instances);
+
+    assertEquals(tree.getChildren().size(), 2);
+    assertTrue(tree.isLoaded());
+    assertEquals(tree.getChildren().get(0).getKey(), "child");
+    assertEquals(BeanLazyChild.getInstances(), instances + 2);
+
+    tree.getChildren();
+    assertEquals(BeanLazyChild.getInstances(), instances + 2);
+  }
+}
@@ -0,0 +1,150 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.weld.environment.se.WeldContainer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.annotation.RootNodeCache;
+import ws.rocket.path.annotation.RootNodeContexts;
+import ws.rocket.path.test.annotation.data.BeanBlocking;
+import ws.rocket.path.test.annotation.data.Root;
+
+/**
+ * Test-cases for {@link RootNodeCache} and for the <code>cached</code> attribute of
+ * {@link ws.rocket.path.annotation.RootNode} annotation.
+ *
+ * @author Martti Tamm
+ */
+public final class RootNodeCacheTest {
+
+  private WeldContainer container;
+
+  /**
+   * Acquires the shared Weld container.
+   */
+  @BeforeClass
+  public void beforeTests() {
+    this.container = SharedWeldContainer.acquire();
+  }
+
+  /**
+   * Releases the shared Weld container.
+   */
+  @AfterClass
+  public void afterTests() {
+    SharedWeldContainer.release();
+  }
+
+  /**
+   * Tests that cached trees are shared between injection points referring to the same root node value bean, and that
+   * trees without caching are not shared.
+   */
+  @Test
+  public void testCachedTrees() {
+    CachedRootNodeBeanWrapper wrapper1 = getWrapper();
+    CachedRootNodeBeanWrapper wrapper2 = getWrapper();
+
+    assertSame(wrapper1.getCachedNode1(), wrapper1.getCachedNode2());
+    assertSame(wrapper1.getCachedNode1(), wrapper2.getCachedNode1());
+    assertSame(wrapper1.getCachedNodeByType(), wrapper2.getCachedNodeByType());
+    assertNotSame(wrapper1.getCachedNode1(), wrapper1.getCachedNodeByType());
+    assertNotSame(wrapper1.getCachedNode1(), wrapper1.getNode());
+    assertNotSame(wrapper1.getNode(), wrapper2.getNode());
+  }
+
+  /**
+   * Tests that invalidation removes the tree from the cache so that the next injection point gets a new tree.
+   */
+  @Test
+  public void testInvalidation() {
+    RootNodeCache cache = this.container.instance().select(RootNodeCache.class).get();
+    CachedRootNodeBeanWrapper wrapper1 = getWrapper();
+
+    assertTrue(cache.isCached("root"));
+    assertTrue(cache.isCached(Root.class));
+
+    cache.invalidate("root");
+    assertFalse(cache.isCached("root"));
+    assertTrue(cache.isCached(Root.class));
+
+    CachedRootNodeBeanWrapper wrapper2 = getWrapper();
+    assertNotSame(wrapper1.getCachedNode1(), wrapper2.getCachedNode1());
+    assertSame(wrapper1.getCachedNodeByType(), wrapper2.getCachedNodeByType());
+
+    cache.invalidateAll();
+    assertFalse(cache.isCached(Root.class));
+  }
+
+  /**
+   * Tests that a tree, which is invalidated while it's being constructed, is released once it has been constructed.
+   *
+   * @throws InterruptedException When interrupted while waiting for the construction.
+   */
+  @Test
+  public void testInvalidationDuringBuild() throws InterruptedException {
+    RootNodeCache cache = this.container.instance().select(RootNodeCache.class).get();
+    RootNodeContexts contexts = this.container.instance().select(RootNodeContexts.class).get();
+    cache.invalidate("blocking");
+
+    int instances = BeanBlocking.getInstances();
+    CountDownLatch constructing = new CountDownLatch(1);
+    CountDownLatch proceed = new CountDownLatch(1);
+    BeanBlocking.blockNext(constructing, proceed);
+
+    final TreeNode[] tree = new TreeNode[1];
+    Thread builder = new Thread(new Runnable() {
+
+      @Override
+      public void run() {
+        tree[0] = RootNodeCacheTest.this.container.instance().select(BlockingRootNodeBeanWrapper.class).get()
+            .getNode();
+      }
+    });
+    builder.start();
+
+    assertTrue(constructing.await(10, TimeUnit.SECONDS));
+    cache.invalidate("blocking");
+    assertFalse(cache.isCached("blocking"));
+
+    proceed.countDown();
+    builder.join();
+
+    assertNotNull(tree[0]);
+    assertFalse(contexts.isTracked(tree[0]));
+    assertEquals(BeanBlocking.getInstances(), instances);
+  }
+
+  private CachedRootNodeBeanWrapper getWrapper() {
+    return this.container.instance().select(CachedRootNodeBeanWrapper.class).get();
+  }
+}
@@ -0,0 +1,125 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+
+import org.jboss.weld.environment.se.WeldContainer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.annotation.RootNodeContexts;
+import ws.rocket.path.test.annotation.data.BeanDisposable;
+
+/**
+ * Test-cases for {@link RootNodeContexts}: the dependent beans of a tree must be destroyed when the tree is disposed.
+ *
+ * @author Martti Tamm
+ */
+public final class RootNodeContextsTest {
+
+  private static final int NODES = 2;
+
+  private static final int BUILDS = 200;
+
+  private WeldContainer container;
+
+  /**
+   * Acquires the shared Weld container.
+   */
+  @BeforeClass
+  public void beforeTests() {
+    this.container = SharedWeldContainer.acquire();
+  }
+
+  /**
+   * Releases the shared Weld container.
+   */
+  @AfterClass
+  public void afterTests() {
+    SharedWeldContainer.release();
+  }
+
+  /**
+   * Tests that the dependent beans of a tree are destroyed when the bean, where the tree was injected, is destroyed.
+   */
+  @Test
+  public void testDisposer() {
+    RootNodeContexts contexts = getContexts();
+    int instances = BeanDisposable.getInstances();
+
+    BeanManager manager = this.container.getBeanManager();
+    Bean<?> bean = manager.resolve(manager.getBeans(DisposableRootNodeBeanWrapper.class));
+    CreationalContext<?> context = manager.createCreationalContext(bean);
+    TreeNode tree = ((DisposableRootNodeBeanWrapper) manager.getReference(bean, DisposableRootNodeBeanWrapper.class,
+        context)).getNode();
+
+    assertEquals(BeanDisposable.getInstances(), instances + NODES);
+    assertTrue(contexts.isTracked(tree));
+
+    context.release();
+
+    assertEquals(BeanDisposable.getInstances(), instances);
+    assertFalse(contexts.isTracked(tree));
+  }
+
+  /**
+   * Tests that the dependent beans of a tree are destroyed when the tree is explicitly released.
+   */
+  @Test
+  public void testRelease() {
+    RootNodeContexts contexts = getContexts();
+    int instances = BeanDisposable.getInstances();
+
+    TreeNode tree = this.container.instance().select(DisposableRootNodeBeanWrapper.class).get().getNode();
+    assertEquals(BeanDisposable.getInstances(), instances + NODES);
+
+    assertTrue(contexts.release(tree));
+    assertFalse(contexts.release(tree));
+    assertEquals(BeanDisposable.getInstances(), instances);
+  }
+
+  /**
+   * Tests that repeatedly constructing and disposing trees does not retain any dependent bean instances.
+   */
+  @Test
+  public void testRepeatedBuilds() {
+    RootNodeContexts contexts = getContexts();
+    int instances = BeanDisposable.getInstances();
+
+    for (int i = 0; i < BUILDS; i++) {
+      TreeNode tree = this.container.instance().select(DisposableRootNodeBeanWrapper.class).get().getNode();
+      contexts.release(tree);
+    }
+
+    assertEquals(BeanDisposable.getInstances(), instances);
+  }
+
+  private RootNodeContexts getContexts() {
+    return this.container.instance().select(RootNodeContexts.class).get();
+  }
+}
@@ -0,0 +1,84 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.jboss.weld.environment.se.WeldContainer;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ws.rocket.path.annotation.RootNodeCache;
+import ws.rocket.path.annotation.RootNodeWarmUp;
+import ws.rocket.path.test.annotation.data.Root;
+
+/**
+ * Test-cases for {@link RootNodeWarmUp}.
+ *
+ * @author Martti Tamm
+ */
+public final class RootNodeWarmUpTest {
+
+  private WeldContainer container;
+
+  /**
+   * Acquires the shared Weld container.
+   */
+  @BeforeClass
+  public void beforeTests() {
+    this.container = SharedWeldContainer.acquire();
+  }
+
+  /**
+   * Releases the shared Weld container.
+   */
+  @AfterClass
+  public void afterTests() {
+    SharedWeldContainer.release();
+  }
+
+  /**
+   * Tests that warm-up constructs the trees of all cached <code>&#064;RootNode</code> injection points, stores them in
+   * the cache, and skips the injection points without caching.
+   */
+  @Test
+  public void testWarmUp() {
+    RootNodeCache cache = this.container.instance().select(RootNodeCache.class).get();
+    cache.invalidateAll();
+    assertFalse(cache.isCached("root"));
+
+    Map<Object, Long> times = this.container.instance().select(RootNodeWarmUp.class).get().warmUp(2);
+
+    assertTrue(times.containsKey("root"));
+    assertTrue(times.containsKey(Root.class));
+    assertFalse(times.containsKey("lazy"));
+    assertFalse(times.containsKey("disposable"));
+    assertTrue(cache.isCached("root"));
+    assertTrue(cache.isCached(Root.class));
+
+    CachedRootNodeBeanWrapper wrapper1 = this.container.instance().select(CachedRootNodeBeanWrapper.class).get();
+    CachedRootNodeBeanWrapper wrapper2 = this.container.instance().select(CachedRootNodeBeanWrapper.class).get();
+    assertSame(wrapper1.getCachedNode1(), wrapper2.getCachedNode1());
+  }
+}
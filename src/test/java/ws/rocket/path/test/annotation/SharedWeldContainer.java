@@ -0,0 +1,67 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation;
+
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+
+/**
+ * Provides a Weld container shared by the CDI test-cases. Weld SE supports only one running container at a time, while
+ * TestNG may interleave the test methods of different test classes. Therefore, the container is started when the first
+ * test-case acquires it, and shut down when the last test-case releases it.
+ *
+ * @author Martti Tamm
+ */
+public final class SharedWeldContainer {
+
+  private static Weld weld;
+
+  private static WeldContainer container;
+
+  private static int users;
+
+  private SharedWeldContainer() {
+  }
+
+  /**
+   * Provides the running Weld container (starting it, when necessary). Each call must be followed by a call to
+   * {@link #release()} once the test-case has finished.
+   *
+   * @return The running Weld container.
+   */
+  public static synchronized WeldContainer acquire() {
+    if (users == 0) {
+      weld = new Weld();
+      container = weld.initialize();
+    }
+    users++;
+    return container;
+  }
+
+  /**
+   * Releases the Weld container, and shuts it down when no other test-case is using it.
+   */
+  public static synchronized void release() {
+    if (--users == 0) {
+      weld.shutdown();
+      weld = null;
+      container = null;
+    }
+  }
+}
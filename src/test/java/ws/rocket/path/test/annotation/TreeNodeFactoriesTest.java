@@ -0,0 +1,88 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.annotation.TreeNodeFactories;
+import ws.rocket.path.test.annotation.data.BeanChildBuilder1;
+import ws.rocket.path.test.annotation.data.BeanChildBuilders;
+import ws.rocket.path.test.annotation.data.BeanKeyBuilder1;
+import ws.rocket.path.test.annotation.data.BeanKeyBuilder2;
+import ws.rocket.path.test.annotation.data.BeanKeyBuilders;
+import ws.rocket.path.test.annotation.data.BeanLeaf;
+import ws.rocket.path.test.annotation.data.BeanNoChildren;
+import ws.rocket.path.test.annotation.data.BeanNoKey;
+import ws.rocket.path.test.annotation.data.Root;
+
+/**
+ * Test-cases for {@link TreeNodeFactories} and the factories generated by
+ * {@link ws.rocket.path.annotation.processor.TreeNodeProcessor} (which processes the test classes during compilation).
+ * The trees are constructed without CDI.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeNodeFactoriesTest {
+
+  /**
+   * Tests that factories are generated for annotated classes only.
+   */
+  @Test
+  public void testFactoryLookup() {
+    assertNotNull(TreeNodeFactories.getFactory(Root.class));
+    assertNotNull(TreeNodeFactories.getFactory(BeanChildBuilder1.class));
+    assertNull(TreeNodeFactories.getFactory(BeanLeaf.class));
+  }
+
+  /**
+   * Tests that the tree constructed without CDI has the same structure as the tree constructed with CDI (see
+   * {@link AnnotationTest}), including the references by bean names.
+   */
+  @Test
+  public void testTreeWithoutCdi() {
+    TreeNode root = TreeNodeFactories.createTree(Root.class);
+    testNode(root, "[root]", Root.class, 3);
+
+    TreeNode keyBuilders = root.getChildren().get(0);
+    testNode(keyBuilders, root.getValue(), BeanKeyBuilders.class, 2);
+    testNode(keyBuilders.getChildren().get(0), "key:keyBuilder1", BeanKeyBuilder1.class, 0);
+    testNode(keyBuilders.getChildren().get(1), null, BeanKeyBuilder2.class, 0);
+
+    TreeNode childBuilders = root.getChildren().get(1);
+    testNode(childBuilders, root.getValue(), BeanChildBuilders.class, 2);
+    testNode(childBuilders.getChildren().get(0), null, BeanChildBuilder1.class, 1);
+
+    TreeNode noKey = root.getChildren().get(2);
+    testNode(noKey, null, BeanNoKey.class, 3);
+    testNode(noKey.getChildren().get(0), "NoChildren", BeanNoChildren.class, 0);
+    testNode(noKey.getChildren().get(2), null, BeanLeaf.class, 0);
+  }
+
+  private static void testNode(TreeNode node, Object key, Class<?> valueType, int childCount) {
+    assertEquals(node.getKey(), key, "TreeNode key was not retained.");
+    assertTrue(valueType.isInstance(node.getValue()), "Node value type mismatch.");
+    assertEquals(childCount, node.getChildren().size(), "Child-node count mismatch.");
+  }
+}
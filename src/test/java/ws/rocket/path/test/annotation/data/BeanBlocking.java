@@ -0,0 +1,98 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation.data;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+
+import ws.rocket.path.annotation.TreeNode;
+
+/**
+ * The value of a root node used in testing the invalidation of a cached tree while it's being constructed. The
+ * construction of the next instance can be blocked, and the class counts the instances that have been constructed but
+ * not destroyed yet.
+ *
+ * @author Martti Tamm
+ */
+@Named("blocking")
+@TreeNode(key = "blocking")
+public final class BeanBlocking {
+
+  private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  private static CountDownLatch constructing;
+
+  private static CountDownLatch proceed;
+
+  /**
+   * Provides the number of instances that have been constructed but not destroyed yet.
+   *
+   * @return The number of live instances.
+   */
+  public static int getInstances() {
+    return INSTANCES.get();
+  }
+
+  /**
+   * Blocks the construction of the next instance: the latch <code>constructing</code> is counted down when the
+   * construction starts, and the construction continues once the latch <code>proceed</code> has been counted down.
+   *
+   * @param constructing The latch for signalling the start of construction.
+   * @param proceed The latch for waiting before completing the construction.
+   */
+  public static synchronized void blockNext(CountDownLatch constructing, CountDownLatch proceed) {
+    BeanBlocking.constructing = constructing;
+    BeanBlocking.proceed = proceed;
+  }
+
+  private static synchronized CountDownLatch[] takeLatches() {
+    CountDownLatch[] result = constructing != null ? new CountDownLatch[] { constructing, proceed } : null;
+    constructing = null;
+    proceed = null;
+    return result;
+  }
+
+  /**
+   * Counts the constructed instance, and blocks when requested.
+   *
+   * @throws InterruptedException When interrupted while blocked.
+   */
+  @PostConstruct
+  public void init() throws InterruptedException {
+    INSTANCES.incrementAndGet();
+
+    CountDownLatch[] latches = takeLatches();
+    if (latches != null) {
+      latches[0].countDown();
+      latches[1].await();
+    }
+  }
+
+  /**
+   * Counts the destroyed instance.
+   */
+  @PreDestroy
+  public void destroy() {
+    INSTANCES.decrementAndGet();
+  }
+}
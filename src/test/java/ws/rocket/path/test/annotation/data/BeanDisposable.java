@@ -0,0 +1,74 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation.data;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+
+import ws.rocket.path.annotation.TreeNode;
+
+/**
+ * The value of a root node used in testing that the dependent beans of a tree are destroyed when the tree is
+ * disposed. The class counts the instances (of this class and of {@link BeanDisposableLeaf}) that have been
+ * constructed but not destroyed yet.
+ *
+ * @author Martti Tamm
+ */
+@Named("disposable")
+@TreeNode(key = "disposable", childTypes = BeanDisposableLeaf.class)
+public final class BeanDisposable {
+
+  private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  /**
+   * Provides the number of instances that have been constructed but not destroyed yet.
+   *
+   * @return The number of live instances.
+   */
+  public static int getInstances() {
+    return INSTANCES.get();
+  }
+
+  static void constructed() {
+    INSTANCES.incrementAndGet();
+  }
+
+  static void destroyed() {
+    INSTANCES.decrementAndGet();
+  }
+
+  /**
+   * Counts the constructed instance.
+   */
+  @PostConstruct
+  public void init() {
+    constructed();
+  }
+
+  /**
+   * Counts the destroyed instance.
+   */
+  @PreDestroy
+  public void destroy() {
+    destroyed();
+  }
+}
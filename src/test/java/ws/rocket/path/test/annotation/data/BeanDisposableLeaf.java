@@ -0,0 +1,50 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation.data;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import ws.rocket.path.annotation.TreeNode;
+
+/**
+ * The value of a leaf node used in testing that the dependent beans of a tree are destroyed when the tree is disposed.
+ * The instances are counted by {@link BeanDisposable}.
+ *
+ * @author Martti Tamm
+ */
+@TreeNode(key = "leaf")
+public final class BeanDisposableLeaf {
+
+  /**
+   * Counts the constructed instance.
+   */
+  @PostConstruct
+  public void init() {
+    BeanDisposable.constructed();
+  }
+
+  /**
+   * Counts the destroyed instance.
+   */
+  @PreDestroy
+  public void destroy() {
+    BeanDisposable.destroyed();
+  }
+}
@@ -0,0 +1,50 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.annotation.data;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ws.rocket.path.annotation.TreeNode;
+
+/**
+ * The value of a lazily constructed child-node. The class counts its created instances.
+ *
+ * @author Martti Tamm
+ */
+@TreeNode(key = "child")
+public final class BeanLazyChild {
+
+  private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+  /**
+   * Counts the created instance.
+   */
+  public BeanLazyChild() {
+    INSTANCES.incrementAndGet();
+  }
+
+  /**
+   * Provides the number of created instances.
+   *
+   * @return The number of instances.
+   */
+  public static int getInstances() {
+    return INSTANCES.get();
+  }
+}
@@ -0,0 +1,196 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.diff;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+import ws.rocket.path.diff.TreeDiff;
+import ws.rocket.path.diff.TreeDiffListener;
+
+/**
+ * Test-cases for {@link TreeDiff} class.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeDiffTest {
+
+  /**
+   * Tests that comparing a tree to itself and to its equal copy reports no differences.
+   */
+  @Test
+  public void testNoChanges() {
+    assertEquals(diff(createTree("b"), createTree("b")), new ArrayList<String>());
+
+    TreeNode tree = createTree("b");
+    assertEquals(diff(tree, tree), new ArrayList<String>());
+  }
+
+  /**
+   * Tests that a changed value is reported with the path of its node, and unchanged siblings are not visited.
+   */
+  @Test
+  public void testChangedValue() {
+    List<String> changes = diff(createTree("b"), createTree("B"));
+
+    assertEquals(changes.size(), 1);
+    assertEquals(changes.get(0), "changed /a/b");
+  }
+
+  /**
+   * Tests that added and removed child-nodes are reported, and a node with a different key counts as removed and added.
+   */
+  @Test
+  public void testAddedAndRemoved() {
+    TreeNode oldTree = new TreeNode(null, "root", new TreeNode("x", "1"), new TreeNode("y", "2"));
+    TreeNode newTree = new TreeNode(null, "root", new TreeNode("y", "2"), new TreeNode("z", "3",
+        new TreeNode("z1", "4")));
+
+    List<String> changes = diff(oldTree, newTree);
+
+    assertEquals(changes.size(), 2);
+    assertTrue(changes.contains("removed /x"));
+    assertTrue(changes.contains("added /z"));
+  }
+
+  /**
+   * Tests that child-nodes are matched by key when there are more of them than a linear search would handle.
+   */
+  @Test
+  public void testManyChildren() {
+    TreeNode[] oldChildren = new TreeNode[20];
+    TreeNode[] newChildren = new TreeNode[20];
+
+    for (int i = 0; i < oldChildren.length; i++) {
+      oldChildren[i] = new TreeNode("key" + i, Integer.valueOf(i));
+      newChildren[newChildren.length - i - 1] = new TreeNode("key" + i, Integer.valueOf(i == 7 ? -7 : i));
+    }
+
+    List<String> changes = diff(new TreeNode(null, null, oldChildren), new TreeNode(null, null, newChildren));
+
+    assertEquals(changes.size(), 1);
+    assertEquals(changes.get(0), "changed /key7");
+  }
+
+  /**
+   * Tests the comparison when one of the trees is missing.
+   */
+  @Test
+  public void testMissingRoot() {
+    TreeNode tree = createTree("b");
+
+    assertEquals(diff(null, tree).get(0), "added ");
+    assertEquals(diff(tree, null).get(0), "removed ");
+    assertTrue(diff(null, null).isEmpty());
+  }
+
+  /**
+   * Tests that equal subtrees have equal digests, and different subtrees have different digests.
+   */
+  @Test
+  public void testDigest() {
+    assertEquals(createTree("b").getDigest(), createTree("b").getDigest());
+    assertTrue(createTree("b").getDigest() != createTree("c").getDigest());
+    assertTrue(new TreeNode().getDigest() != new TreeNode(null, null, new TreeNode()).getDigest());
+  }
+
+  /**
+   * Tests that changes are reported also when the values have colliding hash codes (and therefore the subtrees have
+   * equal digests).
+   */
+  @Test
+  public void testCollidingDigests() {
+    assertCollision("Aa", "BB");
+    assertCollision(Long.valueOf(0L), Long.valueOf(0x100000001L));
+  }
+
+  /**
+   * Tests that comparing by digests skips the subtrees with equal digests, but still compares the keys and values of
+   * the matched nodes.
+   */
+  @Test
+  public void testPruneByDigest() {
+    assertEquals(diff(createTree("b"), createTree("b"), true), new ArrayList<String>());
+    assertEquals(diff(createTree("b"), createTree("B"), true), Arrays.asList("changed /a/b"));
+    assertEquals(diff(new TreeNode("a", "Aa"), new TreeNode("a", "BB"), true), Arrays.asList("changed "));
+  }
+
+  /**
+   * Tests that digests can be computed for a very deep tree (no recursion is used).
+   */
+  @Test
+  public void testDeepTreeDigest() {
+    TreeNode node = new TreeNode("leaf", null);
+    for (int i = 0; i < 100000; i++) {
+      node = new TreeNode(Integer.valueOf(i), null, node);
+    }
+
+    assertTrue(node.getDigest() != 0);
+  }
+
+  private static TreeNode createTree(String bValue) {
+    TreeNode b = new TreeNode("b", bValue);
+    TreeNode c = new TreeNode("c", "c", new TreeNode("c1", "c1"), new TreeNode("c2", "c2"));
+    return new TreeNode(null, "root", new TreeNode("a", "a", b, c), new TreeNode("d", "d"));
+  }
+
+  private static void assertCollision(Object oldValue, Object newValue) {
+    TreeNode oldTree = new TreeNode(null, null, new TreeNode("a", null, new TreeNode("b", oldValue)));
+    TreeNode newTree = new TreeNode(null, null, new TreeNode("a", null, new TreeNode("b", newValue)));
+
+    assertEquals(oldTree.getDigest(), newTree.getDigest());
+    assertEquals(diff(oldTree, newTree), Arrays.asList("changed /a/b"));
+  }
+
+  private static List<String> diff(TreeNode oldTree, TreeNode newTree) {
+    return diff(oldTree, newTree, false);
+  }
+
+  private static List<String> diff(TreeNode oldTree, TreeNode newTree, boolean pruneByDigest) {
+    final List<String> changes = new ArrayList<String>();
+
+    TreeDiff.compare(oldTree, newTree, new TreeDiffListener() {
+
+      @Override
+      public void nodeAdded(TreePath path, TreeNode node) {
+        changes.add("added " + path);
+      }
+
+      @Override
+      public void nodeRemoved(TreePath path, TreeNode node) {
+        changes.add("removed " + path);
+      }
+
+      @Override
+      public void nodeChanged(TreePath path, TreeNode oldNode, TreeNode newNode) {
+        changes.add("changed " + path);
+      }
+    }, pruneByDigest);
+
+    return changes;
+  }
+}
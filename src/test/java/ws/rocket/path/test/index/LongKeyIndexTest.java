@@ -0,0 +1,151 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.index.LongKeyIndex;
+
+/**
+ * Test-cases for {@link LongKeyIndex}.
+ *
+ * @author Martti Tamm
+ */
+public final class LongKeyIndexTest {
+
+  /**
+   * Tests that nodes are found by integer and long keys, and that the child-nodes get consecutive identifiers in the
+   * order of keys.
+   */
+  @Test
+  public void testLookup() {
+    TreeNode leaf = new TreeNode(Long.valueOf(5000000000L), null);
+    TreeNode node3 = new TreeNode(Integer.valueOf(3), null, leaf);
+    TreeNode node1 = new TreeNode(Short.valueOf((short) 1), null);
+    TreeNode node2 = new TreeNode(Byte.valueOf((byte) 2), null);
+    TreeNode root = new TreeNode("root", null, node3, node1, node2);
+    LongKeyIndex index = new LongKeyIndex(root);
+
+    assertEquals(index.size(), 5);
+    assertSame(index.getRoot(), root);
+    assertEquals(index.getChildCount(LongKeyIndex.ROOT_ID), 3);
+    assertEquals(index.getFirstChildId(LongKeyIndex.ROOT_ID), 1);
+    assertSame(index.getNode(1), node1);
+    assertSame(index.getNode(2), node2);
+    assertSame(index.getNode(3), node3);
+    assertEquals(index.getKey(3), 3L);
+    assertEquals(index.getId(node3), 3);
+
+    assertEquals(index.getChildId(LongKeyIndex.ROOT_ID, 2), 2);
+    assertEquals(index.getChildId(LongKeyIndex.ROOT_ID, 4), -1);
+    assertEquals(index.getChildId(1, 1), -1);
+    assertSame(index.getChild(node3, 5000000000L), leaf);
+    assertTrue(index.contains(leaf));
+    assertFalse(index.contains(new TreeNode()));
+
+    assertSame(index.find(), root);
+    assertSame(index.find(3), node3);
+    assertSame(index.find(3L, 5000000000L), leaf);
+    assertNull(index.find(3, 5));
+    assertEquals(index.findId(new long[] { 0, 3, 5000000000L }, 1, 3), 4);
+  }
+
+  /**
+   * Tests that non-numeric keys are not indexed, and that the first one of siblings with equal keys is indexed.
+   */
+  @Test
+  public void testSkippedNodes() {
+    TreeNode first = new TreeNode(Integer.valueOf(1), "first");
+    TreeNode root = new TreeNode(null, null, new TreeNode("1", null, new TreeNode(2, null)), first,
+        new TreeNode(Long.valueOf(1), "second"), new TreeNode(1.0, null), new TreeNode(null, null));
+    LongKeyIndex index = new LongKeyIndex(root);
+
+    assertEquals(index.size(), 2);
+    assertSame(index.find(1), first);
+    assertNull(index.find(1, 2));
+  }
+
+  /**
+   * Tests that keys of different integer types with the same value are the same key in the index.
+   */
+  @Test
+  public void testWidenedKeys() {
+    TreeNode intNode = new TreeNode(Integer.valueOf(5), null);
+    TreeNode root = new TreeNode(null, null, intNode, new TreeNode(Long.valueOf(5), null));
+    LongKeyIndex index = new LongKeyIndex(root);
+
+    assertEquals(index.size(), 2);
+    assertSame(index.find(5), intNode);
+    assertSame(index.find(5L), intNode);
+  }
+
+  /**
+   * Tests that an unknown node is rejected (like in the other indexes).
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownNode() {
+    new LongKeyIndex(new TreeNode()).getId(new TreeNode());
+  }
+
+  /**
+   * Tests the lookups in a larger random tree against a linear search of the child-nodes.
+   */
+  @Test
+  public void testRandomTree() {
+    Random random = new Random(42);
+    TreeNode[] children = new TreeNode[200];
+    for (int i = 0; i < children.length; i++) {
+      TreeNode[] leaves = new TreeNode[random.nextInt(5)];
+      for (int j = 0; j < leaves.length; j++) {
+        leaves[j] = new TreeNode(random.nextInt(10) - 5, null);
+      }
+      children[i] = new TreeNode(random.nextLong() % 1000, null, leaves);
+    }
+    TreeNode root = new TreeNode(null, null, children);
+    LongKeyIndex index = new LongKeyIndex(root);
+
+    for (int key = -1000; key < 1000; key++) {
+      assertSame(index.find(key), findLinear(root, key));
+    }
+    for (TreeNode child : children) {
+      for (int key = -5; key < 5; key++) {
+        TreeNode indexed = index.find((Long) child.getKey());
+        assertSame(index.getChild(indexed, key), findLinear(indexed, key));
+      }
+    }
+  }
+
+  private static TreeNode findLinear(TreeNode parent, long key) {
+    for (TreeNode child : parent.getChildren()) {
+      if (((Number) child.getKey()).longValue() == key) {
+        return child;
+      }
+    }
+    return null;
+  }
+}
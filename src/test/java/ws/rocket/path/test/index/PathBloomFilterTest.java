@@ -0,0 +1,96 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static ws.rocket.path.test.TestTrees.createTree;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+import ws.rocket.path.index.PathBloomFilter;
+import ws.rocket.path.index.TreeIndex;
+import ws.rocket.path.index.TreePathIndex;
+
+/**
+ * Test-cases for {@link PathBloomFilter}.
+ *
+ * @author Martti Tamm
+ */
+public final class PathBloomFilterTest {
+
+  /**
+   * Tests that the filter contains the paths of all nodes, and rejects most of the other paths.
+   */
+  @Test
+  public void testFalsePositiveRate() {
+    TreeNode root = createTree(4, 10);
+    TreePathIndex paths = new TreePathIndex(root);
+    PathBloomFilter filter = PathBloomFilter.create(root, 0.01);
+
+    assertEquals(filter.getPathCount(), 11111);
+    assertEquals(filter.getHashCount(), 7);
+    assertTrue(filter.getExpectedFalsePositiveRate() < 0.011);
+
+    TreeIndex index = paths.getTreeIndex();
+    for (int id = 0; id < index.size(); id++) {
+      assertTrue(filter.mightContain(paths.getPathString(id)), paths.getPathString(id));
+    }
+
+    assertTrue(filter.mightContain("//0/1//2/"));
+    assertTrue(filter.mightContain((String) null));
+
+    TreePath path = new TreePath("/x/3/4");
+    path.next();
+    assertTrue(filter.mightContain(path));
+    assertEquals(path.getPosition(), 1);
+    assertFalse(filter.mightContain(new TreePath("/x/3/4")));
+
+    Random random = new Random(5);
+    int falsePositives = 0;
+
+    for (int i = 0; i < 20000; i++) {
+      String absent = "/" + random.nextInt(10) + "/" + random.nextInt(10) + "/" + (10 + random.nextInt(1000));
+      if (filter.mightContain(absent)) {
+        falsePositives++;
+      }
+    }
+
+    assertTrue(falsePositives < 20000 * 0.02, "False positives: " + falsePositives);
+  }
+
+  /**
+   * Tests creating a filter of given size.
+   */
+  @Test
+  public void testSize() {
+    TreeNode root = createTree(3, 10);
+    PathBloomFilter filter = PathBloomFilter.createWithSize(root, 1000);
+
+    assertEquals(filter.getBitCount(), 8000);
+    assertEquals(filter.getHashCount(), 5);
+    assertTrue(filter.mightContain("/9/9/9"));
+    assertTrue(filter.getExpectedFalsePositiveRate() > 0.01);
+  }
+}
@@ -0,0 +1,128 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.index.PrefixIndex;
+import ws.rocket.path.index.TreeNodeWeigher;
+
+/**
+ * Test-cases for {@link PrefixIndex}.
+ *
+ * @author Martti Tamm
+ */
+public final class PrefixIndexTest {
+
+  private static final TreeNodeWeigher VALUE_WEIGHER = new TreeNodeWeigher() {
+
+    @Override
+    public long getWeight(TreeNode node) {
+      return (Integer) node.getValue();
+    }
+  };
+
+  /**
+   * Tests finding child-nodes by prefix.
+   */
+  @Test
+  public void testFindByPrefix() {
+    TreeNode parent = new TreeNode(null, null, new TreeNode("user", 1), new TreeNode("admin", 2),
+        new TreeNode("users", 3), new TreeNode("usage", 4), new TreeNode("user", 5), new TreeNode(null, 6));
+    PrefixIndex index = new PrefixIndex(null);
+
+    assertEquals(values(index.findByPrefix(parent, "us")), "4,1,5,3");
+    assertEquals(values(index.findByPrefix(parent, "user")), "1,5,3");
+    assertEquals(values(index.findByPrefix(parent, "")), "6,2,4,1,5,3");
+    assertEquals(values(index.findByPrefix(parent, "x")), "");
+    assertEquals(values(index.findByPrefix(parent, "a")), "2");
+    assertEquals(values(index.complete(parent, "us", 2)), "4,1");
+    assertEquals(values(new PrefixIndex(VALUE_WEIGHER).complete(parent, "us", 3)), "5,4,3");
+    assertEquals(values(new PrefixIndex(VALUE_WEIGHER).complete(parent, "us", 0)), "");
+  }
+
+  /**
+   * Compares the completions of random keys with sorting all the matching child-nodes.
+   */
+  @Test
+  public void testRandomCompletions() {
+    Random random = new Random(9);
+    TreeNode[] children = new TreeNode[2000];
+
+    for (int i = 0; i < children.length; i++) {
+      StringBuilder key = new StringBuilder();
+      for (int length = 1 + random.nextInt(4); length > 0; length--) {
+        key.append((char) ('a' + random.nextInt(4)));
+      }
+      children[i] = new TreeNode(key.toString(), random.nextInt(100));
+    }
+
+    TreeNode parent = new TreeNode(null, null, children);
+    PrefixIndex index = new PrefixIndex(VALUE_WEIGHER);
+
+    for (String prefix : new String[] { "", "a", "bc", "dda", "abcd", "e" }) {
+      List<TreeNode> expected = new ArrayList<TreeNode>();
+      for (TreeNode child : children) {
+        if (child.getKey().toString().startsWith(prefix)) {
+          expected.add(child);
+        }
+      }
+
+      assertEquals(index.findByPrefix(parent, prefix).size(), expected.size());
+
+      Collections.sort(expected, new Comparator<TreeNode>() {
+
+        @Override
+        public int compare(TreeNode node1, TreeNode node2) {
+          int result = (Integer) node2.getValue() - (Integer) node1.getValue();
+          return result != 0 ? result : node1.getKey().toString().compareTo(node2.getKey().toString());
+        }
+      });
+
+      List<TreeNode> completions = index.complete(parent, prefix, 10);
+      assertTrue(completions.size() == Math.min(10, expected.size()));
+
+      for (int i = 0; i < completions.size(); i++) {
+        assertEquals(completions.get(i).getValue(), expected.get(i).getValue());
+        assertEquals(completions.get(i).getKey(), expected.get(i).getKey());
+      }
+    }
+  }
+
+  private static String values(List<TreeNode> nodes) {
+    StringBuilder result = new StringBuilder();
+    for (TreeNode node : nodes) {
+      if (result.length() > 0) {
+        result.append(',');
+      }
+      result.append(node.getValue());
+    }
+    return result.toString();
+  }
+}
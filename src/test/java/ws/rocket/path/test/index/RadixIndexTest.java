@@ -0,0 +1,108 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+import ws.rocket.path.index.RadixIndex;
+
+/**
+ * Test-cases for {@link RadixIndex}.
+ *
+ * @author Martti Tamm
+ */
+public final class RadixIndexTest {
+
+  /**
+   * Tests that single-child chains are merged into edges, and that the nodes are resolved also within the chains.
+   */
+  @Test
+  public void testChains() {
+    TreeNode users = new TreeNode("users", null);
+    TreeNode groups = new TreeNode("groups", null);
+    TreeNode internal = new TreeNode("internal", null, users, groups);
+    TreeNode v1 = new TreeNode("v1", null, internal);
+    TreeNode api = new TreeNode("api", null, v1);
+    TreeNode status = new TreeNode(7, null);
+    TreeNode root = new TreeNode("root", null, api, status, new TreeNode("api", "duplicate"));
+    RadixIndex index = new RadixIndex(root);
+
+    assertEquals(index.getEdgeCount(), 4);
+    assertEquals(index.getNodeCount(), 7);
+
+    assertSame(index.find("/"), root);
+    assertSame(index.find("/api"), api);
+    assertSame(index.find("/api/v1"), v1);
+    assertSame(index.find("/api/v1/internal/groups"), groups);
+    assertSame(index.find("api/v1/internal/users"), users);
+    assertSame(index.find("/7"), status);
+
+    assertNull(index.find("/api/v2"));
+    assertNull(index.find("/api/v1/internal/users/more"));
+    assertNull(index.find("/api/v1/other/users"));
+    assertNull(index.find("/root"));
+  }
+
+  /**
+   * Tests resolving the remaining segments of a tree path, and a range of segments.
+   */
+  @Test
+  public void testSegments() {
+    TreeNode leaf = new TreeNode("c", null);
+    RadixIndex index = new RadixIndex(new TreeNode(null, null, new TreeNode("a", null, new TreeNode("b", null, leaf))));
+
+    TreePath path = new TreePath("/x/a/b/c");
+    path.next();
+    assertSame(index.find(path), leaf);
+    assertEquals(path.getPosition(), 1);
+
+    assertSame(index.find(new String[] { "x", "a", "b", "c", "y" }, 1, 4), leaf);
+    assertEquals(index.getEdgeCount(), 1);
+  }
+
+  /**
+   * Tests indexing a very deep tree, where each level branches (so that every level starts new edges).
+   */
+  @Test
+  public void testDeepTree() {
+    int depth = 50000;
+    TreeNode node = new TreeNode("leaf", null);
+    for (int i = 0; i < depth; i++) {
+      node = new TreeNode("n", null, node, new TreeNode("x", null));
+    }
+
+    RadixIndex index = new RadixIndex(node);
+    String[] segments = new String[depth];
+    Arrays.fill(segments, "n");
+    segments[depth - 1] = "leaf";
+
+    assertEquals(index.getNodeCount(), 2 * depth + 1);
+    assertEquals(index.find(segments, 0, depth).getKey(), "leaf");
+    segments[depth - 1] = "x";
+    assertEquals(index.find(segments, 0, depth).getKey(), "x");
+  }
+}
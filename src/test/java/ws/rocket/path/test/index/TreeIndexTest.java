@@ -0,0 +1,161 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.index.TreeIndex;
+
+/**
+ * Test-cases for {@link TreeIndex}.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeIndexTest {
+
+  /**
+   * Tests the numbering of the nodes of a small tree.
+   */
+  @Test
+  public void testNumbering() {
+    TreeNode a1 = new TreeNode("a1", null);
+    TreeNode a2 = new TreeNode("a2", null);
+    TreeNode a = new TreeNode("a", null, a1, a2);
+    TreeNode b = new TreeNode("b", null);
+    TreeNode root = new TreeNode(null, null, a, b);
+    TreeIndex index = new TreeIndex(root);
+
+    assertEquals(index.size(), 5);
+    assertSame(index.getRoot(), root);
+    assertEquals(index.getId(a2), 3);
+    assertSame(index.getNode(4), b);
+    assertEquals(index.getPostOrder(index.getId(a1)), 0);
+    assertEquals(index.getPostOrder(index.getId(root)), 4);
+    assertEquals(index.getDepth(index.getId(a2)), 2);
+    assertEquals(index.getParent(index.getId(a2)), index.getId(a));
+    assertEquals(index.getParent(0), -1);
+    assertEquals(index.getSubtreeEnd(index.getId(a)), 3);
+    assertEquals(index.getSubtree(a), Arrays.asList(a, a1, a2));
+
+    assertTrue(index.isAncestor(root, a2));
+    assertTrue(index.isAncestor(a, a1));
+    assertFalse(index.isAncestor(a, a));
+    assertFalse(index.isAncestor(a, b));
+    assertFalse(index.isAncestor(a1, a));
+
+    assertSame(index.getCommonAncestor(a1, a2), a);
+    assertSame(index.getCommonAncestor(a2, b), root);
+    assertSame(index.getCommonAncestor(a, a2), a);
+    assertSame(index.getCommonAncestor(b, b), b);
+    assertFalse(index.contains(new TreeNode()));
+  }
+
+  /**
+   * Tests that a shared subtree is indexed once per occurrence, and the node methods use the first occurrence.
+   */
+  @Test
+  public void testSharedNode() {
+    TreeNode leaf = new TreeNode("leaf", null);
+    TreeNode shared = new TreeNode("shared", null, leaf);
+    TreeNode a = new TreeNode("a", null, shared);
+    TreeNode b = new TreeNode("b", null, shared);
+    TreeIndex index = new TreeIndex(new TreeNode(null, null, a, b));
+
+    assertEquals(index.size(), 7);
+    assertEquals(index.getIds(shared), new int[] { 2, 5 });
+    assertEquals(index.getIds(leaf), new int[] { 3, 6 });
+    assertEquals(index.getIds(a), new int[] { 1 });
+    assertEquals(index.getId(shared), 2);
+    assertSame(index.getNode(5), shared);
+    assertEquals(index.getParent(5), 4);
+    assertEquals(index.getDepth(6), 3);
+    assertTrue(index.isAncestor(a, leaf));
+    assertFalse(index.isAncestor(b, leaf));
+    assertTrue(index.isAncestor(4, 6));
+    assertEquals(index.getCommonAncestor(3, 6), 0);
+  }
+
+  /**
+   * Tests that an unknown node is rejected.
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownNode() {
+    new TreeIndex(new TreeNode()).getId(new TreeNode());
+  }
+
+  /**
+   * Compares ancestor checks and common ancestors of a random tree with the results of walking the parent nodes.
+   */
+  @Test
+  public void testRandomTree() {
+    Random random = new Random(42);
+    List<TreeNode> nodes = new ArrayList<TreeNode>();
+    TreeNode root = createRandomTree(random, 0, nodes);
+    TreeIndex index = new TreeIndex(root);
+
+    assertEquals(index.size(), nodes.size());
+
+    for (int i = 0; i < 2000; i++) {
+      int id1 = index.getId(nodes.get(random.nextInt(nodes.size())));
+      int id2 = index.getId(nodes.get(random.nextInt(nodes.size())));
+
+      assertEquals(index.isAncestor(id1, id2), isAncestor(index, id1, id2));
+      assertEquals(index.getCommonAncestor(id1, id2), findCommonAncestor(index, id1, id2));
+    }
+  }
+
+  private static boolean isAncestor(TreeIndex index, int ancestor, int id) {
+    for (int parent = index.getParent(id); parent >= 0; parent = index.getParent(parent)) {
+      if (parent == ancestor) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int findCommonAncestor(TreeIndex index, int id1, int id2) {
+    int result = id1;
+    while (result != id2 && !isAncestor(index, result, id2)) {
+      result = index.getParent(result);
+    }
+    return result;
+  }
+
+  private static TreeNode createRandomTree(Random random, int depth, List<TreeNode> nodes) {
+    TreeNode[] children = new TreeNode[depth < 6 ? random.nextInt(4) + (depth < 2 ? 2 : 0) : 0];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = createRandomTree(random, depth + 1, nodes);
+    }
+
+    TreeNode node = new TreeNode(depth, null, children);
+    nodes.add(node);
+    return node;
+  }
+}
@@ -0,0 +1,131 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.index;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+import ws.rocket.path.index.TreeIndex;
+import ws.rocket.path.index.TreePathIndex;
+
+/**
+ * Test-cases for {@link TreePathIndex}.
+ *
+ * @author Martti Tamm
+ */
+public final class TreePathIndexTest {
+
+  /**
+   * Tests the parents and paths of the nodes.
+   */
+  @Test
+  public void testPaths() {
+    TreeNode edit1 = new TreeNode("edit", null);
+    TreeNode edit2 = new TreeNode("edit", null);
+    TreeNode user = new TreeNode("user", null, edit1);
+    TreeNode group = new TreeNode("group", null, edit2, new TreeNode(null, null));
+    TreeNode root = new TreeNode("root", null, user, group);
+    TreePathIndex index = new TreePathIndex(root);
+
+    assertNull(index.getParent(root));
+    assertSame(index.getParent(edit2), group);
+    assertEquals(index.getPathString(root), "");
+    assertEquals(index.getPathString(user), "/user");
+    assertEquals(index.getPathString(edit2), "/group/edit");
+    assertEquals(index.getPathString(5), "/group/");
+    assertSame(index.getSegment(index.getTreeIndex().getId(edit1)),
+        index.getSegment(index.getTreeIndex().getId(edit2)));
+
+    TreePath path = index.getPath(edit1);
+    assertEquals(path.getPathLength(), 2);
+    assertEquals(path.next(), "user");
+    assertEquals(path.toString(), index.getPathString(edit1));
+    assertEquals(index.getPath(root).getPathLength(), 0);
+  }
+
+  /**
+   * Tests paths with a custom separator.
+   */
+  @Test
+  public void testSeparator() {
+    TreeNode leaf = new TreeNode("b", null);
+    TreePathIndex index = new TreePathIndex(new TreeIndex(new TreeNode(null, null, new TreeNode("a", null, leaf))),
+        ".");
+
+    assertEquals(index.getPathString(leaf), ".a.b");
+    assertEquals(index.getPath(leaf).toString(), ".a.b");
+  }
+
+  /**
+   * Tests the paths of a shared subtree, which are provided per occurrence.
+   */
+  @Test
+  public void testSharedSubtree() {
+    TreeNode leaf = new TreeNode("leaf", null);
+    TreeNode shared = new TreeNode("shared", null, leaf);
+    TreeNode root = new TreeNode(null, null, new TreeNode("a", null, shared), new TreeNode("b", null, shared));
+    TreePathIndex index = new TreePathIndex(root);
+    int[] ids = index.getTreeIndex().getIds(leaf);
+
+    assertEquals(ids.length, 2);
+    assertEquals(index.getPathString(leaf), "/a/shared/leaf");
+    assertEquals(index.getPathString(ids[0]), "/a/shared/leaf");
+    assertEquals(index.getPathString(ids[1]), "/b/shared/leaf");
+    assertEquals(index.getPathString(index.getTreeIndex().getIds(shared)[1]), "/b/shared");
+  }
+
+  /**
+   * Tests the paths of a very deep tree, where precomputing all path strings would take quadratic memory.
+   */
+  @Test
+  public void testDeepTree() {
+    int depth = 20000;
+    TreeNode node = new TreeNode("leaf", null);
+    for (int i = 0; i < depth; i++) {
+      node = new TreeNode("n", null, node, new TreeNode("x", null));
+    }
+
+    TreeNode leaf = node;
+    while (!leaf.getChildren().isEmpty()) {
+      leaf = leaf.getChildren().get(0);
+    }
+
+    TreePathIndex index = new TreePathIndex(node);
+    String path = index.getPathString(leaf);
+
+    assertEquals(path.length(), (depth - 1) * 2 + 5);
+    assertTrue(path.endsWith("/n/n/leaf"));
+    assertSame(index.getPathString(leaf), path);
+    assertEquals(index.getPath(leaf).getPathLength(), depth);
+  }
+
+  /**
+   * Tests that an unknown node is rejected.
+   */
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnknownNode() {
+    new TreePathIndex(new TreeNode()).getPathString(new TreeNode());
+  }
+}
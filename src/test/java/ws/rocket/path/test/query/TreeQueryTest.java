@@ -0,0 +1,198 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.query;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import ws.rocket.path.ChildNodesLoader;
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.query.TreeNodePredicate;
+import ws.rocket.path.query.TreeQuery;
+
+/**
+ * Test-cases for {@link TreeQuery}.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeQueryTest {
+
+  private final TreeNode root = new TreeNode(null, "root",
+      new TreeNode("tenants", null,
+          new TreeNode("acme", "ACME",
+              new TreeNode("routes", null,
+                  new TreeNode("admin", 1),
+                  new TreeNode("public", 2,
+                      new TreeNode("api", 3,
+                          new TreeNode("admin", 4))))),
+          new TreeNode("example", null,
+              new TreeNode("routes", null,
+                  new TreeNode("home", 5)),
+              new TreeNode("admin", 6))),
+      new TreeNode("a/b", 7));
+
+  /**
+   * Provides query patterns and the values of the nodes they select (in pre-order).
+   *
+   * @return Test data.
+   */
+  @DataProvider(name = "queries")
+  public Object[][] getQueries() {
+    return new Object[][] {
+        { "", "root" },
+        { "/", "root" },
+        { "/tenants/*", "ACME,null" },
+        { "tenants/acme/routes/admin", "1" },
+        { "/tenants/*/routes/**/admin", "1,4" },
+        { "/**/admin", "1,4,6" },
+        { "/**", "root,null,ACME,null,1,2,3,4,null,null,5,6,7" },
+        { "/tenants/**/routes/*", "1,2,5" },
+        { "/tenants/*/routes/admin|home", "1,5" },
+        { "/tenants/*/routes/pub*", "2" },
+        { "/tenants/*/routes/*i*", "1,2" },
+        { "/tenants/*/routes/*[leaf]", "1,5" },
+        { "/tenants/*/routes/*[!leaf]", "2" },
+        { "/tenants/*[value]", "ACME" },
+        { "/tenants/*[value=ACME]/**/admin", "1,4" },
+        { "/**/admin[value=6]", "6" },
+        { "a\\/b", "7" },
+        { "/tenants/nothing/**", "" },
+    };
+  }
+
+  /**
+   * Tests the nodes selected by the queries.
+   *
+   * @param pattern The query pattern.
+   * @param expected The values of the selected nodes, separated by commas.
+   */
+  @Test(dataProvider = "queries")
+  public void testSelect(String pattern, String expected) {
+    TreeQuery query = TreeQuery.compile(pattern);
+    List<String> values = new ArrayList<String>();
+
+    for (TreeNode node : query.select(this.root)) {
+      values.add(String.valueOf(node.getValue()));
+    }
+
+    assertEquals(join(values), expected);
+    assertEquals(query.selectAll(this.root).size(), values.size());
+  }
+
+  /**
+   * Tests custom predicates.
+   */
+  @Test
+  public void testCustomPredicate() {
+    TreeNodePredicate even = new TreeNodePredicate() {
+
+      @Override
+      public boolean matches(TreeNode node) {
+        return node.getValue() instanceof Integer && (Integer) node.getValue() % 2 == 0;
+      }
+    };
+
+    TreeQuery query = TreeQuery.compile("/**/*[even]", Collections.singletonMap("even", even));
+    assertEquals(query.selectAll(this.root).size(), 3);
+    assertEquals(query.selectFirst(this.root).getValue(), 2);
+    assertNull(TreeQuery.compile("/none").selectFirst(this.root));
+  }
+
+  /**
+   * Tests that compiled queries are cached.
+   */
+  @Test
+  public void testCache() {
+    assertSame(TreeQuery.compile("/a/**"), TreeQuery.compile("/a/**"));
+    assertEquals(TreeQuery.compile("/a/**").getPattern(), "/a/**");
+  }
+
+  /**
+   * Tests that the subtrees that cannot match are not loaded, and that the results are returned lazily.
+   */
+  @Test
+  public void testPruning() {
+    final AtomicInteger loads = new AtomicInteger();
+    ChildNodesLoader loader = new ChildNodesLoader() {
+
+      @Override
+      public TreeNode[] loadChildNodes() {
+        loads.incrementAndGet();
+        return new TreeNode[] { new TreeNode("x", null) };
+      }
+    };
+
+    TreeNode tree = new TreeNode(null, null, TreeNode.createLazy("a", 1, loader), TreeNode.createLazy("b", 2, loader),
+        new TreeNode("a", 3));
+
+    Iterator<TreeNode> matches = TreeQuery.compile("/a").select(tree).iterator();
+    assertTrue(matches.hasNext());
+    assertEquals(matches.next().getValue(), 1);
+    assertEquals(matches.next().getValue(), 3);
+    assertFalse(matches.hasNext());
+    assertEquals(loads.get(), 0);
+
+    assertEquals(TreeQuery.compile("/a/*").selectAll(tree).size(), 1);
+    assertEquals(loads.get(), 1);
+  }
+
+  /**
+   * Provides invalid query patterns.
+   *
+   * @return Test data.
+   */
+  @DataProvider(name = "invalidQueries")
+  public Object[][] getInvalidQueries() {
+    return new Object[][] { { "a//b" }, { "a/" }, { "a|" }, { "a[leaf" }, { "a[unknown]" }, { "a[leaf=1]" },
+        { "a]" }, { "a\\" } };
+  }
+
+  /**
+   * Tests that invalid patterns are rejected.
+   *
+   * @param pattern The invalid query pattern.
+   */
+  @Test(dataProvider = "invalidQueries", expectedExceptions = IllegalArgumentException.class)
+  public void testInvalidPattern(String pattern) {
+    TreeQuery.compile(pattern);
+  }
+
+  private static String join(List<String> values) {
+    StringBuilder result = new StringBuilder();
+    for (String value : values) {
+      if (result.length() > 0) {
+        result.append(',');
+      }
+      result.append(value);
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,136 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.route;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.route.RouteDispatcher;
+import ws.rocket.path.route.RouteMatch;
+import ws.rocket.path.route.RouteTree;
+import ws.rocket.path.test.TestTrees;
+import ws.rocket.path.test.TestTrees.KeyFactory;
+
+/**
+ * Test-cases for {@link RouteDispatcher}.
+ *
+ * @author Martti Tamm
+ */
+public final class RouteDispatcherTest {
+
+  private static final String[] SEGMENTS = { "a", "b", "c", "api", "v1", "v2", "users", "Aa", "BB", "12", "x" };
+
+  private static final KeyFactory ROUTE_KEYS = new KeyFactory() {
+
+    @Override
+    public Object createKey(Random random, int depth, int index) {
+      int type = random.nextInt(10);
+
+      if (type == 0) {
+        return "{p" + depth + "}";
+      } else if (type == 1) {
+        return "{n" + depth + ":\\d+}";
+      } else if (type == 2 && depth > 1) {
+        return "*rest";
+      }
+      return SEGMENTS[random.nextInt(SEGMENTS.length)];
+    }
+  };
+
+  /**
+   * Tests resolving literal paths.
+   */
+  @Test
+  public void testLiteralPaths() {
+    TreeNode users = new TreeNode("users", "users", new TreeNode("list", "list"));
+    TreeNode root = new TreeNode(null, "root", new TreeNode("api", "api", users), new TreeNode("Aa", "Aa"),
+        new TreeNode("BB", "BB"));
+    RouteDispatcher dispatcher = new RouteDispatcher(root);
+    RouteMatch match = dispatcher.createMatch();
+
+    assertTrue(dispatcher.resolve("", match));
+    assertSame(match.getNode(), root);
+    assertTrue(dispatcher.resolve("//api/users/", match));
+    assertSame(match.getNode(), users);
+    assertEquals(match.getParameterCount(), 0);
+    assertTrue(dispatcher.resolve("/Aa", match));
+    assertEquals(match.getNode().getValue(), "Aa");
+    assertTrue(dispatcher.resolve("/BB", match));
+    assertEquals(match.getNode().getValue(), "BB");
+
+    assertFalse(dispatcher.resolve("/api/user", match));
+    assertNull(match.getNode());
+    assertFalse(dispatcher.resolve("/api/users/list/more", match));
+  }
+
+  /**
+   * Compares the results of the dispatcher and the generic route tree on random paths.
+   */
+  @Test
+  public void testSameAsRouteTree() {
+    Random random = new Random(3);
+    TreeNode root = TestTrees.createRandomTree(random, 4, 1, 5, ROUTE_KEYS);
+    RouteDispatcher dispatcher = new RouteDispatcher(root);
+    RouteTree routeTree = new RouteTree(root);
+    RouteMatch dispatcherMatch = dispatcher.createMatch();
+    RouteMatch treeMatch = routeTree.createMatch();
+
+    for (int i = 0; i < 5000; i++) {
+      StringBuilder path = new StringBuilder();
+      for (int length = random.nextInt(5); length > 0; length--) {
+        path.append('/').append(SEGMENTS[random.nextInt(SEGMENTS.length)]);
+      }
+
+      assertEquals(dispatcher.resolve(path.toString(), dispatcherMatch),
+          routeTree.resolve(path.toString(), treeMatch), path.toString());
+      assertSame(dispatcherMatch.getNode(), treeMatch.getNode(), path.toString());
+      assertEquals(dispatcherMatch.getParameterCount(), treeMatch.getParameterCount());
+
+      for (int p = 0; p < treeMatch.getParameterCount(); p++) {
+        assertEquals(dispatcherMatch.getParameterValue(p), treeMatch.getParameterValue(p));
+      }
+    }
+  }
+
+  /**
+   * Tests compiling the dispatcher of a very deep tree, where each level branches.
+   */
+  @Test
+  public void testDeepTree() {
+    TreeNode node = new TreeNode("leaf", "leaf");
+    for (int i = 0; i < 50000; i++) {
+      node = new TreeNode("n", null, node, new TreeNode("{id}", "param"));
+    }
+
+    RouteDispatcher dispatcher = new RouteDispatcher(node);
+    RouteMatch match = dispatcher.createMatch();
+
+    assertTrue(dispatcher.resolve("/n/n/7", match));
+    assertEquals(match.getNode().getValue(), "param");
+    assertEquals(match.getParameter("id"), "7");
+  }
+}
@@ -0,0 +1,233 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.route;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+import ws.rocket.path.route.RouteMatch;
+import ws.rocket.path.route.RouteSegment;
+import ws.rocket.path.route.RouteTree;
+
+/**
+ * Test-cases for {@link RouteTree} and {@link RouteSegment}.
+ *
+ * @author Martti Tamm
+ */
+public final class RouteTreeTest {
+
+  private final RouteTree routes = new RouteTree(new TreeNode(null, "root",
+      new TreeNode("users", "users",
+          new TreeNode("*path", "users-rest"),
+          new TreeNode("{id}", "user",
+              new TreeNode("edit", "user-edit")),
+          new TreeNode("{id:\\d+}", "user-number",
+              new TreeNode("orders", "user-orders")),
+          new TreeNode("new", "user-new")),
+      new TreeNode(RouteSegment.literal("{x}"), "literal-braces"),
+      new TreeNode("files", "files",
+          new TreeNode(RouteSegment.catchAll("path"), "file"))));
+
+  /**
+   * Provides paths, and the values of the nodes they resolve to, with the captured parameters.
+   *
+   * @return Test data.
+   */
+  @DataProvider(name = "paths")
+  public Object[][] getPaths() {
+    return new Object[][] {
+        { "/", "root", "" },
+        { "/users", "users", "" },
+        { "/users/new", "user-new", "" },
+        { "/users/12", "user-number", "id=12" },
+        { "/users/abc", "user", "id=abc" },
+        { "/users/12/edit", "user-edit", "id=12" },
+        { "/users/12/orders", "user-orders", "id=12" },
+        { "/users/new/orders", "users-rest", "path=new/orders" },
+        { "/users/abc/orders", "users-rest", "path=abc/orders" },
+        { "/{x}", "literal-braces", "" },
+        { "/files/a/b/c.txt", "file", "path=a/b/c.txt" },
+        { "/files/a", "file", "path=a" },
+        { "/unknown", null, "" },
+    };
+  }
+
+  /**
+   * Tests resolving paths, reusing the same match object.
+   *
+   * @param path The path to resolve.
+   * @param value The value of the expected node (or <code>null</code> when the path does not resolve).
+   * @param parameters The expected parameters.
+   */
+  @Test(dataProvider = "paths")
+  public void testResolve(String path, String value, String parameters) {
+    RouteMatch match = this.routes.createMatch();
+    this.routes.resolve("/users/1/edit", match);
+
+    assertEquals(this.routes.resolve(path, match), value != null);
+    assertEquals(match.isMatched(), value != null);
+    assertEquals(value != null ? match.getNode().getValue() : match.getNode(), value);
+
+    StringBuilder captured = new StringBuilder();
+    for (int i = 0; i < match.getParameterCount(); i++) {
+      captured.append(match.getParameterName(i)).append('=').append(match.getParameterValue(i));
+    }
+    assertEquals(captured.toString(), parameters);
+  }
+
+  /**
+   * Tests resolving the remaining segments of a tree path.
+   */
+  @Test
+  public void testResolveTreePath() {
+    TreePath path = new TreePath("/api/users/7");
+    path.next();
+
+    RouteMatch match = this.routes.createMatch();
+    assertTrue(this.routes.resolve(path, match));
+    assertEquals(match.getParameter("id"), "7");
+    assertNull(match.getParameter("other"));
+    assertEquals(path.getPosition(), 1);
+  }
+
+  /**
+   * Compares resolving segments among many regular expression children (matched by a combined automaton) with running
+   * the regular expressions in turn.
+   *
+   * @param regexes The regular expressions of the children.
+   */
+  @Test(dataProvider = "regexes")
+  public void testRegexChildren(String[] regexes) {
+    TreeNode[] children = new TreeNode[regexes.length + 1];
+    Pattern[] patterns = new Pattern[regexes.length];
+
+    for (int i = 0; i < regexes.length; i++) {
+      children[i] = new TreeNode(RouteSegment.regex("p" + i, regexes[i]), i);
+      patterns[i] = Pattern.compile(regexes[i]);
+    }
+    children[regexes.length] = new TreeNode("{other}", -1);
+
+    RouteTree tree = new RouteTree(new TreeNode(null, null, children));
+    RouteMatch match = tree.createMatch();
+    Random random = new Random(7);
+    String alphabet = "019az-_.:/ \u00e9\ud83d\ude00";
+
+    for (int n = 0; n < 5000; n++) {
+      StringBuilder segment = new StringBuilder();
+      for (int length = random.nextInt(12); length > 0; length--) {
+        segment.append(alphabet.charAt(random.nextInt(alphabet.length())));
+      }
+
+      int expected = -1;
+      for (int i = 0; i < patterns.length && expected < 0; i++) {
+        if (patterns[i].matcher(segment).matches()) {
+          expected = i;
+        }
+      }
+
+      TreePath path = new TreePath(new String[] { segment.toString() }, "/");
+      assertTrue(tree.resolve(path, match));
+      assertEquals(match.getNode().getValue(), expected, segment.toString());
+    }
+  }
+
+  /**
+   * Provides sets of regular expressions for the children of a node.
+   *
+   * @return Test data.
+   */
+  @DataProvider(name = "regexes")
+  public Object[][] getRegexes() {
+    return new Object[][] {
+        { new String[] { "\\d{4}-\\d{2}-\\d{2}", "\\d+", "[0-9a-f]{1,8}", "(?:a|9)+z?", "[^/]{3}", ".\\..*" } },
+        { new String[] { "a*", "[a-z]+\\d", "\\w{2,3}", "\\s|\\S{5,}", "[\\-_.]+", "\\u00e9.?", "(0|1)*?" } },
+        { new String[] { "\\d+", "^a.*", "[a-z]+" } },
+        { new String[] { "\\D\\W", "[^\\d\\s]*", "\\x61+\\.?" } },
+    };
+  }
+
+  /**
+   * Tests that a shared subtree resolves with the parameters of each path leading to it.
+   */
+  @Test
+  public void testSharedSubtree() {
+    TreeNode shared = new TreeNode("{id}", "item", new TreeNode("edit", "edit"));
+    RouteTree tree = new RouteTree(new TreeNode(null, null, new TreeNode("items", null, shared),
+        new TreeNode("{group}", null, shared), new TreeNode("other", null, shared)));
+    RouteMatch match = tree.createMatch();
+
+    assertTrue(tree.resolve("/items/5/edit", match));
+    assertEquals(match.getNode().getValue(), "edit");
+    assertEquals(match.getParameterCount(), 1);
+    assertEquals(match.getParameter("id"), "5");
+
+    assertTrue(tree.resolve("/g/6/edit", match));
+    assertEquals(match.getParameterCount(), 2);
+    assertEquals(match.getParameter("group"), "g");
+    assertEquals(match.getParameter("id"), "6");
+
+    assertTrue(tree.resolve("/other/7", match));
+    assertEquals(match.getNode().getValue(), "item");
+    assertEquals(match.getParameterCount(), 1);
+  }
+
+  /**
+   * Tests building the route tree of a very deep tree, where each level branches.
+   */
+  @Test
+  public void testDeepTree() {
+    TreeNode node = new TreeNode("leaf", "leaf");
+    for (int i = 0; i < 50000; i++) {
+      node = new TreeNode("n", null, node, new TreeNode("{id}", "param"));
+    }
+
+    RouteTree tree = new RouteTree(node);
+    RouteMatch match = tree.createMatch();
+
+    assertTrue(tree.resolve("/n/n/7", match));
+    assertEquals(match.getNode().getValue(), "param");
+    assertEquals(match.getParameter("id"), "7");
+  }
+
+  /**
+   * Tests parsing route segments.
+   */
+  @Test
+  public void testParseSegment() {
+    assertEquals(RouteSegment.parse("{id}"), RouteSegment.parameter("id"));
+    assertEquals(RouteSegment.parse("{id:[a-z]+}").getType(), RouteSegment.Type.REGEX);
+    assertTrue(RouteSegment.parse("{id:[a-z]+}").matches("abc"));
+    assertFalse(RouteSegment.parse("{id:[a-z]+}").matches("ab1"));
+    assertEquals(RouteSegment.parse("*rest"), RouteSegment.catchAll("rest"));
+    assertEquals(RouteSegment.parse("*").getType(), RouteSegment.Type.LITERAL);
+    assertEquals(RouteSegment.parse("{}").getType(), RouteSegment.Type.LITERAL);
+    assertFalse(RouteSegment.literal("{x}").equals(RouteSegment.parameter("x")));
+    assertEquals(RouteSegment.regex("id", "\\d+").toString(), "{id:\\d+}");
+  }
+}
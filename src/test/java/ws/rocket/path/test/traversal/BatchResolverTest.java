@@ -0,0 +1,105 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.traversal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.TreePath;
+import ws.rocket.path.index.RadixIndex;
+import ws.rocket.path.test.TestTrees;
+import ws.rocket.path.traversal.BatchResolver;
+
+/**
+ * Test-cases for {@link BatchResolver}.
+ *
+ * @author Martti Tamm
+ */
+public final class BatchResolverTest {
+
+  /**
+   * Tests resolving a small batch of paths.
+   */
+  @Test
+  public void testResolve() {
+    TreeNode b = new TreeNode("b", null);
+    TreeNode a = new TreeNode("a", null, b);
+    TreeNode root = new TreeNode("root", null, a, new TreeNode("c", null));
+
+    TreePath current = new TreePath("/x/a/b");
+    current.next();
+
+    List<TreePath> paths = Arrays.asList(new TreePath("/a/b"), new TreePath("/"), new TreePath("/a/x"), current,
+        new TreePath("/a"), new TreePath("/a/b"));
+    TreeNode[] nodes = BatchResolver.resolve(root, paths);
+
+    assertSame(nodes[0], b);
+    assertSame(nodes[1], root);
+    assertNull(nodes[2]);
+    assertSame(nodes[3], b);
+    assertSame(nodes[4], a);
+    assertSame(nodes[5], b);
+    assertEquals(current.getPosition(), 1);
+  }
+
+  /**
+   * Compares the batch results (sequential and parallel) with resolving each path separately.
+   */
+  @Test
+  public void testRandomPaths() {
+    Random random = new Random(11);
+    TreeNode root = TestTrees.createRandomTree(random, 4, 0, 10, TestTrees.INDEX_KEYS);
+    RadixIndex index = new RadixIndex(root);
+    List<TreePath> paths = new ArrayList<TreePath>();
+
+    for (int i = 0; i < 3000; i++) {
+      StringBuilder path = new StringBuilder();
+      for (int length = random.nextInt(5); length > 0; length--) {
+        path.append('/').append(random.nextInt(12));
+      }
+      paths.add(new TreePath(path.toString()));
+    }
+
+    TreeNode[] sequential = BatchResolver.resolve(root, paths);
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    try {
+      TreeNode[] parallel = BatchResolver.resolve(root, paths, executor, 3);
+
+      for (int i = 0; i < paths.size(); i++) {
+        TreeNode expected = index.find(paths.get(i));
+        assertSame(sequential[i], expected, paths.get(i).toString());
+        assertSame(parallel[i], expected, paths.get(i).toString());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
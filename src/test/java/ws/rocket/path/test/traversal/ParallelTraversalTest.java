@@ -0,0 +1,189 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.traversal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static ws.rocket.path.test.TestTrees.createTree;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.traversal.ParallelTraversal;
+import ws.rocket.path.traversal.TreeCollector;
+import ws.rocket.path.traversal.TreeNodeAction;
+import ws.rocket.path.traversal.TreeSpliterator;
+
+/**
+ * Test-cases for {@link TreeSpliterator} and {@link ParallelTraversal}.
+ *
+ * @author Martti Tamm
+ */
+public final class ParallelTraversalTest {
+
+  private static final int THREADS = 4;
+
+  private ExecutorService executor;
+
+  /**
+   * Starts the executor.
+   */
+  @BeforeClass
+  public void beforeTests() {
+    this.executor = Executors.newFixedThreadPool(THREADS);
+  }
+
+  /**
+   * Stops the executor.
+   */
+  @AfterClass
+  public void afterTests() {
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Tests that split iterators cover all nodes exactly once, and that the sized iterators split the nodes into halves.
+   */
+  @Test
+  public void testSplit() {
+    TreeNode root = createTree(4, 5);
+    int size = root.getSubtreeSize();
+    assertEquals(size, 1 + 5 + 25 + 125 + 625);
+
+    TreeSpliterator spliterator = new TreeSpliterator(root, true);
+    assertEquals(spliterator.estimateSize(), size);
+
+    TreeSpliterator prefix = spliterator.trySplit();
+    assertNotNull(prefix);
+    assertEquals(prefix.estimateSize() + spliterator.estimateSize(), size);
+    assertTrue(Math.abs(prefix.estimateSize() - spliterator.estimateSize()) <= size / 4);
+
+    Set<TreeNode> nodes = Collections.newSetFromMap(new IdentityHashMap<TreeNode, Boolean>());
+    TreeSpliterator second = spliterator.trySplit();
+
+    for (TreeSpliterator part : new TreeSpliterator[] { prefix, second, spliterator }) {
+      long expected = part.estimateSize();
+      int count = 0;
+
+      while (part.hasNext()) {
+        assertTrue(nodes.add(part.next()));
+        count++;
+      }
+
+      assertEquals(count, expected);
+      assertEquals(part.estimateSize(), 0);
+    }
+
+    assertEquals(nodes.size(), size);
+  }
+
+  /**
+   * Tests that iterators without sizes are split by subtree count and still cover all nodes exactly once.
+   */
+  @Test
+  public void testSplitUnsized() {
+    TreeNode root = createTree(3, 4);
+    TreeSpliterator spliterator = new TreeSpliterator(root, false);
+    TreeSpliterator prefix = spliterator.trySplit();
+
+    assertNotNull(prefix);
+    assertEquals(prefix.estimateSize(), -1);
+
+    Set<TreeNode> nodes = Collections.newSetFromMap(new IdentityHashMap<TreeNode, Boolean>());
+    for (TreeSpliterator part : new TreeSpliterator[] { prefix, spliterator }) {
+      while (part.hasNext()) {
+        assertTrue(nodes.add(part.next()));
+      }
+    }
+
+    assertEquals(nodes.size(), 1 + 4 + 16 + 64);
+    assertFalse(root.isSubtreeSizeKnown());
+  }
+
+  /**
+   * Tests that a leaf cannot be split.
+   */
+  @Test
+  public void testSplitLeaf() {
+    assertNull(new TreeSpliterator(new TreeNode(), false).trySplit());
+    assertEquals(new TreeSpliterator(new TreeNode(), false).estimateSize(), -1);
+  }
+
+  /**
+   * Tests performing an action on all nodes in parallel.
+   */
+  @Test
+  public void testForEach() {
+    TreeNode root = createTree(5, 4);
+    final AtomicInteger count = new AtomicInteger();
+
+    ParallelTraversal.forEach(root, this.executor, THREADS, new TreeNodeAction() {
+
+      @Override
+      public void perform(TreeNode node) {
+        count.incrementAndGet();
+      }
+    });
+
+    assertFalse(root.isSubtreeSizeKnown(), "Traversal must not compute the subtree sizes.");
+    assertEquals(count.get(), root.getSubtreeSize());
+  }
+
+  /**
+   * Tests collecting a result from all nodes in parallel.
+   */
+  @Test
+  public void testCollect() {
+    TreeNode root = createTree(5, 4);
+
+    long sum = ParallelTraversal.collect(root, this.executor, THREADS, new TreeCollector<long[]>() {
+
+      @Override
+      public long[] create() {
+        return new long[1];
+      }
+
+      @Override
+      public long[] add(long[] result, TreeNode node) {
+        result[0] += (Integer) node.getValue();
+        return result;
+      }
+
+      @Override
+      public long[] merge(long[] left, long[] right) {
+        left[0] += right[0];
+        return left;
+      }
+    })[0];
+
+    assertEquals(sum, root.getSubtreeSize());
+  }
+}
@@ -0,0 +1,144 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.traversal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static ws.rocket.path.test.TestTrees.createTree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.traversal.TreeAggregator;
+import ws.rocket.path.traversal.TreeFold;
+
+/**
+ * Test-cases for {@link TreeFold}.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeFoldTest {
+
+  /**
+   * Tests aggregating the sum of values and the depth of subtrees.
+   */
+  @Test
+  public void testAggregate() {
+    TreeNode root = createTree(3, 3);
+    TreeFold<Integer> sum = new TreeFold<Integer>(new SumAggregator());
+    TreeFold<Integer> depth = new TreeFold<Integer>(new DepthAggregator());
+
+    assertEquals(sum.get(root).intValue(), root.getSubtreeSize());
+    assertEquals(sum.getCachedCount(), root.getSubtreeSize());
+    assertEquals(sum.get(root.getChildren().get(0)).intValue(), 1 + 3 + 9);
+    assertEquals(depth.get(root).intValue(), 4);
+    assertEquals(depth.get(new TreeNode()).intValue(), 1);
+
+    sum.clear();
+    assertEquals(sum.getCachedCount(), 0);
+    assertFalse(sum.isCached(root));
+  }
+
+  /**
+   * Tests that the results are computed once, and that only the replaced spine is computed for an updated tree.
+   */
+  @Test
+  public void testSpineUpdate() {
+    TreeNode root = createTree(3, 3);
+    SumAggregator aggregator = new SumAggregator();
+    TreeFold<Integer> fold = new TreeFold<Integer>(aggregator);
+
+    assertEquals(fold.get(root).intValue(), 40);
+    assertEquals(fold.get(root).intValue(), 40);
+    assertEquals(aggregator.aggregated, 40);
+
+    TreeNode child = root.getChildren().get(1);
+    TreeNode leaf = new TreeNode("leaf", 5);
+    TreeNode newChild = new TreeNode(child.getKey(), child.getValue(), replace(child, 2, leaf));
+    TreeNode newRoot = new TreeNode(root.getKey(), root.getValue(), replace(root, 1, newChild));
+
+    aggregator.aggregated = 0;
+    assertEquals(fold.get(newRoot).intValue(), 40 - 4 + 5);
+    assertEquals(aggregator.aggregated, 3);
+    assertTrue(fold.isCached(root));
+    assertEquals(fold.get(root).intValue(), 40);
+  }
+
+  /**
+   * Tests that a very deep tree is aggregated without stack overflow.
+   */
+  @Test
+  public void testDeepTree() {
+    TreeNode node = new TreeNode(0, 1);
+    for (int i = 1; i < 100000; i++) {
+      node = new TreeNode(i, 1, node);
+    }
+
+    assertEquals(new TreeFold<Integer>(new DepthAggregator()).get(node).intValue(), 100000);
+  }
+
+  private static TreeNode[] replace(TreeNode node, int index, TreeNode child) {
+    List<TreeNode> children = new ArrayList<TreeNode>(node.getChildren());
+    children.set(index, child);
+    return children.toArray(new TreeNode[children.size()]);
+  }
+
+  private static final class SumAggregator implements TreeAggregator<Integer> {
+
+    private int aggregated;
+
+    @Override
+    public Integer empty() {
+      return 0;
+    }
+
+    @Override
+    public Integer combine(Integer left, Integer right) {
+      return left + right;
+    }
+
+    @Override
+    public Integer aggregate(TreeNode node, Integer children) {
+      this.aggregated++;
+      return children + (Integer) node.getValue();
+    }
+  }
+
+  private static final class DepthAggregator implements TreeAggregator<Integer> {
+
+    @Override
+    public Integer empty() {
+      return 0;
+    }
+
+    @Override
+    public Integer combine(Integer left, Integer right) {
+      return Math.max(left, right);
+    }
+
+    @Override
+    public Integer aggregate(TreeNode node, Integer children) {
+      return children + 1;
+    }
+  }
+}
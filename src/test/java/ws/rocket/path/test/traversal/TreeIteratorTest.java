@@ -0,0 +1,219 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.traversal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.traversal.LevelOrderIterator;
+import ws.rocket.path.traversal.PostOrderIterator;
+import ws.rocket.path.traversal.PreOrderIterator;
+import ws.rocket.path.traversal.TreeIterator;
+
+/**
+ * Test-cases for the tree iterators.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeIteratorTest {
+
+  private static final int DEEP_TREE_DEPTH = 100000;
+
+  /**
+   * Tests the order of nodes returned by the pre-order iterator, and their depths.
+   */
+  @Test
+  public void testPreOrder() {
+    PreOrderIterator iterator = new PreOrderIterator(createTree());
+
+    assertEquals(collectKeys(iterator), Arrays.asList("r", "a", "a1", "a2", "b", "c", "c1"));
+    assertEquals(collectDepths(iterator.reset(createTree())), Arrays.asList(0, 1, 2, 2, 1, 1, 2));
+  }
+
+  /**
+   * Tests skipping subtrees with the pre-order iterator.
+   */
+  @Test
+  public void testPreOrderSkipSubtree() {
+    PreOrderIterator iterator = new PreOrderIterator(createTree());
+    List<Object> keys = new ArrayList<Object>();
+
+    while (iterator.hasNext()) {
+      TreeNode node = iterator.next();
+      keys.add(node.getKey());
+
+      if ("a".equals(node.getKey()) || "c".equals(node.getKey())) {
+        iterator.skipSubtree();
+      }
+    }
+
+    assertEquals(keys, Arrays.asList("r", "a", "b", "c"));
+  }
+
+  /**
+   * Tests the order of nodes returned by the post-order iterator, and their depths.
+   */
+  @Test
+  public void testPostOrder() {
+    PostOrderIterator iterator = new PostOrderIterator(createTree());
+
+    assertEquals(collectKeys(iterator), Arrays.asList("a1", "a2", "a", "b", "c1", "c", "r"));
+    assertEquals(collectDepths(iterator.reset(createTree())), Arrays.asList(2, 2, 1, 1, 2, 1, 0));
+  }
+
+  /**
+   * Tests the order of nodes returned by the level-order iterator, and their depths.
+   */
+  @Test
+  public void testLevelOrder() {
+    LevelOrderIterator iterator = new LevelOrderIterator(createTree());
+
+    assertEquals(collectKeys(iterator), Arrays.asList("r", "a", "b", "c", "a1", "a2", "c1"));
+    assertEquals(collectDepths(iterator.reset(createTree())), Arrays.asList(0, 1, 1, 1, 2, 2, 2));
+  }
+
+  /**
+   * Tests the paths reported by the iterators.
+   */
+  @Test
+  public void testPaths() {
+    TreeNode root = createTree();
+    TreeIterator[] iterators = { new PreOrderIterator(root), new PostOrderIterator(root),
+        new LevelOrderIterator(root, true) };
+
+    for (TreeIterator iterator : iterators) {
+      while (iterator.hasNext()) {
+        TreeNode node = iterator.next();
+
+        assertSame(iterator.getPathNode(0), root);
+        assertSame(iterator.getPathNode(iterator.getDepth()), node);
+
+        if ("c1".equals(node.getKey())) {
+          assertEquals(iterator.getPathSegments(), new String[] { "c", "c1" });
+          assertEquals(iterator.getPath().toString(), "/c/c1");
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the path of the level-order iterator is not available without path tracking.
+   */
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testLevelOrderWithoutPaths() {
+    LevelOrderIterator iterator = new LevelOrderIterator(createTree());
+    iterator.next();
+    iterator.next();
+
+    assertFalse(iterator.isTrackPaths());
+    iterator.getPathNode(0);
+  }
+
+  /**
+   * Tests iteration over an empty tree (<code>null</code> root).
+   */
+  @Test
+  public void testEmpty() {
+    assertFalse(new PreOrderIterator(null).hasNext());
+    assertFalse(new PostOrderIterator(null).hasNext());
+    assertFalse(new LevelOrderIterator(null).hasNext());
+  }
+
+  /**
+   * Tests that the iterators handle a very deep tree (which would overflow the stack with recursion).
+   */
+  @Test
+  public void testDeepTree() {
+    TreeNode root = new TreeNode(DEEP_TREE_DEPTH, null);
+    for (int i = DEEP_TREE_DEPTH - 1; i >= 0; i--) {
+      root = new TreeNode(i, null, root);
+    }
+
+    TreeIterator[] iterators = { new PreOrderIterator(root), new PostOrderIterator(root),
+        new LevelOrderIterator(root, true) };
+
+    for (TreeIterator iterator : iterators) {
+      int count = 0;
+      int maxDepth = 0;
+
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+        maxDepth = Math.max(maxDepth, iterator.getDepth());
+      }
+
+      assertEquals(count, DEEP_TREE_DEPTH + 1);
+      assertEquals(maxDepth, DEEP_TREE_DEPTH);
+    }
+  }
+
+  /**
+   * Tests the level-order iterator with a wide tree (queue compaction without path tracking).
+   */
+  @Test
+  public void testWideTree() {
+    TreeNode[] children = new TreeNode[100];
+    for (int i = 0; i < children.length; i++) {
+      children[i] = new TreeNode(i, null, new TreeNode("x", null), new TreeNode("y", null));
+    }
+
+    LevelOrderIterator iterator = new LevelOrderIterator(new TreeNode("r", null, children));
+    int count = 0;
+
+    while (iterator.hasNext()) {
+      TreeNode node = iterator.next();
+      assertSame(iterator.getPathNode(iterator.getDepth()), node);
+      count++;
+    }
+
+    assertEquals(count, 1 + children.length * 3);
+  }
+
+  private static TreeNode createTree() {
+    return new TreeNode("r", null,
+        new TreeNode("a", null, new TreeNode("a1", null), new TreeNode("a2", null)),
+        new TreeNode("b", null),
+        new TreeNode("c", null, new TreeNode("c1", null)));
+  }
+
+  private static List<Object> collectKeys(TreeIterator iterator) {
+    List<Object> keys = new ArrayList<Object>();
+    while (iterator.hasNext()) {
+      keys.add(iterator.next().getKey());
+    }
+    return keys;
+  }
+
+  private static List<Integer> collectDepths(TreeIterator iterator) {
+    List<Integer> depths = new ArrayList<Integer>();
+    while (iterator.hasNext()) {
+      iterator.next();
+      depths.add(iterator.getDepth());
+    }
+    return depths;
+  }
+}
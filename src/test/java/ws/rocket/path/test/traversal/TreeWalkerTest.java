@@ -0,0 +1,175 @@
+// @formatter:off
+/*
+ * Copyright 2012 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// @formatter:on
+
+package ws.rocket.path.test.traversal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import ws.rocket.path.TreeNode;
+import ws.rocket.path.traversal.TreeVisitResult;
+import ws.rocket.path.traversal.TreeVisitor;
+import ws.rocket.path.traversal.TreeWalker;
+
+/**
+ * Test-cases for {@link TreeWalker} and the results of {@link TreeVisitor}.
+ *
+ * @author Martti Tamm
+ */
+public final class TreeWalkerTest {
+
+  /**
+   * Tests the order of pre-visits and post-visits.
+   */
+  @Test
+  public void testWalk() {
+    RecordingVisitor visitor = new RecordingVisitor(null, null, null);
+
+    assertNull(TreeWalker.walkTree(createTree(), visitor));
+    assertEquals(visitor.events, Arrays.asList("+r", "+a", "+a1", "-a1", "+a2", "-a2", "-a", "+b", "-b", "+c", "+c1",
+        "-c1", "-c", "-r"));
+  }
+
+  /**
+   * Tests skipping the subtree of a node.
+   */
+  @Test
+  public void testSkipSubtree() {
+    RecordingVisitor visitor = new RecordingVisitor("a", TreeVisitResult.SKIP_SUBTREE, null);
+    TreeWalker.walkTree(createTree(), visitor);
+
+    assertEquals(visitor.events, Arrays.asList("+r", "+a", "+b", "-b", "+c", "+c1", "-c1", "-c", "-r"));
+  }
+
+  /**
+   * Tests skipping the following siblings of a node (returned from pre-visit and from post-visit).
+   */
+  @Test
+  public void testSkipSiblings() {
+    RecordingVisitor visitor = new RecordingVisitor("a1", TreeVisitResult.SKIP_SIBLINGS, null);
+    TreeWalker.walkTree(createTree(), visitor);
+
+    assertEquals(visitor.events, Arrays.asList("+r", "+a", "+a1", "-a", "+b", "-b", "+c", "+c1", "-c1", "-c", "-r"));
+
+    visitor = new RecordingVisitor("a", null, TreeVisitResult.SKIP_SIBLINGS);
+    TreeWalker.walkTree(createTree(), visitor);
+
+    assertEquals(visitor.events, Arrays.asList("+r", "+a", "+a1", "-a1", "+a2", "-a2", "-a", "-r"));
+  }
+
+  /**
+   * Tests terminating the walk when the searched node has been found.
+   */
+  @Test
+  public void testTerminate() {
+    RecordingVisitor visitor = new RecordingVisitor("b", TreeVisitResult.TERMINATE, null);
+    TreeNode found = TreeWalker.walkTree(createTree(), visitor);
+
+    assertEquals(found.getKey(), "b");
+    assertEquals(visitor.events, Arrays.asList("+r", "+a", "+a1", "-a1", "+a2", "-a2", "-a", "+b"));
+
+    visitor = new RecordingVisitor("c", null, TreeVisitResult.TERMINATE);
+    found = TreeWalker.walkTree(createTree(), visitor);
+
+    assertEquals(found.getKey(), "c");
+  }
+
+  /**
+   * Tests that the visitor can access the path of the visited node, and that the walker can be reused.
+   */
+  @Test
+  public void testPath() {
+    final TreeWalker walker = new TreeWalker();
+    final TreeNode root = createTree();
+    final List<Object> parents = new ArrayList<Object>();
+
+    TreeVisitor visitor = new TreeVisitor() {
+
+      @Override
+      public TreeVisitResult preVisit(TreeNode node, int depth) {
+        assertSame(walker.getPathNode(0), root);
+        assertSame(walker.getPathNode(depth), node);
+        parents.add(depth > 0 ? walker.getPathNode(depth - 1).getKey() : null);
+        return TreeVisitResult.CONTINUE;
+      }
+
+      @Override
+      public TreeVisitResult postVisit(TreeNode node, int depth) {
+        assertSame(walker.getPathNode(depth), node);
+        return TreeVisitResult.CONTINUE;
+      }
+    };
+
+    walker.walk(root, visitor);
+    assertEquals(parents, Arrays.asList(null, "r", "a", "a", "r", "r", "c"));
+
+    parents.clear();
+    walker.walk(root, visitor);
+    assertEquals(parents.size(), 7);
+  }
+
+  private static TreeNode createTree() {
+    return new TreeNode("r", null,
+        new TreeNode("a", null, new TreeNode("a1", null), new TreeNode("a2", null)),
+        new TreeNode("b", null),
+        new TreeNode("c", null, new TreeNode("c1", null)));
+  }
+
+  /**
+   * Visitor recording the visits, and returning given results for the node with given key.
+   */
+  private static final class RecordingVisitor implements TreeVisitor {
+
+    private final List<String> events = new ArrayList<String>();
+
+    private final Object key;
+
+    private final TreeVisitResult preResult;
+
+    private final TreeVisitResult postResult;
+
+    RecordingVisitor(Object key, TreeVisitResult preResult, TreeVisitResult postResult) {
+      this.key = key;
+      this.preResult = preResult;
+      this.postResult = postResult;
+    }
+
+    @Override
+    public TreeVisitResult preVisit(TreeNode node, int depth) {
+      this.events.add("+" + node.getKey());
+      return getResult(node, this.preResult);
+    }
+
+    @Override
+    public TreeVisitResult postVisit(TreeNode node, int depth) {
+      this.events.add("-" + node.getKey());
+      return getResult(node, this.postResult);
+    }
+
+    private TreeVisitResult getResult(TreeNode node, TreeVisitResult result) {
+      return result != null && node.getKey().equals(this.key) ? result : TreeVisitResult.CONTINUE;
+    }
+  }
+}